@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.jfr;
+
+
+import jdk.jfr.*;
+
+/**
+ * Spans the lifecycle of a document from {@code Model.createDocument} to {@code clearActivations}.
+ *
+ * @author Lukas Molzberger
+ */
+@Name("org.aika.Document")
+@Label("Document")
+@Category("Aika")
+@StackTrace(false)
+public class DocumentEvent extends Event {
+
+    @Label("Document Id")
+    public int docId;
+
+    @Label("Thread Id")
+    public int threadId;
+
+    @Label("Length")
+    public int length;
+
+    @Label("Activations")
+    public int activations;
+
+    @Label("Search Steps")
+    public int searchSteps;
+
+    @Label("Interrupted")
+    public boolean interrupted;
+
+    @Label("Truncated")
+    public boolean truncated;
+}
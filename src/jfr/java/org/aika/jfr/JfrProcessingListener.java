@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.jfr;
+
+
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.ProcessingListener;
+import org.aika.Provider;
+import org.aika.ReadWriteLock;
+import org.aika.corpus.Document;
+import org.aika.corpus.InterprNode;
+import org.aika.lattice.AndNode;
+import org.aika.lattice.Node;
+import org.aika.lattice.OrNode;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Emits Java Flight Recorder events for the document lifecycle, the interpretation search, the suspension and
+ * reactivation of providers, the growth of the pattern lattice and the contention of the {@code ReadWriteLock}s.
+ * All events belong to the category "Aika" and can be correlated with the GC and allocation events of the same
+ * recording.
+ *
+ * <p>This class is only compiled with the Maven profile {@code jfr}, which requires Java 11 or later. The listener
+ * is installed with {@code JfrProcessingListener.install(m)}. All other callbacks are forwarded to the previously
+ * registered listener.
+ *
+ * @author Lukas Molzberger
+ */
+public class JfrProcessingListener implements ProcessingListener {
+
+    private final ProcessingListener delegate;
+
+    /**
+     * The pending document event of each thread slot. Since there is at most one document per thread slot, the
+     * event of a document that is never cleared is replaced by the event of the next document of the same slot.
+     */
+    private final Map<Integer, DocumentEvent> documentEvents = new ConcurrentHashMap<>();
+
+
+    public JfrProcessingListener(ProcessingListener delegate) {
+        this.delegate = delegate;
+    }
+
+
+    /**
+     * Registers a new listener in the model, forwarding to the current listener of the model, and registers it as
+     * lock wait listener.
+     */
+    public static JfrProcessingListener install(Model m) {
+        JfrProcessingListener l = new JfrProcessingListener(m.processingListener);
+        m.processingListener = l;
+        ReadWriteLock.waitListener = l;
+        return l;
+    }
+
+
+    @Override
+    public void onCreateDocument(Document doc) {
+        DocumentEvent e = new DocumentEvent();
+        if (e.isEnabled()) {
+            e.docId = doc.id;
+            e.begin();
+            documentEvents.put(doc.threadId, e);
+        }
+        delegate.onCreateDocument(doc);
+    }
+
+
+    @Override
+    public void onDocument(Document doc, long nanos) {
+        DocumentEvent e = documentEvents.get(doc.threadId);
+        if (e != null && e.docId == doc.id && documentEvents.remove(doc.threadId, e)) {
+            e.end();
+            if (e.shouldCommit()) {
+                e.threadId = doc.threadId;
+                e.length = doc.length();
+                e.activations = doc.activationIdCounter;
+                e.searchSteps = doc.searchSteps;
+                e.interrupted = doc.interrupted;
+                e.truncated = doc.truncated;
+                e.commit();
+            }
+        }
+        delegate.onDocument(doc, nanos);
+    }
+
+
+    @Override
+    public void onSearch(Document doc, int steps, int depth, int cacheHits, long nanos) {
+        SearchEvent e = new SearchEvent();
+        if (e.shouldCommit()) {
+            e.docId = doc.id;
+            e.steps = steps;
+            e.depth = depth;
+            e.cacheHits = cacheHits;
+            e.interrupted = doc.interrupted;
+            e.elapsed = nanos;
+            e.commit();
+        }
+        delegate.onSearch(doc, steps, depth, cacheHits, nanos);
+    }
+
+
+    @Override
+    public void onSuspend(Provider<?> p, int bytes, long nanos) {
+        SuspendEvent e = new SuspendEvent();
+        if (e.shouldCommit()) {
+            e.providerId = p.id;
+            e.bytes = bytes;
+            e.elapsed = nanos;
+            e.commit();
+        }
+        delegate.onSuspend(p, bytes, nanos);
+    }
+
+
+    @Override
+    public void onReactivate(Provider<?> p, int bytes, long nanos) {
+        ReactivateEvent e = new ReactivateEvent();
+        if (e.shouldCommit()) {
+            e.providerId = p.id;
+            e.bytes = bytes;
+            e.elapsed = nanos;
+            e.commit();
+        }
+        delegate.onReactivate(p, bytes, nanos);
+    }
+
+
+    @Override
+    public void onAndNodeCreated(AndNode n) {
+        AndNodeCreatedEvent e = new AndNodeCreatedEvent();
+        if (e.shouldCommit()) {
+            e.nodeId = n.provider.id;
+            e.level = n.level;
+            e.commit();
+        }
+        delegate.onAndNodeCreated(n);
+    }
+
+
+    @Override
+    public void onOrNodeInput(OrNode n, Node in) {
+        OrNodeInputEvent e = new OrNodeInputEvent();
+        if (e.shouldCommit()) {
+            e.orNodeId = n.provider.id;
+            e.inputNodeId = in.provider.id;
+            e.inputLevel = in.level;
+            e.commit();
+        }
+        delegate.onOrNodeInput(n, in);
+    }
+
+
+    @Override
+    public void onLockWait(boolean write, long nanos) {
+        LockWaitEvent e = new LockWaitEvent();
+        if (e.shouldCommit()) {
+            e.write = write;
+            e.elapsed = nanos;
+            e.commit();
+        }
+        delegate.onLockWait(write, nanos);
+    }
+
+
+    @Override
+    public void onAddInput(Document doc, Neuron n, int begin, int end, Integer rid, InterprNode o, double value) {
+        delegate.onAddInput(doc, n, begin, end, rid, o, value);
+    }
+
+
+    @Override
+    public void onRemoveInput(Document doc, Neuron n, int begin, int end, Integer rid, InterprNode o) {
+        delegate.onRemoveInput(doc, n, begin, end, rid, o);
+    }
+
+
+    @Override
+    public void onPropagate(Document doc, long nanos) {
+        delegate.onPropagate(doc, nanos);
+    }
+
+
+    @Override
+    public void onProcess(Document doc, long nanos) {
+        delegate.onProcess(doc, nanos);
+    }
+
+
+    @Override
+    public void onProcessChanges(Document doc, int nodes, long nanos) {
+        delegate.onProcessChanges(doc, nodes, nanos);
+    }
+
+
+    @Override
+    public void onUpperBoundQueue(Document doc, int activations, long nanos) {
+        delegate.onUpperBoundQueue(doc, activations, nanos);
+    }
+
+
+    @Override
+    public void onTrain(Document doc, long nanos) {
+        delegate.onTrain(doc, nanos);
+    }
+}
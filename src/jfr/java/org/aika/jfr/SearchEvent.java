@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.jfr;
+
+
+import jdk.jfr.*;
+
+/**
+ * The search for the best interpretation of a document ({@code SearchNode.computeBestInterpretation}).
+ *
+ * @author Lukas Molzberger
+ */
+@Name("org.aika.Search")
+@Label("Interpretation Search")
+@Category("Aika")
+@StackTrace(false)
+public class SearchEvent extends Event {
+
+    @Label("Document Id")
+    public int docId;
+
+    @Label("Steps")
+    public int steps;
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Cache Hits")
+    public int cacheHits;
+
+    @Label("Interrupted")
+    public boolean interrupted;
+
+    @Label("Elapsed Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long elapsed;
+}
@@ -21,6 +21,7 @@ import org.aika.neuron.INeuron;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  *
@@ -34,14 +35,58 @@ public abstract class AbstractNode<P extends Provider<? extends AbstractNode>> i
 
     public P provider;
 
+    private static final AtomicLongFieldUpdater<AbstractNode> ESTIMATED_BYTES = AtomicLongFieldUpdater.newUpdater(AbstractNode.class, "estimatedBytes");
+
+    /**
+     * The estimated retained size of this node in bytes as it is currently accounted in {@code Metrics.estimatedBytes}.
+     */
+    volatile long estimatedBytes;
+
+
+    /**
+     * Estimates the retained size of this node in bytes from the sizes of its collections. See {@code Footprint}.
+     */
+    public abstract long estimateBytes();
+
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+
+    /**
+     * Recomputes the estimated size of this node and adds the difference to the footprint of the model.
+     */
+    public void updateEstimatedBytes() {
+        if (provider == null) return;
+
+        long b = estimateBytes();
+        long old = ESTIMATED_BYTES.getAndSet(this, b);
+        if (b != old) {
+            provider.m.metrics.estimatedBytes.add(b - old);
+        }
+    }
+
+
+    /**
+     * Removes this node from the footprint of the model. Is called when the node is suspended.
+     */
+    void clearEstimatedBytes() {
+        long old = ESTIMATED_BYTES.getAndSet(this, 0);
+        if (old != 0) {
+            provider.m.metrics.estimatedBytes.add(-old);
+        }
+    }
+
     public void suspend() {}
 
     public void reactivate() {}
 
     public static <P extends Provider> AbstractNode read(DataInput in, P p) throws IOException {
         AbstractNode n;
-        if(in.readBoolean()) {
-            n = INeuron.readNeuron(in, (Neuron) p);
+        int type = in.readUnsignedByte();
+        if(type != 0) {
+            n = INeuron.readNeuron(in, (Neuron) p, type);
         } else {
             n = Node.readNode(in, p);
         }
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika;
+
+
+import org.aika.neuron.INeuron;
+import org.aika.neuron.Synapse;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The {@code BulkLoader} initializes a large number of neurons at once. It is equivalent to calling
+ * {@code Model.initNeuron} for each of the neuron definitions, but builds the logic nodes in parallel:
+ *
+ * <ol>
+ * <li>The synapses of all neurons are prepared and linked.</li>
+ * <li>The input nodes are created grouped by their input neuron, so that the lock of each input neuron is only
+ * acquired once and input nodes shared by several neurons are only created once.</li>
+ * <li>The {@code Converter} is run for all neurons concurrently, each worker using its own thread slot of the model.
+ * And-nodes that are shared between the neurons are only created once.</li>
+ * </ol>
+ *
+ * The number of workers is given by the number of threads of the model.
+ *
+ * @author Lukas Molzberger
+ */
+public class BulkLoader {
+
+    private final Model m;
+    private final List<Definition> definitions = new ArrayList<>();
+
+
+    public BulkLoader(Model m) {
+        this.m = m;
+    }
+
+
+    public BulkLoader add(Neuron n, double bias, Input... inputs) {
+        return add(n, bias, new TreeSet<>(Arrays.asList(inputs)));
+    }
+
+
+    public BulkLoader add(Neuron n, double bias, Collection<Input> inputs) {
+        definitions.add(new Definition(n, bias, inputs));
+        return this;
+    }
+
+
+    public int size() {
+        return definitions.size();
+    }
+
+
+    /**
+     * Initializes all the added neurons.
+     *
+     * @return The initialized neurons in the order in which they have been added. Like in {@code Model.initNeuron},
+     * the entry is null, if the neuron could not be converted.
+     */
+    public List<Neuron> load() {
+        ExecutorService executor = Executors.newFixedThreadPool(m.numberOfThreads);
+        try {
+            invokeAll(executor, definitions, d -> d.link());
+
+            Map<Neuron, List<Synapse>> synapsesByInput = new TreeMap<>();
+            for(Definition d: definitions) {
+                for(Synapse s: d.synapses) {
+                    if(s.inputNode == null) {
+                        synapsesByInput.computeIfAbsent(s.input, in -> new ArrayList<>()).add(s);
+                    }
+                }
+            }
+            invokeAll(executor, synapsesByInput.values(), syns -> {
+                Converter.createInputNodes(syns);
+                return null;
+            });
+
+            BlockingQueue<Integer> threadIds = new ArrayBlockingQueue<>(m.numberOfThreads);
+            for(int i = 0; i < m.numberOfThreads; i++) {
+                threadIds.add(i);
+            }
+
+            List<INeuron> results = invokeAll(executor, definitions, d -> {
+                INeuron n = d.neuron.get();
+                int threadId = threadIds.take();
+                try {
+                    if (!new Converter(m, threadId, n, d.synapses).convert()) return null;
+                } finally {
+                    threadIds.add(threadId);
+                }
+                n.publish();
+                return n;
+            });
+
+            List<Neuron> neuronProviders = new ArrayList<>(results.size());
+            for(INeuron n: results) {
+                neuronProviders.add(n != null ? n.provider : null);
+            }
+            definitions.clear();
+            return neuronProviders;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    private static <I, O> List<O> invokeAll(ExecutorService executor, Collection<I> inputs, Task<I, O> task) {
+        List<Callable<O>> callables = new ArrayList<>(inputs.size());
+        for(I input: inputs) {
+            callables.add(() -> task.run(input));
+        }
+
+        List<O> results = new ArrayList<>(inputs.size());
+        try {
+            for(Future<O> f: executor.invokeAll(callables)) {
+                results.add(f.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+        return results;
+    }
+
+
+    private interface Task<I, O> {
+        O run(I input) throws Exception;
+    }
+
+
+    /**
+     * The definition of a single neuron. The weight sums and the bias are computed from the inputs in the same way
+     * as in {@code Model.initNeuron}.
+     */
+    public static class Definition {
+        public final Neuron neuron;
+        public double bias;
+        public double negDirSum = 0.0;
+        public double negRecSum = 0.0;
+        public double posRecSum = 0.0;
+        public final Set<Synapse> synapses = new TreeSet<>(Synapse.INPUT_SYNAPSE_BY_WEIGHTS_COMP);
+
+
+        public Definition(Neuron n, double bias, Collection<Input> inputs) {
+            this.neuron = n;
+
+            for (Input input : inputs) {
+                Synapse s = input.getSynapse(n);
+
+                s.w = input.weight;
+
+                if (input.weight < 0.0) {
+                    if (!input.recurrent) {
+                        negDirSum += input.weight;
+                    } else {
+                        negRecSum += input.weight;
+                    }
+                } else if (input.recurrent) {
+                    posRecSum += input.weight;
+                }
+
+                bias -= Math.abs(input.weight) * input.biasDelta;
+                synapses.add(s);
+            }
+            this.bias = bias;
+        }
+
+
+        INeuron link() {
+            return INeuron.link(neuron, bias, negDirSum, negRecSum, posRecSum, synapses);
+        }
+    }
+}
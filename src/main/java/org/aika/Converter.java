@@ -63,6 +63,29 @@ public class Converter {
         }
     };
 
+    /**
+     * Like {@code SYNAPSE_COMP}, but among synapses with the same weight the one whose input node is activated least
+     * frequently comes first. Just like a query planner joins the most selective table first, the rare inputs of the
+     * required node are joined first.
+     */
+    public static Comparator<Synapse> SELECTIVITY_COMP = new Comparator<Synapse>() {
+        @Override
+        public int compare(Synapse s1, Synapse s2) {
+            int r = Double.compare(s2.w, s1.w);
+            if(r != 0) return r;
+            r = Double.compare(getSelectivity(s1), getSelectivity(s2));
+            if(r != 0) return r;
+            return Synapse.INPUT_SYNAPSE_COMP.compare(s1, s2);
+        }
+    };
+
+    /**
+     * The order in which the synapses are added to the required node of a neuron. Which synapses belong to the
+     * required node is always decided by {@code SYNAPSE_COMP}, so that the order does not change the recognition
+     * results of the neuron.
+     */
+    public static Comparator<Synapse> REFINEMENT_ORDER = SYNAPSE_COMP;
+
 //    private List<Entry> outputs = new ArrayList<>();
 //    private List<Entry> cleanup = new ArrayList<>();
 
@@ -88,23 +111,16 @@ public class Converter {
     public boolean convert() {
         outputNode = neuron.node.get();
 
+        Map<Neuron, List<Synapse>> synapsesByInput = new TreeMap<>();
         for (Synapse s : modifiedSynapses) {
-            INeuron in = s.input.get();
-            in.lock.acquireWriteLock();
-
             if (s.inputNode == null) {
-                InputNode iNode = InputNode.add(m, s.key.createInputNodeKey(), s.input.get());
-                iNode.provider.setModified();
-                iNode.isBlocked = in.isBlocked;
-                iNode.setSynapse(s);
-                s.inputNode = iNode.provider;
+                synapsesByInput.computeIfAbsent(s.input, in -> new ArrayList<>()).add(s);
             }
 
             if (s.key.isRecurrent) {
                 neuron.maxRecurrentSum += Math.abs(s.w);
                 neuron.provider.setModified();
             }
-            in.lock.releaseWriteLock();
 
             if (!s.isNegative() && !s.key.isRecurrent) {
                 if (s.w >= -neuron.bias * TOLERANCE) {
@@ -116,6 +132,10 @@ public class Converter {
         }
         assert numAboveTolerance >= 1;
 
+        for (List<Synapse> syns : synapsesByInput.values()) {
+            createInputNodes(syns);
+        }
+
 
         double remainingSum = 0.0;
         double numAboveThreshold = 0;
@@ -123,7 +143,6 @@ public class Converter {
         for(Synapse s: neuron.inputSynapses.values()) {
             if(!s.isNegative() && !s.key.isRecurrent) {
                 if (s.w + neuron.bias > 0.0) {
-                    if (numAboveThreshold > 0) return false;
                     numAboveThreshold++;
                 }
                 remainingSum += s.w;
@@ -148,10 +167,6 @@ public class Converter {
                 }
 
                 reqSyns.add(s);
-
-                requiredNode = getRequiredNode(offset, requiredNode, s);
-
-                offset = Utils.nullSafeMin(s.key.relativeRid, offset);
                 i++;
 
                 remainingSum -= s.w;
@@ -163,6 +178,13 @@ public class Converter {
                     break;
                 }
             }
+
+            List<Synapse> reqOrder = new ArrayList<>(reqSyns);
+            Collections.sort(reqOrder, REFINEMENT_ORDER);
+            for (Synapse s : reqOrder) {
+                requiredNode = getRequiredNode(offset, requiredNode, s);
+                offset = Utils.nullSafeMin(s.key.relativeRid, offset);
+            }
         }
 
         if(requiredNode != outputNode.requiredNode) {
@@ -187,6 +209,74 @@ public class Converter {
         return true;
     }
 
+
+    /**
+     * Creates the missing input nodes of the given synapses, which all belong to the same input neuron. The write
+     * lock of the input neuron is only acquired once for all of them.
+     */
+    static void createInputNodes(List<Synapse> synapses) {
+        INeuron in = synapses.get(0).input.get();
+        in.lock.acquireWriteLock();
+        for (Synapse s : synapses) {
+            if (s.inputNode == null) {
+                InputNode iNode = InputNode.add(in.provider.m, s.key.createInputNodeKey(), in);
+                iNode.provider.setModified();
+                iNode.isBlocked = in.isBlocked;
+                iNode.setSynapse(s);
+                s.inputNode = iNode.provider;
+            }
+        }
+        in.lock.releaseWriteLock();
+    }
+
+    /**
+     * Converts all neurons of the model again, for instance after the synapse weights or the refinement order have
+     * been changed. And-nodes that are no longer used are removed.
+     *
+     * @param m
+     */
+    public static void replan(Model m) {
+        List<INeuron> neurons = new ArrayList<>();
+        synchronized (m.activeProviders) {
+            for (Provider<? extends AbstractNode> p : m.activeProviders.values()) {
+                AbstractNode an = p.getIfNotSuspended();
+                if (an instanceof INeuron && !((INeuron) an).inputSynapses.isEmpty()) {
+                    neurons.add((INeuron) an);
+                }
+            }
+        }
+
+        for (INeuron n : neurons) {
+            replan(m, n);
+        }
+    }
+
+
+    public static boolean replan(Model m, INeuron n) {
+        OrNode outputNode = n.node.get();
+        Set<Provider<Node>> oldParents = new TreeSet<>();
+        for (TreeSet<Provider<Node>> pn : outputNode.parents.values()) {
+            oldParents.addAll(pn);
+        }
+
+        n.maxRecurrentSum = 0.0;
+        boolean result = new Converter(m, m.defaultThreadId, n, n.inputSynapses.values()).convert();
+
+        for (Provider<Node> p : oldParents) {
+            Node pn = p.get();
+            if (pn instanceof AndNode) {
+                ((AndNode) pn).removeIfUnused(m);
+            }
+        }
+        return result;
+    }
+
+
+    private static double getSelectivity(Synapse s) {
+        return s.inputNode != null ? s.inputNode.get().frequency : 0.0;
+    }
+
+
     private Node getRequiredNode(Integer offset, Node requiredNode, Synapse s) {
         Node nln;
         if (requiredNode == null) {
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika;
+
+
+import org.aika.lattice.Node;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The estimated retained sizes in bytes of the data structures of a model and of a document. The estimates assume a
+ * 64 bit JVM with compressed object pointers and include the collection entries by which an object is referenced.
+ *
+ * <p>The footprint is accounted incrementally. The activations, synapse activations and interpretation nodes of a
+ * document are added to {@code Document.estimatedBytes} when they are created. The neurons, synapses, logic nodes
+ * and thread states are accounted per node in {@code AbstractNode.estimatedBytes} whenever the node is modified,
+ * and are summed up for the whole model in {@code Metrics.estimatedBytes}. A suspended node is removed from the
+ * model footprint.
+ *
+ * @author Lukas Molzberger
+ */
+public class Footprint {
+
+    public static int REFERENCE = 4;
+    public static int TREE_MAP = 48;
+    public static int TREE_MAP_ENTRY = 40;
+    public static int TREE_SET = 64;
+    public static int HASH_MAP_ENTRY = 32;
+
+    /**
+     * An activation including its key, range and the lists of its synapse activations, but without the index entries.
+     */
+    public static int ACTIVATION = 240;
+    public static int SYNAPSE_ACTIVATION = 24 + 2 * TREE_MAP_ENTRY;
+    public static int INTERPR_NODE = 200;
+
+    /**
+     * A neuron including its provider and the synapse maps.
+     */
+    public static int NEURON = 480;
+
+    /**
+     * A synapse including its key and its entries in the synapse maps of the input and output neuron.
+     */
+    public static int SYNAPSE = 120 + 3 * TREE_MAP_ENTRY;
+
+    public static int NODE = 200;
+
+    /**
+     * A refinement or or-entry including its entry in a child or parent map of the lattice.
+     */
+    public static int LATTICE_ENTRY = 32 + TREE_MAP_ENTRY;
+
+
+    /**
+     * A {@code Node.ThreadState} with its activation indexes and the array of visited markers.
+     */
+    public static long threadState(boolean endRequired, boolean ridRequired) {
+        return 48 +
+                TREE_MAP * (3 + (endRequired ? 1 : 0) + (ridRequired ? 1 : 0)) +
+                16 + REFERENCE * 2 * Node.MAX_RID;
+    }
+
+
+    /**
+     * An activation that is registered in {@code indexEntries} sorted maps.
+     */
+    public static long activation(int indexEntries) {
+        return ACTIVATION + indexEntries * TREE_MAP_ENTRY;
+    }
+
+
+    public static long size(Map<?, ?> m) {
+        return m != null ? m.size() : 0;
+    }
+
+
+    public static long size(Collection<?> c) {
+        return c != null ? c.size() : 0;
+    }
+}
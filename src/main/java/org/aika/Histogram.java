@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika;
+
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of non-negative long values with logarithmic buckets. Each power of two is divided into
+ * {@code SUB_BUCKETS} linear sub-buckets, so the relative error of a percentile is at most 1 / {@code SUB_BUCKETS}.
+ * Histograms can be merged and copied, which allows to aggregate the histograms of several models or time intervals.
+ *
+ * @author Lukas Molzberger
+ */
+public class Histogram {
+
+    static final int SUB_BUCKET_BITS = 3;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int NUMBER_OF_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+
+        buckets.incrementAndGet(getBucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+
+    /**
+     * Adds the values of the histogram {@code h} to this histogram.
+     */
+    public void merge(Histogram h) {
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            long c = h.buckets.get(i);
+            if (c > 0) {
+                buckets.addAndGet(i, c);
+            }
+        }
+        count.add(h.count.sum());
+        sum.add(h.sum.sum());
+        max.accumulate(h.max.get());
+    }
+
+
+    public Histogram copy() {
+        Histogram h = new Histogram();
+        h.merge(this);
+        return h;
+    }
+
+
+    public void reset() {
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+
+    public long getCount() {
+        return count.sum();
+    }
+
+
+    public long getMax() {
+        return max.get();
+    }
+
+
+    public double getMean() {
+        long c = count.sum();
+        return c > 0 ? (double) sum.sum() / c : 0.0;
+    }
+
+
+    /**
+     * Returns the upper limit of the bucket that contains the value at the percentile {@code p}.
+     *
+     * @param p The percentile between 0.0 and 100.0.
+     */
+    public long getValueAtPercentile(double p) {
+        long c = 0;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            c += buckets.get(i);
+        }
+        if (c == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(c * p / 100.0));
+        long acc = 0;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            acc += buckets.get(i);
+            if (acc >= rank) {
+                return Math.min(getUpperLimit(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+
+    static int getBucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+
+    static long getUpperLimit(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exp = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (1L << exp) + (sub << (exp - SUB_BUCKET_BITS));
+        return lower + (1L << (exp - SUB_BUCKET_BITS)) - 1;
+    }
+
+
+    public String toString() {
+        return "count:" + getCount() +
+                " mean:" + Math.round(getMean()) +
+                " p50:" + getValueAtPercentile(50.0) +
+                " p90:" + getValueAtPercentile(90.0) +
+                " p99:" + getValueAtPercentile(99.0) +
+                " p999:" + getValueAtPercentile(99.9) +
+                " max:" + getMax();
+    }
+}
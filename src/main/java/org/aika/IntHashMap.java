@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hash map with primitive int keys, using open addressing with linear probing. It avoids the boxing of the keys
+ * and the entry objects of a {@code java.util.HashMap}. The map is not thread safe.
+ *
+ * @author Lukas Molzberger
+ */
+public class IntHashMap<V> {
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+
+    public IntHashMap() {
+        this(16);
+    }
+
+
+    public IntHashMap(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(4, initialCapacity - 1)) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    public V get(int key) {
+        for (int i = hash(key); ; i = (i + 1) & mask) {
+            Object v = values[i];
+            if (v == null) return null;
+            if (keys[i] == key) return (V) v;
+        }
+    }
+
+
+    /**
+     * @param key
+     * @param value The value must not be null.
+     * @return The previous value or null.
+     */
+    public V put(int key, V value) {
+        assert value != null;
+
+        int i = hash(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        size++;
+
+        if (2 * size > keys.length) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+
+    public V remove(int key) {
+        int i = hash(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) break;
+        }
+        V old = (V) values[i];
+        if (old == null) return null;
+
+        values[i] = null;
+        size--;
+
+        // Shift the following entries of the probe sequence back, so that no tombstones are required.
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int h = hash(keys[j]);
+            if (((j - h) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = null;
+                i = j;
+            }
+        }
+        return old;
+    }
+
+
+    public void clear() {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = null;
+        }
+        size = 0;
+    }
+
+
+    public List<V> values() {
+        List<V> results = new ArrayList<>(size);
+        for (Object v : values) {
+            if (v != null) results.add((V) v);
+        }
+        return results;
+    }
+
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+
+    private int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika;
+
+
+import org.aika.corpus.Document;
+import org.aika.corpus.InterprNode;
+import org.aika.corpus.SearchNode.DebugState;
+import org.aika.lattice.AndNode;
+import org.aika.lattice.Node;
+import org.aika.lattice.OrNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latencies in nanoseconds of the processing stages in a {@code Histogram} per stage:
+ *
+ * <ul>
+ * <li>{@code propagate}: the propagation of an input activation ({@code Document.propagate}).</li>
+ * <li>{@code process}: {@code Document.process}.</li>
+ * <li>{@code search}: {@code SearchNode.computeBestInterpretation}.</li>
+ * <li>{@code train}: {@code Document.train}.</li>
+ * <li>{@code document}: the time from the creation of a document to {@code clearActivations}.</li>
+ * </ul>
+ *
+ * The recorder is installed with {@code LatencyRecorder.install(m)}. All callbacks are forwarded to the previously
+ * registered listener. {@code snapshotInterval} returns the histograms since the last interval snapshot and starts a new interval, while
+ * {@code getTotal} returns the histograms since the creation of the recorder.
+ *
+ * <p>Documents whose latency exceeds {@code slowDocumentThreshold} are counted as SLO violations. The last
+ * {@code maxSlowDocuments} of them are sampled together with their input size and search statistics.
+ *
+ * @author Lukas Molzberger
+ */
+public class LatencyRecorder implements ProcessingListener {
+
+    public long slowDocumentThreshold;
+    public int maxSlowDocuments;
+
+    private final ProcessingListener delegate;
+    private final ArrayDeque<SlowDocument> slowDocuments = new ArrayDeque<>();
+
+    private volatile Stages current = new Stages();
+    private Stages previous;
+    private final Stages total = new Stages();
+
+
+    /**
+     * @param delegate The listener to which all callbacks are forwarded.
+     * @param slowDocumentThreshold The document latency in nanoseconds above which a document is sampled.
+     * @param maxSlowDocuments The number of slow documents that are kept.
+     */
+    public LatencyRecorder(ProcessingListener delegate, long slowDocumentThreshold, int maxSlowDocuments) {
+        this.delegate = delegate;
+        this.slowDocumentThreshold = slowDocumentThreshold;
+        this.maxSlowDocuments = maxSlowDocuments;
+    }
+
+
+    /**
+     * Registers a new recorder without slow-document sampling in the model, forwarding to the current listener of
+     * the model.
+     */
+    public static LatencyRecorder install(Model m) {
+        return install(m, Long.MAX_VALUE, 0);
+    }
+
+
+    /**
+     * Registers a new recorder in the model, forwarding to the current listener of the model.
+     */
+    public static LatencyRecorder install(Model m, long slowDocumentThreshold, int maxSlowDocuments) {
+        LatencyRecorder lr = new LatencyRecorder(m.processingListener, slowDocumentThreshold, maxSlowDocuments);
+        m.processingListener = lr;
+        return lr;
+    }
+
+
+    @Override
+    public void onPropagate(Document doc, long nanos) {
+        current.propagate.record(nanos);
+        delegate.onPropagate(doc, nanos);
+    }
+
+
+    @Override
+    public void onProcess(Document doc, long nanos) {
+        current.process.record(nanos);
+        delegate.onProcess(doc, nanos);
+    }
+
+
+    @Override
+    public void onSearch(Document doc, int steps, int depth, int cacheHits, long nanos) {
+        current.search.record(nanos);
+        delegate.onSearch(doc, steps, depth, cacheHits, nanos);
+    }
+
+
+    @Override
+    public void onTrain(Document doc, long nanos) {
+        current.train.record(nanos);
+        delegate.onTrain(doc, nanos);
+    }
+
+
+    @Override
+    public void onDocument(Document doc, long nanos) {
+        Stages s = current;
+        s.document.record(nanos);
+
+        if (nanos > slowDocumentThreshold) {
+            s.sloViolations.increment();
+            if (maxSlowDocuments > 0) {
+                SlowDocument sd = new SlowDocument(doc, nanos);
+                synchronized (slowDocuments) {
+                    if (slowDocuments.size() >= maxSlowDocuments) {
+                        slowDocuments.pollFirst();
+                    }
+                    slowDocuments.addLast(sd);
+                }
+            }
+        }
+        delegate.onDocument(doc, nanos);
+    }
+
+
+    @Override
+    public void onCreateDocument(Document doc) {
+        delegate.onCreateDocument(doc);
+    }
+
+
+    @Override
+    public void onAddInput(Document doc, Neuron n, int begin, int end, Integer rid, InterprNode o, double value) {
+        delegate.onAddInput(doc, n, begin, end, rid, o, value);
+    }
+
+
+    @Override
+    public void onRemoveInput(Document doc, Neuron n, int begin, int end, Integer rid, InterprNode o) {
+        delegate.onRemoveInput(doc, n, begin, end, rid, o);
+    }
+
+
+    @Override
+    public void onProcessChanges(Document doc, int nodes, long nanos) {
+        delegate.onProcessChanges(doc, nodes, nanos);
+    }
+
+
+    @Override
+    public void onUpperBoundQueue(Document doc, int activations, long nanos) {
+        delegate.onUpperBoundQueue(doc, activations, nanos);
+    }
+
+
+    @Override
+    public void onSuspend(Provider<?> p, int bytes, long nanos) {
+        delegate.onSuspend(p, bytes, nanos);
+    }
+
+
+    @Override
+    public void onReactivate(Provider<?> p, int bytes, long nanos) {
+        delegate.onReactivate(p, bytes, nanos);
+    }
+
+
+    @Override
+    public void onAndNodeCreated(AndNode n) {
+        delegate.onAndNodeCreated(n);
+    }
+
+
+    @Override
+    public void onOrNodeInput(OrNode n, Node in) {
+        delegate.onOrNodeInput(n, in);
+    }
+
+
+    @Override
+    public void onLockWait(boolean write, long nanos) {
+        delegate.onLockWait(write, nanos);
+    }
+
+
+    /**
+     * Returns the histograms of the current interval and starts a new one. Values that are recorded concurrently
+     * with the snapshot may still be added to the returned interval.
+     *
+     * <p>The returned interval is only merged into the total at the next snapshot, so that these late values are
+     * not lost from the total.
+     */
+    public synchronized Stages snapshotInterval() {
+        if (previous != null) {
+            total.merge(previous);
+        }
+
+        Stages s = current;
+        current = new Stages();
+        s.endTime = current.startTime;
+        previous = s;
+        return s;
+    }
+
+
+    /**
+     * Returns the histograms since the creation of the recorder, including the current interval.
+     */
+    public synchronized Stages getTotal() {
+        Stages s = new Stages();
+        s.startTime = total.startTime;
+        s.merge(total);
+        if (previous != null) {
+            s.merge(previous);
+        }
+        s.merge(current);
+        return s;
+    }
+
+
+    public List<SlowDocument> getSlowDocuments() {
+        synchronized (slowDocuments) {
+            return new ArrayList<>(slowDocuments);
+        }
+    }
+
+
+    /**
+     * The latency histograms of a time interval.
+     */
+    public static class Stages {
+        public long startTime = System.nanoTime();
+        public long endTime;
+
+        public final Histogram propagate = new Histogram();
+        public final Histogram process = new Histogram();
+        public final Histogram search = new Histogram();
+        public final Histogram train = new Histogram();
+        public final Histogram document = new Histogram();
+
+        /**
+         * The number of documents whose latency exceeded the slow-document threshold.
+         */
+        public final LongAdder sloViolations = new LongAdder();
+
+
+        void merge(Stages s) {
+            propagate.merge(s.propagate);
+            process.merge(s.process);
+            search.merge(s.search);
+            train.merge(s.train);
+            document.merge(s.document);
+            sloViolations.add(s.sloViolations.sum());
+        }
+
+
+        public String toString() {
+            return "Propagate (ns): " + propagate + "\n" +
+                    "Process (ns): " + process + "\n" +
+                    "Search (ns): " + search + "\n" +
+                    "Train (ns): " + train + "\n" +
+                    "Document (ns): " + document + "\n" +
+                    "SLO violations: " + sloViolations;
+        }
+    }
+
+
+    /**
+     * The input size and search statistics of a document whose latency exceeded the slow-document threshold.
+     */
+    public static class SlowDocument {
+        public final int docId;
+        public final long latency;
+        public final int length;
+        public final int inputActivations;
+        public final int activations;
+        public final int searchSteps;
+        public final int searchDepth;
+        public final int cacheHits;
+        public final boolean interrupted;
+        public final boolean truncated;
+
+
+        SlowDocument(Document doc, long latency) {
+            docId = doc.id;
+            this.latency = latency;
+            length = doc.length();
+            inputActivations = doc.inputNeuronActivations.size();
+            activations = doc.activationIdCounter;
+            searchSteps = doc.searchSteps;
+            searchDepth = doc.searchDepth;
+            cacheHits = doc.searchStateCounts[DebugState.CACHED.ordinal()];
+            interrupted = doc.interrupted;
+            truncated = doc.truncated;
+        }
+
+
+        public String toString() {
+            return "Doc:" + docId +
+                    " Latency:" + (latency / 1000) + "us" +
+                    " Length:" + length +
+                    " Input activations:" + inputActivations +
+                    " Activations:" + activations +
+                    " Search steps:" + searchSteps +
+                    " Search depth:" + searchDepth +
+                    " Cache hits:" + cacheHits +
+                    (interrupted ? " INTERRUPTED" : "") +
+                    (truncated ? " TRUNCATED" : "");
+        }
+    }
+}
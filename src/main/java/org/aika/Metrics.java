@@ -0,0 +1,392 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika;
+
+
+import org.aika.corpus.Document;
+import org.aika.lattice.AndNode;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics registry of a model. All counters are striped ({@code LongAdder}), so they can be incremented by many
+ * threads without contention and without losing updates.
+ *
+ * <p>The registry contains the structural sizes of the model, the number of live and suspended providers, the
+ * suspensions and reactivations and, for each document that has been cleared with {@code clearActivations}, the
+ * number of activations, the maximum queue depths and the latency from the creation of the document to
+ * {@code clearActivations}. The lock wait time is taken from the global counters of {@code ReadWriteLock}. Since the
+ * locks do not belong to a model, these counters are process-wide: if several models are used in the same JVM, each
+ * of them reports the lock waits of all models. The estimated footprint of the neurons and logic nodes in memory and of the documents is described in {@code Footprint}.
+ *
+ * <p>The metrics can be read through an immutable {@code Snapshot} or through JMX after {@code registerMBean} has
+ * been called.
+ *
+ * @author Lukas Molzberger
+ */
+public class Metrics implements MetricsMBean {
+
+    private final Model m;
+
+    public final LongAdder neurons = new LongAdder();
+    public final LongAdder synapses = new LongAdder();
+    public final LongAdder nodes = new LongAdder();
+    public final LongAdder orNodes = new LongAdder();
+    public final LongAdder[] nodesPerLevel = new LongAdder[AndNode.MAX_POS_NODES + 1];
+
+    /**
+     * The estimated size in bytes of the neurons and logic nodes that are currently held in memory.
+     */
+    public final LongAdder estimatedBytes = new LongAdder();
+
+    public final LongAdder suspensions = new LongAdder();
+    public final LongAdder reactivations = new LongAdder();
+
+    public final LongAdder documents = new LongAdder();
+    public final Histogram activationsPerDocument = new Histogram();
+    public final Histogram queueDepth = new Histogram();
+    public final Histogram upperBoundQueueDepth = new Histogram();
+    public final Histogram documentLatency = new Histogram();
+    public final Histogram documentBytes = new Histogram();
+
+    private ObjectName objectName;
+
+    private long lastRateTime = System.nanoTime();
+    private long lastRateReactivations;
+    private volatile double reactivationsPerSecond;
+
+
+    public Metrics(Model m) {
+        this.m = m;
+        for (int i = 0; i < nodesPerLevel.length; i++) {
+            nodesPerLevel[i] = new LongAdder();
+        }
+    }
+
+
+    /**
+     * Records the per-document metrics. Is called by {@code Document.clearActivations}.
+     */
+    public void recordDocument(Document doc) {
+        documents.increment();
+        activationsPerDocument.record(doc.activationIdCounter);
+        queueDepth.record(doc.maxQueueDepth);
+        upperBoundQueueDepth.record(doc.maxUpperBoundQueueDepth);
+        documentLatency.record(System.nanoTime() - doc.createdAt);
+        documentBytes.record(doc.getEstimatedBytes());
+    }
+
+
+    /**
+     * Returns a copy of the current metrics and closes the interval of the rate metrics, such as
+     * {@code getReactivationsPerSecond}.
+     */
+    public synchronized Snapshot snapshot() {
+        Snapshot s = new Snapshot(this);
+        long dt = s.timestamp - lastRateTime;
+        reactivationsPerSecond = dt > 0 ? (s.reactivations - lastRateReactivations) * 1000000000.0 / dt : 0.0;
+        lastRateTime = s.timestamp;
+        lastRateReactivations = s.reactivations;
+        return s;
+    }
+
+
+    /**
+     * Registers this registry at the platform MBean server under the name {@code org.aika:type=Metrics,name=<name>}.
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("org.aika:type=Metrics,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    public void unregisterMBean() {
+        if (objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    @Override
+    public long getNeurons() {
+        return neurons.sum();
+    }
+
+
+    @Override
+    public long getSynapses() {
+        return synapses.sum();
+    }
+
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+
+    @Override
+    public long getOrNodes() {
+        return orNodes.sum();
+    }
+
+
+    @Override
+    public long[] getNodesPerLevel() {
+        long[] result = new long[nodesPerLevel.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = nodesPerLevel[i].sum();
+        }
+        return result;
+    }
+
+
+    /**
+     * The number of neurons and logic nodes that are currently held in memory.
+     */
+    @Override
+    public long getLiveProviders() {
+        synchronized (m.activeProviders) {
+            return m.activeProviders.size();
+        }
+    }
+
+
+    /**
+     * The number of suspended neurons and logic nodes whose providers are still referenced.
+     */
+    @Override
+    public long getSuspendedProviders() {
+        long all;
+        synchronized (m.providers) {
+            all = m.providers.size();
+        }
+        return Math.max(0, all - getLiveProviders());
+    }
+
+
+    @Override
+    public long getEstimatedBytes() {
+        return estimatedBytes.sum();
+    }
+
+
+    /**
+     * The maximum estimated size in bytes of a document cleared since the last reset.
+     */
+    @Override
+    public long getMaxDocumentBytes() {
+        return documentBytes.getMax();
+    }
+
+
+    @Override
+    public long getSuspensions() {
+        return suspensions.sum();
+    }
+
+
+    @Override
+    public long getReactivations() {
+        return reactivations.sum();
+    }
+
+
+    /**
+     * The reactivations per second in the interval that has been closed by the last call of {@code snapshot}.
+     */
+    @Override
+    public double getReactivationsPerSecond() {
+        return reactivationsPerSecond;
+    }
+
+
+    @Override
+    public long getDocuments() {
+        return documents.sum();
+    }
+
+
+    @Override
+    public double getMeanActivationsPerDocument() {
+        return activationsPerDocument.getMean();
+    }
+
+
+    @Override
+    public long getMaxQueueDepth() {
+        return queueDepth.getMax();
+    }
+
+
+    /**
+     * The number of lock waits of all models in this JVM.
+     */
+    @Override
+    public long getLockWaits() {
+        return ReadWriteLock.WAIT_COUNT.sum();
+    }
+
+
+    /**
+     * The lock wait time of all models in this JVM.
+     */
+    @Override
+    public long getLockWaitMillis() {
+        return ReadWriteLock.WAIT_NANOS.sum() / 1000000;
+    }
+
+
+    @Override
+    public double getMeanDocumentLatencyMicros() {
+        return documentLatency.getMean() / 1000.0;
+    }
+
+
+    @Override
+    public long getP50DocumentLatencyMicros() {
+        return documentLatency.getValueAtPercentile(50.0) / 1000;
+    }
+
+
+    @Override
+    public long getP99DocumentLatencyMicros() {
+        return documentLatency.getValueAtPercentile(99.0) / 1000;
+    }
+
+
+    /**
+     * Resets the runtime metrics. The structural sizes of the model are kept.
+     */
+    @Override
+    public synchronized void reset() {
+        suspensions.reset();
+        reactivations.reset();
+        documents.reset();
+        activationsPerDocument.reset();
+        queueDepth.reset();
+        upperBoundQueueDepth.reset();
+        documentLatency.reset();
+        documentBytes.reset();
+
+        lastRateTime = System.nanoTime();
+        lastRateReactivations = 0;
+        reactivationsPerSecond = 0.0;
+    }
+
+
+    /**
+     * An immutable copy of the metrics at a point in time.
+     */
+    public static class Snapshot {
+        public final long timestamp;
+
+        public final long neurons;
+        public final long synapses;
+        public final long nodes;
+        public final long orNodes;
+        public final long[] nodesPerLevel;
+
+        public final long liveProviders;
+        public final long suspendedProviders;
+        public final long estimatedBytes;
+        public final long suspensions;
+        public final long reactivations;
+
+        public final long documents;
+        public final Histogram activationsPerDocument;
+        public final Histogram queueDepth;
+        public final Histogram upperBoundQueueDepth;
+        public final Histogram documentLatency;
+        public final Histogram documentBytes;
+
+        /**
+         * The lock waits of all models in this JVM.
+         */
+        public final long lockWaits;
+        public final long lockWaitNanos;
+
+
+        Snapshot(Metrics mt) {
+            timestamp = System.nanoTime();
+            neurons = mt.getNeurons();
+            synapses = mt.getSynapses();
+            nodes = mt.getNodes();
+            orNodes = mt.getOrNodes();
+            nodesPerLevel = mt.getNodesPerLevel();
+            liveProviders = mt.getLiveProviders();
+            suspendedProviders = mt.getSuspendedProviders();
+            estimatedBytes = mt.getEstimatedBytes();
+            suspensions = mt.getSuspensions();
+            reactivations = mt.getReactivations();
+            documents = mt.getDocuments();
+            activationsPerDocument = mt.activationsPerDocument.copy();
+            queueDepth = mt.queueDepth.copy();
+            upperBoundQueueDepth = mt.upperBoundQueueDepth.copy();
+            documentLatency = mt.documentLatency.copy();
+            documentBytes = mt.documentBytes.copy();
+            lockWaits = ReadWriteLock.WAIT_COUNT.sum();
+            lockWaitNanos = ReadWriteLock.WAIT_NANOS.sum();
+        }
+
+
+        /**
+         * The reactivations per second between the snapshot {@code prev} and this snapshot.
+         */
+        public double getReactivationsPerSecond(Snapshot prev) {
+            long dt = timestamp - prev.timestamp;
+            return dt > 0 ? (reactivations - prev.reactivations) * 1000000000.0 / dt : 0.0;
+        }
+
+
+        public String toString() {
+            return "Neurons:" + neurons +
+                    " Synapses:" + synapses +
+                    " Nodes:" + nodes +
+                    " OrNodes:" + orNodes +
+                    " NodesPerLevel:" + Arrays.toString(nodesPerLevel) + "\n" +
+                    "Live providers:" + liveProviders +
+                    " Suspended providers:" + suspendedProviders +
+                    " Estimated bytes:" + estimatedBytes +
+                    " Suspensions:" + suspensions +
+                    " Reactivations:" + reactivations + "\n" +
+                    "Documents:" + documents +
+                    " Lock waits:" + lockWaits +
+                    " Lock wait time:" + (lockWaitNanos / 1000000) + "ms\n" +
+                    "Activations per document: " + activationsPerDocument + "\n" +
+                    "Queue depth: " + queueDepth + "\n" +
+                    "Upper bound queue depth: " + upperBoundQueueDepth + "\n" +
+                    "Document latency (ns): " + documentLatency + "\n" +
+                    "Document size (estimated bytes): " + documentBytes;
+        }
+    }
+}
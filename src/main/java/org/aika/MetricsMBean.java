@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika;
+
+/**
+ *
+ * The JMX management interface of the {@code Metrics} of a model.
+ *
+ * @author Lukas Molzberger
+ */
+public interface MetricsMBean {
+
+    long getNeurons();
+
+    long getSynapses();
+
+    long getNodes();
+
+    long getOrNodes();
+
+    long[] getNodesPerLevel();
+
+    long getLiveProviders();
+
+    long getSuspendedProviders();
+
+    long getEstimatedBytes();
+
+    long getMaxDocumentBytes();
+
+    long getSuspensions();
+
+    long getReactivations();
+
+    double getReactivationsPerSecond();
+
+    long getDocuments();
+
+    double getMeanActivationsPerDocument();
+
+    long getMaxQueueDepth();
+
+    long getLockWaits();
+
+    long getLockWaitMillis();
+
+    double getMeanDocumentLatencyMicros();
+
+    long getP50DocumentLatencyMicros();
+
+    long getP99DocumentLatencyMicros();
+
+    void reset();
+}
@@ -20,13 +20,14 @@ package org.aika;
 import org.aika.corpus.Document;
 import org.aika.corpus.Range.Operator;
 import org.aika.corpus.Range.Mapping;
-import org.aika.lattice.AndNode;
 import org.aika.lattice.Node;
+import org.aika.lattice.WeightUpdateScheduler;
 import org.aika.neuron.INeuron;
 import org.aika.neuron.Synapse;
 
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
@@ -50,6 +51,17 @@ public class Model {
 
     public SuspensionHook suspensionHook;
 
+    /**
+     * Receives the timings and counts of the processing phases. See {@code ProcessingListener}.
+     */
+    public ProcessingListener processingListener = ProcessingListener.NONE;
+
+    /**
+     * If set, the queued logic nodes of each level are processed level-synchronously, joining the new activations
+     * concurrently within this pool. If null, the activations are propagated sequentially.
+     */
+    public ForkJoinPool propagationPool;
+
 
     public AtomicInteger currentId = new AtomicInteger(0);
 
@@ -57,21 +69,25 @@ public class Model {
     public WeakHashMap<Integer, WeakReference<Provider<? extends AbstractNode>>> providers = new WeakHashMap<>();
     public Map<Integer, Provider<? extends AbstractNode>> activeProviders = new TreeMap<>();
 
-    public Statistic stat = new Statistic();
+    public Metrics metrics = new Metrics(this);
+
+    /**
+     * Suspends the least recently used neurons and logic nodes if the estimated footprint of the model exceeds its
+     * budget. Is only active if a suspension hook is set.
+     */
+    public SuspensionManager suspensionManager = new SuspensionManager(this);
 
     public int defaultThreadId = 0;
 
-    public Set<Provider<AndNode>> numberOfPositionsQueue = Collections.synchronizedSet(new TreeSet<>(new Comparator<Provider<AndNode>>() {
-        @Override
-        public int compare(Provider<AndNode> n1, Provider<AndNode> n2) {
-            int r = Integer.compare(n1.get().numberOfPositionsNotify, n2.get().numberOfPositionsNotify);
-            if (r != 0) return r;
-            return n1.compareTo(n2);
-        }
-    }));
+    public WeightUpdateScheduler weightUpdateScheduler = new WeightUpdateScheduler(this);
 
     public volatile int numberOfPositions;
 
+    /**
+     * The number of positions of the processed documents that have not yet been added to {@code numberOfPositions}.
+     */
+    public AtomicInteger numberOfPositionsDelta = new AtomicInteger(0);
+
 
     /**
      * Creates a model with a single thread.
@@ -123,6 +139,8 @@ public class Model {
             docs[threadId] = doc;
         }
 
+        processingListener.onCreateDocument(doc);
+
         return doc;
     }
 
@@ -195,6 +213,21 @@ public class Model {
     }
 
 
+    /**
+     * Returns the estimated footprint in bytes of the neurons and logic nodes in memory and of the documents that
+     * are currently processed.
+     */
+    public long getEstimatedBytes() {
+        long b = metrics.estimatedBytes.sum();
+        for (Document doc: docs) {
+            if (doc != null) {
+                b += doc.estimatedBytes;
+            }
+        }
+        return b;
+    }
+
+
     /**
      * Suspend all neurons and logic nodes whose last used document id is lower/older than {@param docId}.
      *
@@ -266,31 +299,8 @@ public class Model {
      * @return
      */
     public Neuron initNeuron(Neuron n, double bias, Collection<Input> inputs) {
-        Set<Synapse> is = new TreeSet<>(Synapse.INPUT_SYNAPSE_BY_WEIGHTS_COMP);
-
-        double negDirSum = 0.0;
-        double negRecSum = 0.0;
-        double posRecSum = 0.0;
-        for (Input input : inputs) {
-            Synapse s = input.getSynapse(n);
-
-            s.w = input.weight;
-
-            if (input.weight < 0.0) {
-                if (!input.recurrent) {
-                    negDirSum += input.weight;
-                } else {
-                    negRecSum += input.weight;
-                }
-            } else if (input.recurrent) {
-                posRecSum += input.weight;
-            }
-
-            bias -= Math.abs(input.weight) * input.biasDelta;
-            is.add(s);
-        }
-
-        return INeuron.init(this, defaultThreadId, n, bias, negDirSum, negRecSum, posRecSum, is);
+        BulkLoader.Definition d = new BulkLoader.Definition(n, bias, inputs);
+        return INeuron.init(this, defaultThreadId, n, d.bias, d.negDirSum, d.negRecSum, d.posRecSum, d.synapses);
     }
 
 
@@ -493,12 +503,4 @@ public class Model {
         return INeuron.init(this, defaultThreadId, n, bias, 0.0, negRecSum, 0.0, is);
     }
 
-
-    public static class Statistic {
-        public volatile int synapses;
-        public volatile int neurons;
-        public volatile int nodes;
-        public volatile int[] nodesPerLevel = new int[AndNode.MAX_POS_NODES + 1];
-        public volatile int orNodes;
-    }
 }
@@ -21,6 +21,7 @@ import org.aika.corpus.Document;
 import org.aika.corpus.InterprNode;
 import org.aika.neuron.Activation;
 import org.aika.neuron.INeuron;
+import org.aika.neuron.IndexedSynapseMap;
 import org.aika.neuron.Synapse;
 
 import java.util.*;
@@ -35,8 +36,8 @@ public class Neuron extends Provider<INeuron> {
 
     public ReadWriteLock lock = new ReadWriteLock();
 
-    public NavigableMap<Synapse, Synapse> inMemoryInputSynapses = new TreeMap<>(Synapse.INPUT_SYNAPSE_COMP);
-    public NavigableMap<Synapse, Synapse> inMemoryOutputSynapses = new TreeMap<>(Synapse.OUTPUT_SYNAPSE_COMP);
+    public IndexedSynapseMap inMemoryInputSynapses = new IndexedSynapseMap(Synapse.INPUT_SYNAPSE_COMP, false);
+    public IndexedSynapseMap inMemoryOutputSynapses = new IndexedSynapseMap(Synapse.OUTPUT_SYNAPSE_COMP, true);
 
 
     public Neuron(Model m, int id) {
@@ -110,6 +111,10 @@ public class Neuron extends Provider<INeuron> {
      * @param value The activation value of this input activation
      */
     public Activation addInput(Document doc, int begin, int end, Integer rid, InterprNode o, double value) {
+        ProcessingListener pl = m.processingListener;
+        if (pl != ProcessingListener.NONE) {
+            pl.onAddInput(doc, this, begin, end, rid, o, value);
+        }
         return get().addInput(doc, begin, end, rid, o, value);
     }
 
@@ -130,6 +135,10 @@ public class Neuron extends Provider<INeuron> {
 
 
     public void removeInput(Document doc, int begin, int end, Integer rid, InterprNode o) {
+        ProcessingListener pl = m.processingListener;
+        if (pl != ProcessingListener.NONE) {
+            pl.onRemoveInput(doc, this, begin, end, rid, o);
+        }
         get().removeInput(doc, begin, end, rid, o);
     }
 
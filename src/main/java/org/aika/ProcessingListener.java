@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika;
+
+
+import org.aika.corpus.Document;
+import org.aika.corpus.InterprNode;
+import org.aika.lattice.AndNode;
+import org.aika.lattice.Node;
+import org.aika.lattice.OrNode;
+
+/**
+ *
+ * The processing listener is notified about the phases of the processing of a document and about the suspension and
+ * reactivation of neurons and logic nodes. Each callback receives the elapsed time in nanoseconds and the counts of
+ * the phase. The listener is registered in the field {@code Model.processingListener}.
+ *
+ * <p>If no listener is registered, the default {@code NONE} is used and no timestamps are taken at all. The callbacks
+ * are invoked by the threads that process the documents, so an implementation needs to be thread-safe if the model
+ * is used by several threads.
+ *
+ * @author Lukas Molzberger
+ */
+public interface ProcessingListener {
+
+    ProcessingListener NONE = new ProcessingListener() {};
+
+
+    /**
+     * Called after a document has been created ({@code Model.createDocument}).
+     */
+    default void onCreateDocument(Document doc) {}
+
+    /**
+     * Called before an input activation is added to a document ({@code Neuron.addInput}).
+     */
+    default void onAddInput(Document doc, Neuron n, int begin, int end, Integer rid, InterprNode o, double value) {}
+
+    /**
+     * Called before an input activation is removed from a document ({@code Neuron.removeInput}).
+     */
+    default void onRemoveInput(Document doc, Neuron n, int begin, int end, Integer rid, InterprNode o) {}
+
+    /**
+     * Called after an input activation has been propagated through the network ({@code Document.propagate}).
+     */
+    default void onPropagate(Document doc, long nanos) {}
+
+    /**
+     * Called after the processing of a document ({@code Document.process}), which includes the search for the best
+     * interpretation.
+     */
+    default void onProcess(Document doc, long nanos) {}
+
+    /**
+     * Called after the queued logic nodes have been processed ({@code Document.Queue.processChanges}).
+     *
+     * @param nodes The number of processed logic nodes.
+     */
+    default void onProcessChanges(Document doc, int nodes, long nanos) {}
+
+    /**
+     * Called after the upper bound queue has been processed ({@code Document.UpperBoundQueue.process}).
+     *
+     * @param activations The number of activations whose bounds have been recomputed.
+     */
+    default void onUpperBoundQueue(Document doc, int activations, long nanos) {}
+
+    /**
+     * Called after the search for the best interpretation ({@code SearchNode.computeBestInterpretation}).
+     *
+     * @param steps The number of search steps.
+     * @param depth The maximum depth of the search tree.
+     * @param cacheHits The number of search steps that were decided by a cached decision.
+     */
+    default void onSearch(Document doc, int steps, int depth, int cacheHits, long nanos) {}
+
+    /**
+     * Called after the training of the model on a document ({@code Document.train}).
+     */
+    default void onTrain(Document doc, long nanos) {}
+
+    /**
+     * Called by {@code Document.clearActivations} at the end of the lifecycle of a document.
+     *
+     * @param nanos The time since the creation of the document.
+     */
+    default void onDocument(Document doc, long nanos) {}
+
+    /**
+     * Called after a neuron or a logic node has been suspended.
+     *
+     * @param bytes The number of bytes that have been stored, or 0 if the node has not been modified.
+     */
+    default void onSuspend(Provider<?> p, int bytes, long nanos) {}
+
+    /**
+     * Called after a neuron or a logic node has been reactivated.
+     *
+     * @param bytes The number of bytes that have been retrieved.
+     */
+    default void onReactivate(Provider<?> p, int bytes, long nanos) {}
+
+    /**
+     * Called after a new and-node has been added to the pattern lattice.
+     */
+    default void onAndNodeCreated(AndNode n) {}
+
+    /**
+     * Called after the logic node {@code in} has been added as input to the or-node {@code n}.
+     */
+    default void onOrNodeInput(OrNode n, Node in) {}
+
+    /**
+     * Called if a thread had to wait for a {@code ReadWriteLock}. This callback is registered globally in
+     * {@code ReadWriteLock.waitListener}, since the locks do not belong to a model.
+     *
+     * @param write Whether the thread waited for the write lock.
+     */
+    default void onLockWait(boolean write, long nanos) {}
+}
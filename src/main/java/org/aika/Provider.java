@@ -41,6 +41,7 @@ public class Provider<T extends AbstractNode> implements Comparable<Provider<?>>
 
     public void setModified() {
         n.modified = true;
+        n.updateEstimatedBytes();
     }
 
 
@@ -67,9 +68,14 @@ public class Provider<T extends AbstractNode> implements Comparable<Provider<?>>
 
         assert m.suspensionHook != null;
 
+        ProcessingListener pl = m.processingListener;
+        long t = pl != ProcessingListener.NONE ? System.nanoTime() : 0;
+        int bytes = 0;
+
         n.suspend();
 
         m.unregister(this);
+        n.clearEstimatedBytes();
 
         if (n.modified) {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -82,13 +88,24 @@ public class Provider<T extends AbstractNode> implements Comparable<Provider<?>>
                 throw new RuntimeException(e);
             }
 
-            m.suspensionHook.store(id, baos.toByteArray());
+            byte[] data = baos.toByteArray();
+            bytes = data.length;
+            m.suspensionHook.store(id, data);
         }
         n = null;
+
+        m.metrics.suspensions.increment();
+
+        if(pl != ProcessingListener.NONE) {
+            pl.onSuspend(this, bytes, System.nanoTime() - t);
+        }
     }
 
 
     public void discard() {
+        if (n != null) {
+            n.clearEstimatedBytes();
+        }
         n = null;
     }
 
@@ -96,6 +113,9 @@ public class Provider<T extends AbstractNode> implements Comparable<Provider<?>>
     private void reactivate() {
         assert m.suspensionHook != null;
 
+        ProcessingListener pl = m.processingListener;
+        long t = pl != ProcessingListener.NONE ? System.nanoTime() : 0;
+
         byte[] data = m.suspensionHook.retrieve(id);
         ByteArrayInputStream bais = new ByteArrayInputStream(data);
         try (
@@ -109,6 +129,13 @@ public class Provider<T extends AbstractNode> implements Comparable<Provider<?>>
         n.reactivate();
 
         m.register(this);
+        n.updateEstimatedBytes();
+
+        m.metrics.reactivations.increment();
+
+        if(pl != ProcessingListener.NONE) {
+            pl.onReactivate(this, data.length, System.nanoTime() - t);
+        }
     }
 
 
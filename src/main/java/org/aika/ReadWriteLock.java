@@ -16,12 +16,21 @@
  */
 package org.aika;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
+ * The time a thread actually has to wait for a lock is accumulated in the global counters {@code WAIT_COUNT} and
+ * {@code WAIT_NANOS} and reported to the {@code waitListener}. Uncontended lock acquisitions are not measured.
  *
  * @author Lukas Molzberger
  */
 public class ReadWriteLock {
 
+    public static final LongAdder WAIT_COUNT = new LongAdder();
+    public static final LongAdder WAIT_NANOS = new LongAdder();
+
+    public static volatile ProcessingListener waitListener = ProcessingListener.NONE;
+
     private int readers = 0;
     private int writers = 0;
     private int writeRequests = 0;
@@ -35,8 +44,12 @@ public class ReadWriteLock {
         try {
             synchronized (this) {
                 writeRequests++;
-                while (readers > 0) {
-                    wait();
+                if (readers > 0) {
+                    long t = System.nanoTime();
+                    while (readers > 0) {
+                        wait();
+                    }
+                    recordWait(true, t);
                 }
             }
 
@@ -44,8 +57,12 @@ public class ReadWriteLock {
             synchronized (writeLock) {
                 if(writerThreadId != tid) {
                     waitForWriteLock++;
-                    while (writers > 0) {
-                        writeLock.wait();
+                    if (writers > 0) {
+                        long t = System.nanoTime();
+                        while (writers > 0) {
+                            writeLock.wait();
+                        }
+                        recordWait(true, t);
                     }
                     waitForWriteLock--;
                     writerThreadId = tid;
@@ -61,8 +78,12 @@ public class ReadWriteLock {
     public synchronized void acquireReadLock() {
         try {
             waitForReadLock++;
-            while (writeRequests > 0) {
-                wait();
+            if (writeRequests > 0) {
+                long t = System.nanoTime();
+                while (writeRequests > 0) {
+                    wait();
+                }
+                recordWait(false, t);
             }
             waitForReadLock--;
             readers++;
@@ -97,4 +118,12 @@ public class ReadWriteLock {
             notifyAll();
         }
     }
-}
\ No newline at end of file
+
+
+    private static void recordWait(boolean write, long startTime) {
+        long nanos = System.nanoTime() - startTime;
+        WAIT_COUNT.increment();
+        WAIT_NANOS.add(nanos);
+        waitListener.onLockWait(write, nanos);
+    }
+}
@@ -17,14 +17,139 @@
 package org.aika;
 
 
+import org.aika.corpus.Document;
+
 import java.util.*;
 
+/**
+ * The suspension manager evicts neurons and logic nodes from memory if the estimated footprint of the model
+ * ({@code Model.getEstimatedBytes}) exceeds {@code maxEstimatedBytes}. The least recently used nodes, that is the
+ * nodes with the lowest {@code lastUsedDocumentId}, are suspended first until the footprint is below
+ * {@code targetRatio * maxEstimatedBytes}. Nodes that may have been used by a document that is still being processed
+ * are never suspended.
+ *
+ * <p>The budget is checked by {@code Document.clearActivations} if the model has a suspension hook. If an eviction
+ * could not reach the target, for instance because most nodes are used by documents that are still being processed,
+ * the following checks are skipped until either {@code backoffDocuments} documents have been cleared or the
+ * footprint has grown by {@code backoffRatio * maxEstimatedBytes}. This avoids a full scan of the loaded nodes for
+ * every document while the model stays over budget.
+ *
+ * @author Lukas Molzberger
+ */
 public class SuspensionManager {
 
+    public static long MAX_ESTIMATED_BYTES = Long.MAX_VALUE;
+    public static double TARGET_RATIO = 0.8;
+    public static int BACKOFF_DOCUMENTS = 100;
+    public static double BACKOFF_RATIO = 0.05;
+
+    public Model m;
+
+    public long maxEstimatedBytes = MAX_ESTIMATED_BYTES;
+    public double targetRatio = TARGET_RATIO;
+    public int backoffDocuments = BACKOFF_DOCUMENTS;
+    public double backoffRatio = BACKOFF_RATIO;
+
+    private boolean backoff = false;
+    private int skippedChecks;
+    private long bytesAtFailure;
+
+
+    public SuspensionManager(Model m) {
+        this.m = m;
+    }
+
+
+    /**
+     * Suspends the least recently used nodes if the estimated footprint of the model exceeds the budget.
+     *
+     * @return The number of suspended nodes.
+     */
+    public int checkBudget() {
+        if (maxEstimatedBytes == Long.MAX_VALUE) return 0;
+
+        long bytes = m.getEstimatedBytes();
+        if (bytes <= maxEstimatedBytes) return 0;
+
+        synchronized (this) {
+            if (backoff && ++skippedChecks < backoffDocuments && bytes - bytesAtFailure < backoffRatio * maxEstimatedBytes) {
+                return 0;
+            }
+
+            long targetBytes = (long) (targetRatio * maxEstimatedBytes);
+            int count = evict(targetBytes);
+
+            bytes = m.getEstimatedBytes();
+            backoff = bytes > targetBytes;
+            skippedChecks = 0;
+            bytesAtFailure = bytes;
+            return count;
+        }
+    }
+
+
+    /**
+     * Suspends the least recently used nodes until the estimated footprint of the model is below {@code targetBytes}.
+     *
+     * @return The number of suspended nodes.
+     */
+    public synchronized int evict(long targetBytes) {
+        int minDocId = getMinActiveDocumentId();
+
+        List<Provider<? extends AbstractNode>> candidates = new ArrayList<>();
+        synchronized (m.activeProviders) {
+            candidates.addAll(m.activeProviders.values());
+        }
+
+        List<Candidate> tmp = new ArrayList<>(candidates.size());
+        for (Provider<? extends AbstractNode> p: candidates) {
+            AbstractNode n = p.getIfNotSuspended();
+            if (n != null && n.lastUsedDocumentId < minDocId) {
+                tmp.add(new Candidate(p, n.lastUsedDocumentId));
+            }
+        }
+        Collections.sort(tmp);
+
+        int count = 0;
+        for (Candidate c: tmp) {
+            if (m.getEstimatedBytes() <= targetBytes) break;
+
+            AbstractNode n = c.p.getIfNotSuspended();
+            if (n != null && n.lastUsedDocumentId < minDocId) {
+                c.p.suspend();
+                count++;
+            }
+        }
+        return count;
+    }
+
 
+    private int getMinActiveDocumentId() {
+        int minDocId = Integer.MAX_VALUE;
+        for (Document doc: m.docs) {
+            if (doc != null) {
+                minDocId = Math.min(minDocId, doc.id);
+            }
+        }
+        return minDocId;
+    }
 
 
+    private static class Candidate implements Comparable<Candidate> {
+        Provider<? extends AbstractNode> p;
+        int lastUsedDocumentId;
 
+        Candidate(Provider<? extends AbstractNode> p, int lastUsedDocumentId) {
+            this.p = p;
+            this.lastUsedDocumentId = lastUsedDocumentId;
+        }
 
 
+        @Override
+        public int compareTo(Candidate c) {
+            int r = Integer.compare(lastUsedDocumentId, c.lastUsedDocumentId);
+            if (r != 0) return r;
+            return Integer.compare(p.id, c.p.id);
+        }
+    }
 }
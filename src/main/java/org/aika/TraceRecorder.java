@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika;
+
+
+import org.aika.corpus.Document;
+import org.aika.corpus.InterprNode;
+import org.aika.lattice.AndNode;
+import org.aika.lattice.Node;
+import org.aika.lattice.OrNode;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the input activations and the calls of {@code process} and {@code train} of each document into a compact
+ * binary trace, which can be replayed with the {@code TraceReplayer}.
+ *
+ * <p>The recorder is installed with {@code TraceRecorder.install(m, out, minDocumentLatency)}. All callbacks are
+ * forwarded to the previously registered listener. The events of a document are buffered until
+ * {@code clearActivations} is called. Then the document is written to the trace as a whole if its latency is at
+ * least {@code minDocumentLatency}. Setting this threshold to the latency SLO turns every slow document into a
+ * replayable benchmark. Since there is at most one document per thread slot, the buffered events of a document that
+ * is never cleared are discarded when the next document of the same thread slot is created.
+ *
+ * <p>The trace starts with a header and contains a sequence of documents. Each document consists of its content
+ * followed by the records {@code ADD_INPUT}, {@code REMOVE_INPUT}, {@code PROCESS} and {@code TRAIN} and is
+ * terminated by {@code CLEAR}. Integers are written as variable length integers. Neurons are referenced by their
+ * provider id, so the trace can only be replayed against a snapshot of the same model. Interpretation nodes are
+ * referenced by their primitive id; other interpretation nodes than the bottom node and primitive nodes are not
+ * supported.
+ *
+ * @author Lukas Molzberger
+ */
+public class TraceRecorder implements ProcessingListener {
+
+    static final int MAGIC = 0x41494b54;
+    static final int VERSION = 1;
+
+    static final int DOCUMENT = 1;
+    static final int ADD_INPUT = 2;
+    static final int REMOVE_INPUT = 3;
+    static final int PROCESS = 4;
+    static final int TRAIN = 5;
+    static final int CLEAR = 6;
+
+    static final int FLAG_RID = 1;
+    static final int FLAG_VALUE = 2;
+
+    static final int BOTTOM = -1;
+    static final int UNSUPPORTED = -2;
+
+    public long minDocumentLatency;
+
+    public final LongAdder recordedDocuments = new LongAdder();
+    public final LongAdder skippedDocuments = new LongAdder();
+
+    private final ProcessingListener delegate;
+    private final DataOutputStream out;
+
+    private final Map<Integer, DocumentTrace> traces = new ConcurrentHashMap<>();
+
+
+    /**
+     * @param delegate The listener to which all callbacks are forwarded.
+     * @param out The output stream of the trace.
+     * @param minDocumentLatency The latency in nanoseconds from which on a document is written to the trace.
+     */
+    public TraceRecorder(ProcessingListener delegate, OutputStream out, long minDocumentLatency) throws IOException {
+        this.delegate = delegate;
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.minDocumentLatency = minDocumentLatency;
+
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+    }
+
+
+    /**
+     * Registers a new recorder that records all documents in the model, forwarding to the current listener of the
+     * model.
+     */
+    public static TraceRecorder install(Model m, OutputStream out) throws IOException {
+        return install(m, out, 0);
+    }
+
+
+    /**
+     * Registers a new recorder in the model, forwarding to the current listener of the model.
+     */
+    public static TraceRecorder install(Model m, OutputStream out, long minDocumentLatency) throws IOException {
+        TraceRecorder tr = new TraceRecorder(m.processingListener, out, minDocumentLatency);
+        m.processingListener = tr;
+        return tr;
+    }
+
+
+    @Override
+    public void onCreateDocument(Document doc) {
+        DocumentTrace dt = new DocumentTrace(doc.id);
+        try {
+            dt.out.writeByte(DOCUMENT);
+            String content = doc.getContent();
+            if (content == null) {
+                writeVarInt(dt.out, -1);
+            } else {
+                byte[] b = content.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(dt.out, b.length);
+                dt.out.write(b);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        traces.put(doc.threadId, dt);
+        delegate.onCreateDocument(doc);
+    }
+
+
+    @Override
+    public void onAddInput(Document doc, Neuron n, int begin, int end, Integer rid, InterprNode o, double value) {
+        DocumentTrace dt = getTrace(doc);
+        if (dt != null) {
+            try {
+                writeInput(dt.out, ADD_INPUT, doc, n, begin, end, rid, o, value);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        delegate.onAddInput(doc, n, begin, end, rid, o, value);
+    }
+
+
+    @Override
+    public void onRemoveInput(Document doc, Neuron n, int begin, int end, Integer rid, InterprNode o) {
+        DocumentTrace dt = getTrace(doc);
+        if (dt != null) {
+            try {
+                writeInput(dt.out, REMOVE_INPUT, doc, n, begin, end, rid, o, 1.0);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        delegate.onRemoveInput(doc, n, begin, end, rid, o);
+    }
+
+
+    @Override
+    public void onProcess(Document doc, long nanos) {
+        writeCall(doc, PROCESS);
+        delegate.onProcess(doc, nanos);
+    }
+
+
+    @Override
+    public void onTrain(Document doc, long nanos) {
+        writeCall(doc, TRAIN);
+        delegate.onTrain(doc, nanos);
+    }
+
+
+    @Override
+    public void onDocument(Document doc, long nanos) {
+        DocumentTrace dt = getTrace(doc);
+        if (dt != null && traces.remove(doc.threadId, dt)) {
+            if (nanos < minDocumentLatency) {
+                skippedDocuments.increment();
+            } else {
+                writeDocument(dt);
+            }
+        }
+        delegate.onDocument(doc, nanos);
+    }
+
+
+    @Override
+    public void onPropagate(Document doc, long nanos) {
+        delegate.onPropagate(doc, nanos);
+    }
+
+
+    @Override
+    public void onProcessChanges(Document doc, int nodes, long nanos) {
+        delegate.onProcessChanges(doc, nodes, nanos);
+    }
+
+
+    @Override
+    public void onUpperBoundQueue(Document doc, int activations, long nanos) {
+        delegate.onUpperBoundQueue(doc, activations, nanos);
+    }
+
+
+    @Override
+    public void onSearch(Document doc, int steps, int depth, int cacheHits, long nanos) {
+        delegate.onSearch(doc, steps, depth, cacheHits, nanos);
+    }
+
+
+    @Override
+    public void onSuspend(Provider<?> p, int bytes, long nanos) {
+        delegate.onSuspend(p, bytes, nanos);
+    }
+
+
+    @Override
+    public void onReactivate(Provider<?> p, int bytes, long nanos) {
+        delegate.onReactivate(p, bytes, nanos);
+    }
+
+
+    @Override
+    public void onAndNodeCreated(AndNode n) {
+        delegate.onAndNodeCreated(n);
+    }
+
+
+    @Override
+    public void onOrNodeInput(OrNode n, Node in) {
+        delegate.onOrNodeInput(n, in);
+    }
+
+
+    @Override
+    public void onLockWait(boolean write, long nanos) {
+        delegate.onLockWait(write, nanos);
+    }
+
+
+    /**
+     * Flushes the recorded documents to the output stream.
+     */
+    public void flush() throws IOException {
+        synchronized (out) {
+            out.flush();
+        }
+    }
+
+
+    public void close() throws IOException {
+        synchronized (out) {
+            out.close();
+        }
+    }
+
+
+    private DocumentTrace getTrace(Document doc) {
+        DocumentTrace dt = traces.get(doc.threadId);
+        return dt != null && dt.docId == doc.id ? dt : null;
+    }
+
+
+    private void writeDocument(DocumentTrace dt) {
+        try {
+            dt.out.writeByte(CLEAR);
+            dt.out.flush();
+            synchronized (out) {
+                dt.buffer.writeTo(out);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        recordedDocuments.increment();
+    }
+
+
+    private void writeCall(Document doc, int type) {
+        DocumentTrace dt = getTrace(doc);
+        if (dt == null) return;
+
+        try {
+            dt.out.writeByte(type);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private static void writeInput(DataOutput out, int type, Document doc, Neuron n, int begin, int end, Integer rid, InterprNode o, double value) throws IOException {
+        out.writeByte(type);
+        writeVarInt(out, n.id);
+        writeVarInt(out, begin);
+        writeVarInt(out, end);
+        writeVarInt(out, o == doc.bottom ? BOTTOM : (o.primId >= 0 ? o.primId : UNSUPPORTED));
+        out.writeByte((rid != null ? FLAG_RID : 0) | (value != 1.0 ? FLAG_VALUE : 0));
+        if (rid != null) {
+            writeVarInt(out, rid);
+        }
+        if (value != 1.0) {
+            out.writeDouble(value);
+        }
+    }
+
+
+    /**
+     * Writes a zigzag encoded variable length integer, using one byte for values between -64 and 63.
+     */
+    static void writeVarInt(DataOutput out, int v) throws IOException {
+        int z = (v << 1) ^ (v >> 31);
+        while ((z & ~0x7F) != 0) {
+            out.writeByte((z & 0x7F) | 0x80);
+            z >>>= 7;
+        }
+        out.writeByte(z);
+    }
+
+
+    static int readVarInt(DataInput in) throws IOException {
+        int z = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            z |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (z >>> 1) ^ -(z & 1);
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+
+    private static class DocumentTrace {
+        int docId;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+
+        DocumentTrace(int docId) {
+            this.docId = docId;
+        }
+    }
+}
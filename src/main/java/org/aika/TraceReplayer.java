@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika;
+
+
+import org.aika.corpus.Document;
+import org.aika.corpus.InterprNode;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.aika.TraceRecorder.*;
+
+/**
+ * Replays a trace written by the {@code TraceRecorder} against a model. All documents are replayed sequentially by
+ * the calling thread using the thread id 0, so the replay is deterministic as long as the model is in the same state.
+ * Since replaying the {@code train} calls modifies the model, a fresh copy of the model snapshot should be used for
+ * each replay, or {@code replayTraining} should be disabled.
+ *
+ * <p>The records of each document are decoded before the document is replayed. The replayer then measures the wall
+ * clock time and the number of bytes allocated by the replaying thread for the calls of the model only, from
+ * {@code createDocument} to {@code clearActivations}. The {@code Result} of a replay can be written to a file, so that the results of two builds can be compared
+ * with {@code compare}.
+ *
+ * @author Lukas Molzberger
+ */
+public class TraceReplayer {
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    public Model m;
+    public boolean replayTraining = true;
+
+
+    public TraceReplayer(Model m) {
+        this.m = m;
+    }
+
+
+    public Result replay(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an Aika trace.");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported trace version: " + version);
+        }
+
+        Result result = new Result();
+        int type;
+        while ((type = in.read()) != -1) {
+            if (type != DOCUMENT) {
+                throw new IOException("Unexpected record type: " + type);
+            }
+            result.add(replayDocument(in, result.documents.size()));
+        }
+        return result;
+    }
+
+
+    private DocumentResult replayDocument(DataInput in, int index) throws IOException {
+        String content = null;
+        int length = readVarInt(in);
+        if (length >= 0) {
+            byte[] b = new byte[length];
+            in.readFully(b);
+            content = new String(b, StandardCharsets.UTF_8);
+        }
+
+        List<Record> records = new ArrayList<>();
+        int type;
+        while ((type = in.readUnsignedByte()) != CLEAR) {
+            switch (type) {
+                case ADD_INPUT:
+                case REMOVE_INPUT:
+                    records.add(readInput(in, type));
+                    break;
+                case PROCESS:
+                case TRAIN:
+                    records.add(new Record(type));
+                    break;
+                default:
+                    throw new IOException("Unexpected record type: " + type);
+            }
+        }
+
+        long allocated = getAllocatedBytes();
+        long t = System.nanoTime();
+
+        Document doc = m.createDocument(content, 0);
+        List<InterprNode> primitives = new ArrayList<>();
+
+        for (Record r : records) {
+            switch (r.type) {
+                case ADD_INPUT:
+                    r.n.addInput(doc, r.begin, r.end, r.rid, getInterprNode(doc, r.primId, primitives), r.value);
+                    break;
+                case REMOVE_INPUT:
+                    r.n.removeInput(doc, r.begin, r.end, r.rid, getInterprNode(doc, r.primId, primitives));
+                    break;
+                case PROCESS:
+                    doc.process();
+                    break;
+                case TRAIN:
+                    if (replayTraining) {
+                        doc.train();
+                    }
+                    break;
+            }
+        }
+
+        DocumentResult dr = new DocumentResult(index, doc);
+        doc.clearActivations();
+        dr.nanos = System.nanoTime() - t;
+        dr.allocatedBytes = allocated >= 0 ? getAllocatedBytes() - allocated : -1;
+        return dr;
+    }
+
+
+    private Record readInput(DataInput in, int type) throws IOException {
+        Record r = new Record(type);
+        r.n = m.lookupNeuron(readVarInt(in));
+        r.begin = readVarInt(in);
+        r.end = readVarInt(in);
+        r.primId = readVarInt(in);
+        int flags = in.readUnsignedByte();
+        r.rid = (flags & FLAG_RID) != 0 ? readVarInt(in) : null;
+        r.value = (flags & FLAG_VALUE) != 0 ? in.readDouble() : 1.0;
+
+        if (r.primId == UNSUPPORTED) {
+            throw new IOException("The trace contains an unsupported interpretation node.");
+        }
+        return r;
+    }
+
+
+    private static InterprNode getInterprNode(Document doc, int primId, List<InterprNode> primitives) {
+        if (primId == BOTTOM) {
+            return doc.bottom;
+        }
+        while (primitives.size() <= primId) {
+            primitives.add(InterprNode.addPrimitive(doc));
+        }
+        return primitives.get(primId);
+    }
+
+
+    /**
+     * Returns the number of bytes allocated by the current thread or -1 if this is not supported by the JVM.
+     */
+    private static long getAllocatedBytes() {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREAD_BEAN).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+
+    /**
+     * A decoded record of a document.
+     */
+    private static class Record {
+        int type;
+        Neuron n;
+        int begin;
+        int end;
+        Integer rid;
+        int primId;
+        double value;
+
+        Record(int type) {
+            this.type = type;
+        }
+    }
+
+
+    /**
+     * Compares the replay of the same trace by a baseline and a candidate build.
+     */
+    public static Comparison compare(Result baseline, Result candidate) {
+        return new Comparison(baseline, candidate);
+    }
+
+
+    /**
+     * The measurements of a single replayed document.
+     */
+    public static class DocumentResult {
+        public int index;
+        public int length;
+        public int activations;
+        public int searchSteps;
+        public long nanos;
+        public long allocatedBytes;
+
+
+        DocumentResult() {}
+
+
+        DocumentResult(int index, Document doc) {
+            this.index = index;
+            length = doc.getContent() != null ? doc.length() : 0;
+            activations = doc.activationIdCounter;
+            searchSteps = doc.searchSteps;
+        }
+
+
+        void write(DataOutput out) throws IOException {
+            out.writeInt(index);
+            out.writeInt(length);
+            out.writeInt(activations);
+            out.writeInt(searchSteps);
+            out.writeLong(nanos);
+            out.writeLong(allocatedBytes);
+        }
+
+
+        static DocumentResult read(DataInput in) throws IOException {
+            DocumentResult dr = new DocumentResult();
+            dr.index = in.readInt();
+            dr.length = in.readInt();
+            dr.activations = in.readInt();
+            dr.searchSteps = in.readInt();
+            dr.nanos = in.readLong();
+            dr.allocatedBytes = in.readLong();
+            return dr;
+        }
+
+
+        public String toString() {
+            return "Doc:" + index +
+                    " Length:" + length +
+                    " Activations:" + activations +
+                    " Search steps:" + searchSteps +
+                    " Time:" + (nanos / 1000) + "us" +
+                    " Allocated:" + allocatedBytes;
+        }
+    }
+
+
+    /**
+     * The measurements of a replayed trace.
+     */
+    public static class Result {
+        public final List<DocumentResult> documents = new ArrayList<>();
+        public final Histogram latency = new Histogram();
+        public long totalNanos;
+        public long totalAllocatedBytes;
+
+
+        void add(DocumentResult dr) {
+            documents.add(dr);
+            latency.record(dr.nanos);
+            totalNanos += dr.nanos;
+            totalAllocatedBytes += dr.allocatedBytes;
+        }
+
+
+        public void write(DataOutput out) throws IOException {
+            out.writeInt(documents.size());
+            for (DocumentResult dr : documents) {
+                dr.write(out);
+            }
+        }
+
+
+        public static Result read(DataInput in) throws IOException {
+            Result r = new Result();
+            int s = in.readInt();
+            for (int i = 0; i < s; i++) {
+                r.add(DocumentResult.read(in));
+            }
+            return r;
+        }
+
+
+        public String toString() {
+            return "Documents:" + documents.size() +
+                    " Time:" + (totalNanos / 1000) + "us" +
+                    " Allocated:" + totalAllocatedBytes + "\n" +
+                    "Latency (ns): " + latency;
+        }
+    }
+
+
+    /**
+     * The differences in time and allocation between the replay of a baseline and a candidate build. A ratio above
+     * 1.0 means that the candidate is slower or allocates more. A document whose number of activations differs
+     * between both replays indicates that the builds do not process the trace equally.
+     */
+    public static class Comparison {
+        public final Result baseline;
+        public final Result candidate;
+
+        public final double timeRatio;
+        public final double allocationRatio;
+
+        /**
+         * The documents ordered by decreasing time ratio.
+         */
+        public final List<DocumentComparison> documents = new ArrayList<>();
+
+
+        Comparison(Result baseline, Result candidate) {
+            if (baseline.documents.size() != candidate.documents.size()) {
+                throw new IllegalArgumentException("The results belong to different traces.");
+            }
+            this.baseline = baseline;
+            this.candidate = candidate;
+
+            timeRatio = ratio(candidate.totalNanos, baseline.totalNanos);
+            allocationRatio = ratio(candidate.totalAllocatedBytes, baseline.totalAllocatedBytes);
+
+            for (int i = 0; i < baseline.documents.size(); i++) {
+                documents.add(new DocumentComparison(baseline.documents.get(i), candidate.documents.get(i)));
+            }
+            Collections.sort(documents, Comparator.comparingDouble((DocumentComparison dc) -> dc.timeRatio).reversed());
+        }
+
+
+        public List<DocumentComparison> getDivergentDocuments() {
+            List<DocumentComparison> results = new ArrayList<>();
+            for (DocumentComparison dc : documents) {
+                if (dc.baseline.activations != dc.candidate.activations) {
+                    results.add(dc);
+                }
+            }
+            return results;
+        }
+
+
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Time ratio:" + String.format("%.3f", timeRatio));
+            sb.append(" Allocation ratio:" + String.format("%.3f", allocationRatio));
+            sb.append(" Divergent documents:" + getDivergentDocuments().size() + "\n");
+            sb.append("p50 (ns): " + baseline.latency.getValueAtPercentile(50.0) + " -> " + candidate.latency.getValueAtPercentile(50.0) + "\n");
+            sb.append("p99 (ns): " + baseline.latency.getValueAtPercentile(99.0) + " -> " + candidate.latency.getValueAtPercentile(99.0) + "\n");
+            for (int i = 0; i < Math.min(10, documents.size()); i++) {
+                sb.append(documents.get(i) + "\n");
+            }
+            return sb.toString();
+        }
+    }
+
+
+    public static class DocumentComparison {
+        public final DocumentResult baseline;
+        public final DocumentResult candidate;
+        public final double timeRatio;
+        public final double allocationRatio;
+
+
+        DocumentComparison(DocumentResult baseline, DocumentResult candidate) {
+            this.baseline = baseline;
+            this.candidate = candidate;
+            timeRatio = ratio(candidate.nanos, baseline.nanos);
+            allocationRatio = ratio(candidate.allocatedBytes, baseline.allocatedBytes);
+        }
+
+
+        public String toString() {
+            return "Doc:" + baseline.index +
+                    " Time:" + (baseline.nanos / 1000) + "us -> " + (candidate.nanos / 1000) + "us" +
+                    " (" + String.format("%.3f", timeRatio) + ")" +
+                    " Allocated:" + baseline.allocatedBytes + " -> " + candidate.allocatedBytes +
+                    " (" + String.format("%.3f", allocationRatio) + ")" +
+                    (baseline.activations != candidate.activations ? " DIVERGENT" : "");
+        }
+    }
+
+
+    private static double ratio(long a, long b) {
+        return b > 0 ? (double) a / b : (a > 0 ? Double.POSITIVE_INFINITY : 1.0);
+    }
+}
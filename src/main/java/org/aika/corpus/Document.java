@@ -19,6 +19,7 @@ package org.aika.corpus;
 
 import org.aika.AbstractNode;
 import org.aika.Model;
+import org.aika.ProcessingListener;
 import org.aika.Provider;
 import org.aika.Utils;
 import org.aika.lattice.*;
@@ -27,6 +28,7 @@ import org.aika.neuron.Activation;
 import org.aika.neuron.Activation.State;
 import org.aika.neuron.INeuron;
 import org.aika.neuron.INeuron.NormWeight;
+import org.aika.neuron.StateKernel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +50,8 @@ public class Document implements Comparable<Document> {
     public final int id = docIdCounter.addAndGet(1);
     public static AtomicInteger docIdCounter = new AtomicInteger(0);
 
+    public final long createdAt = System.nanoTime();
+
     public int activationIdCounter = 0;
 
     private static final Logger log = LoggerFactory.getLogger(Document.class);
@@ -57,12 +61,28 @@ public class Document implements Comparable<Document> {
 
     public static int CLEANUP_INTERVAL = 50;
 
+    /**
+     * The default limits of the per-document guards. If one of the limits is exceeded, the lattice is not expanded
+     * any further and the document is marked as truncated.
+     */
+    public static int MAX_ACTIVATIONS = Integer.MAX_VALUE;
+    public static int MAX_INTERPR_NODES = Integer.MAX_VALUE;
+    public static int MAX_AND_JOINS_PER_NODE = Integer.MAX_VALUE;
+    public static long MAX_ESTIMATED_BYTES = Long.MAX_VALUE;
+
     public static int MAX_ROUND = 20;
 
     private String content;
 
     public int visitedCounter = 1;
     public int interprIdCounter = 1;
+    public int numberOfInterprNodes = 0;
+
+    /**
+     * The estimated retained size in bytes of the activations, synapse activations and interpretation nodes of this
+     * document. See {@code Footprint}.
+     */
+    public long estimatedBytes = 0;
     public int searchNodeIdCounter = 0;
 
     public InterprNode bottom = new InterprNode(this, -1, 0, 0);
@@ -74,11 +94,53 @@ public class Document implements Comparable<Document> {
     public int threadId;
     public boolean interrupted;
 
+    /**
+     * The number of search steps of the last call of {@code process}, the maximum depth of the search tree and how
+     * often each {@code SearchNode.DebugState} occurred. The ratio of the {@code CACHED} to the {@code EXPLORE} steps is the hit rate of the candidate caches.
+     */
+    public int searchSteps;
+    public int searchDepth;
+    public int[] searchStateCounts = new int[SearchNode.DebugState.values().length];
+
+    /**
+     * The maximum number of queued logic nodes and activations during the processing of this document.
+     */
+    public int maxQueueDepth;
+    public int maxUpperBoundQueueDepth;
+
     public Queue queue = new Queue();
     public ValueQueue vQueue = new ValueQueue();
     public UpperBoundQueue ubQueue = new UpperBoundQueue();
     public BackPropagationQueue bQueue = new BackPropagationQueue();
 
+    public StateKernel stateKernel = new StateKernel();
+
+    public int maxActivations = MAX_ACTIVATIONS;
+    public int maxInterprNodes = MAX_INTERPR_NODES;
+    public int maxAndJoinsPerNode = MAX_AND_JOINS_PER_NODE;
+    public long maxEstimatedBytes = MAX_ESTIMATED_BYTES;
+
+    /**
+     * The number of and-joins of each and-node within this document, keyed by the provider id of the node.
+     */
+    private Map<Integer, int[]> andJoins = new HashMap<>();
+
+    /**
+     * Is set if one of the guards has been tripped. The activations of a truncated document are incomplete.
+     */
+    public boolean truncated = false;
+
+    /**
+     * The number of activations that have a positive upper bound, but are not propagated into the lattice since
+     * their upper bound is below the minimum upper bound of the approximate mode.
+     */
+    public int prunedActivations = 0;
+
+    /**
+     * Collects the activations whose propagation to the next level is deferred while a level batch is registered.
+     */
+    public List<NodeActivation> pendingApply;
+
 
     public TreeSet<Node> activatedNodes = new TreeSet<>();
     public TreeSet<Node> activatedNodesForTraining = new TreeSet<>();
@@ -95,8 +157,6 @@ public class Document implements Comparable<Document> {
     });
     public TreeSet<Node> addedNodes = new TreeSet<>();
 
-    public static int numberOfPositionsDelta;
-
     public int debugActId = -1;
     public double debugActWeight = 0.0;
     public String debugOutput = "";
@@ -162,11 +222,18 @@ public class Document implements Comparable<Document> {
 
 
     public void propagate() {
+        ProcessingListener pl = m.processingListener;
+        long t = pl != ProcessingListener.NONE ? System.nanoTime() : 0;
+
         boolean flag = true;
         while(flag) {
             queue.processChanges();
             flag = ubQueue.process();
         }
+
+        if(pl != ProcessingListener.NONE) {
+            pl.onPropagate(this, System.nanoTime() - t);
+        }
     }
 
 
@@ -175,12 +242,22 @@ public class Document implements Comparable<Document> {
      * network. It performs the search for the best interpretation.
      */
     public void process() {
+        ProcessingListener pl = m.processingListener;
+        long t = pl != ProcessingListener.NONE ? System.nanoTime() : 0;
+
         for(Activation act: inputNeuronActivations) {
             vQueue.propagateWeight(0, act);
         }
         interrupted = false;
+        searchSteps = 0;
+        searchDepth = 0;
+        Arrays.fill(searchStateCounts, 0);
         SearchNode root = new SearchNode(this, null, null, null, -1);
         root.computeBestInterpretation(this);
+
+        if(pl != ProcessingListener.NONE) {
+            pl.onProcess(this, System.nanoTime() - t);
+        }
     }
 
 
@@ -195,11 +272,18 @@ public class Document implements Comparable<Document> {
     }
 
 
+    /**
+     * Trains the model on this document. If the {@code WeightUpdateScheduler} of the model has an executor, the due
+     * weight updates may still be running when this method returns; call {@code m.weightUpdateScheduler.flush()}
+     * to wait for them.
+     */
     public void train() {
-        m.numberOfPositions += numberOfPositionsDelta;
-        numberOfPositionsDelta = 0;
+        ProcessingListener pl = m.processingListener;
+        long t = pl != ProcessingListener.NONE ? System.nanoTime() : 0;
 
-        long v = Node.visitedCounter++;
+        m.numberOfPositions += m.numberOfPositionsDelta.getAndSet(0);
+
+        long v = Node.visitedCounter.addAndGet(1);
 
         count();
 
@@ -222,13 +306,7 @@ public class Document implements Comparable<Document> {
             }
         }
 
-        while(true) {
-            AndNode n = !m.numberOfPositionsQueue.isEmpty() ? m.numberOfPositionsQueue.iterator().next().get() : null;
-
-            if(n == null || n.numberOfPositionsNotify > m.numberOfPositions) break;
-
-            n.updateWeight(this, v);
-        }
+        m.weightUpdateScheduler.processDue(v);
 
         bQueue.backpropagtion();
 
@@ -242,6 +320,10 @@ public class Document implements Comparable<Document> {
                 }
             }
         }
+
+        if(pl != ProcessingListener.NONE) {
+            pl.onTrain(this, System.nanoTime() - t);
+        }
     }
 
     /**
@@ -275,18 +357,74 @@ public class Document implements Comparable<Document> {
                         Node.ThreadState th = n.threads[threadId];
                         if (th != null && th.lastUsed + CLEANUP_INTERVAL < id) {
                             n.threads[threadId] = null;
+                            n.updateEstimatedBytes();
                         }
                     }
                 }
             }
         }
 
+        m.metrics.recordDocument(this);
+
         m.docs[threadId] = null;
+
+        if (m.suspensionHook != null) {
+            m.suspensionManager.checkBudget();
+        }
+
+        if(m.processingListener != ProcessingListener.NONE) {
+            m.processingListener.onDocument(this, System.nanoTime() - createdAt);
+        }
+    }
+
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+
+    /**
+     * Checks the per-document guards and marks the document as truncated if one of them has been exceeded.
+     *
+     * @return true if the lattice must not be expanded any further.
+     */
+    public boolean checkGuards() {
+        if (truncated) return true;
+
+        if (activationIdCounter > maxActivations) {
+            truncate("Maximum number of activations exceeded: " + activationIdCounter);
+        } else if (numberOfInterprNodes > maxInterprNodes) {
+            truncate("Maximum number of interpretation nodes exceeded: " + numberOfInterprNodes);
+        } else if (getEstimatedBytes() > maxEstimatedBytes) {
+            truncate("Estimated memory budget exceeded: " + getEstimatedBytes());
+        }
+        return truncated;
+    }
+
+
+    /**
+     * Counts an and-join for the given and-node and returns the number of joins of this node within this document.
+     */
+    public int countAndJoin(Provider<AndNode> p) {
+        int[] c = andJoins.get(p.id);
+        if (c == null) {
+            c = new int[1];
+            andJoins.put(p.id, c);
+        }
+        return ++c[0];
+    }
+
+
+    public void truncate(String reason) {
+        if (!truncated) {
+            truncated = true;
+            log.warn("Document " + id + " truncated. " + reason);
+        }
     }
 
 
     public void changeNumberOfPositions(int delta) {
-        numberOfPositionsDelta += delta;
+        m.numberOfPositionsDelta.addAndGet(delta);
     }
 
 
@@ -398,7 +536,7 @@ public class Document implements Comparable<Document> {
             public int compare(Node n1, Node n2) {
                 int r = Integer.compare(n1.level, n2.level);
                 if(r != 0) return r;
-                return Long.compare(n1.queueId, n2.queueId);
+                return Long.compare(n1.getThreadState(threadId, true).queueId, n2.getThreadState(threadId, true).queueId);
             }
         });
 
@@ -406,27 +544,77 @@ public class Document implements Comparable<Document> {
 
 
         public void add(Node n) {
-            if(!n.isQueued) {
-                n.isQueued = true;
-                n.queueId = queueIdCounter++;
+            Node.ThreadState th = n.getThreadState(threadId, true);
+            if(!th.isQueued) {
+                th.isQueued = true;
+                th.queueId = queueIdCounter++;
                 queue.add(n);
+                if(queue.size() > maxQueueDepth) {
+                    maxQueueDepth = queue.size();
+                }
             }
         }
 
 
         public void processChanges() {
+            ProcessingListener pl = m.processingListener;
+            long t = pl != ProcessingListener.NONE ? System.nanoTime() : 0;
+            int numberOfNodes = 0;
+
             while(!queue.isEmpty()) {
+                if(m.propagationPool != null) {
+                    int batchSize = processLevelBatch();
+                    if(batchSize > 0) {
+                        numberOfNodes += batchSize;
+                        continue;
+                    }
+                }
+
                 Node n = queue.pollFirst();
+                numberOfNodes++;
 
-                n.isQueued = false;
+                n.getThreadState(threadId, true).isQueued = false;
                 n.processChanges(Document.this);
 
                 if(APPLY_DEBUG_OUTPUT) {
-                    log.info("QueueId:" + n.queueId);
+                    log.info("QueueId:" + n.getThreadState(threadId, true).queueId);
                     log.info(n.toString() + "\n");
                     log.info("\n" + nodeActivationsToString( true, false));
                 }
             }
+
+            if(pl != ProcessingListener.NONE) {
+                pl.onProcessChanges(Document.this, numberOfNodes, System.nanoTime() - t);
+            }
+        }
+
+
+        /**
+         * Processes all the queued nodes of the lowest queued level at once, if all of them are batchable.
+         *
+         * @return the number of processed nodes, or 0 if the nodes need to be processed sequentially
+         */
+        private int processLevelBatch() {
+            int level = queue.first().level;
+            List<Node> batch = new ArrayList<>();
+            for(Node n: queue) {
+                if(n.level != level) break;
+                if(!n.isBatchable(Document.this)) return 0;
+                batch.add(n);
+            }
+
+            for(Node n: batch) {
+                queue.remove(n);
+                n.getThreadState(threadId, true).isQueued = false;
+            }
+
+            Node.processChanges(Document.this, batch, m.propagationPool);
+
+            if(APPLY_DEBUG_OUTPUT) {
+                log.info("Level batch:" + level + " Nodes:" + batch.size());
+                log.info("\n" + nodeActivationsToString( true, false));
+            }
+            return batch.size();
         }
     }
 
@@ -439,18 +627,27 @@ public class Document implements Comparable<Document> {
             if(!act.ubQueued) {
                 act.ubQueued = true;
                 queue.addLast(act);
+                if(queue.size() > maxUpperBoundQueueDepth) {
+                    maxUpperBoundQueueDepth = queue.size();
+                }
             }
         }
 
 
         public boolean process() {
+            ProcessingListener pl = m.processingListener;
+            long t = pl != ProcessingListener.NONE ? System.nanoTime() : 0;
+            int numberOfActs = 0;
+
             boolean flag = false;
             while(!queue.isEmpty()) {
                 flag = true;
                 Activation act = queue.pollFirst();
+                numberOfActs++;
                 act.ubQueued = false;
 
                 double oldUpperBound = act.isInput ? 0.0 : act.upperBound;
+                double oldLowerBound = act.lowerBound;
 
                 INeuron n = act.key.n.neuron.get();
 
@@ -458,22 +655,38 @@ public class Document implements Comparable<Document> {
                     n.computeBounds(act);
                 }
 
+                if(INeuron.INCREMENTAL_BOUNDS && (act.isInput || act.upperBound != oldUpperBound || act.lowerBound != oldLowerBound)) {
+                    INeuron.updateOutputBounds(act);
+                }
+
                 if(Math.abs(act.upperBound - oldUpperBound) > 0.01) {
                     for(Activation.SynapseActivation sa: act.neuronOutputs) {
                         add(sa.output);
                     }
                 }
 
-                if(oldUpperBound <= 0.0 && act.upperBound > 0.0) {
+                double minUpperBound = n.getMinUpperBound(act);
+
+                boolean pruned = act.upperBound > 0.0 && act.upperBound <= minUpperBound;
+                if(pruned != act.isPruned) {
+                    act.isPruned = pruned;
+                    prunedActivations += pruned ? 1 : -1;
+                }
+
+                if(oldUpperBound <= minUpperBound && act.upperBound > minUpperBound) {
                     for(Provider<InputNode> out: n.outputNodes.values()) {
                         out.get().addActivation(Document.this, act);
                     }
-                } else if(oldUpperBound > 0.0 && act.upperBound <= 0.0) {
+                } else if(oldUpperBound > minUpperBound && act.upperBound <= minUpperBound) {
                     for(Provider<InputNode> out: n.outputNodes.values()) {
                         out.get().removeActivation(Document.this, act);
                     }
                 }
             }
+
+            if(pl != ProcessingListener.NONE && flag) {
+                pl.onUpperBoundQueue(Document.this, numberOfActs, System.nanoTime() - t);
+            }
             return flag;
         }
 
@@ -546,11 +759,26 @@ public class Document implements Comparable<Document> {
                     Activation act = q.pollLast();
                     act.rounds.setQueued(round, false);
 
-                    State s = act.isInput ? act.finalState : act.key.n.neuron.get().computeWeight(round, act, sn, Document.this);
+                    State s;
+                    if (act.isInput) {
+                        s = act.finalState;
+
+                        if (OPTIMIZE_DEBUG_OUTPUT) {
+                            log.info(act.key + " Round:" + round);
+                            log.info("Value:" + s.value + "  Weight:" + s.weight.w + "  Norm:" + s.weight.n + "\n");
+                        }
+                    } else {
+                        // The state object is only created if the state of the activation has actually changed.
+                        act.key.n.neuron.get().computeWeight(round, act, sn, Document.this, stateKernel);
+
+                        if (OPTIMIZE_DEBUG_OUTPUT) {
+                            log.info(act.key + " Round:" + round);
+                            log.info("Value:" + stateKernel.value + "  Weight:" + stateKernel.weight + "  Norm:" + stateKernel.norm + "\n");
+                        }
+
+                        if (round != 0 && stateKernel.equalsWithWeights(act.rounds.get(round))) continue;
 
-                    if (OPTIMIZE_DEBUG_OUTPUT) {
-                        log.info(act.key + " Round:" + round);
-                        log.info("Value:" + s.value + "  Weight:" + s.weight.w + "  Norm:" + s.weight.n + "\n");
+                        s = stateKernel.toState();
                     }
 
                     if (round == 0 || !act.rounds.get(round).equalsWithWeights(s)) {
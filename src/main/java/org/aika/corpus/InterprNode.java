@@ -20,6 +20,7 @@ package org.aika.corpus;
 import org.aika.lattice.NodeActivation;
 import org.aika.lattice.NodeActivation.Key;
 import org.aika.neuron.Activation;
+import org.aika.Footprint;
 import org.aika.Utils;
 import org.aika.lattice.Node;
 
@@ -329,6 +330,8 @@ public class InterprNode implements Comparable<InterprNode> {
         }
 
         InterprNode n = new InterprNode(doc, -1, doc.interprIdCounter++);
+        doc.numberOfInterprNodes++;
+        doc.estimatedBytes += Footprint.INTERPR_NODE;
 
         n.linkRelations(parents, children, doc.visitedCounter++);
 
@@ -506,6 +509,8 @@ public class InterprNode implements Comparable<InterprNode> {
         assert doc != null;
 
         InterprNode n = new InterprNode(doc, doc.bottom.children.length, doc.interprIdCounter++, 1);
+        doc.numberOfInterprNodes++;
+        doc.estimatedBytes += Footprint.INTERPR_NODE;
 
         n.minPrim = n.primId;
         n.maxPrim = n.primId;
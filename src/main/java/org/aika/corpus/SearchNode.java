@@ -17,6 +17,7 @@
 package org.aika.corpus;
 
 
+import org.aika.ProcessingListener;
 import org.aika.Utils;
 import org.aika.lattice.NodeActivation;
 import org.aika.neuron.Activation.Rounds;
@@ -105,6 +106,9 @@ public class SearchNode implements Comparable<SearchNode> {
 
 
     public void computeBestInterpretation(Document doc) {
+        ProcessingListener pl = doc.m.processingListener;
+        long t = pl != ProcessingListener.NONE ? System.nanoTime() : 0;
+
         ArrayList<InterprNode> results = new ArrayList<>();
         results.add(doc.bottom);
 
@@ -143,10 +147,15 @@ public class SearchNode implements Comparable<SearchNode> {
         }
 
         doc.bestInterpretation = results;
+        doc.searchSteps = searchSteps[0];
 
         if(doc.interrupted) {
             log.warn("The search for the best interpretation has been interrupted. Too many search steps!");
         }
+
+        if(pl != ProcessingListener.NONE) {
+            pl.onSearch(doc, doc.searchSteps, doc.searchDepth, doc.searchStateCounts[DebugState.CACHED.ordinal()], System.nanoTime() - t);
+        }
     }
 
 
@@ -196,6 +205,9 @@ public class SearchNode implements Comparable<SearchNode> {
             dumpDebugState();
         }
         searchSteps[0]++;
+        if(level > doc.searchDepth) {
+            doc.searchDepth = level;
+        }
 
         if(Document.OPTIMIZE_DEBUG_OUTPUT) {
             log.info("Search Step: " + id);
@@ -219,6 +231,7 @@ public class SearchNode implements Comparable<SearchNode> {
         Boolean cd = !alreadyExcluded && !alreadySelected ? getCachedDecision() : null;
 
         candidate.debugCounts[debugState.ordinal()]++;
+        doc.searchStateCounts[debugState.ordinal()]++;
 
         List<InterprNode> changed = new ArrayList<>();
         if(level == -1) {
@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.corpus;
+
+
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.StreamingDocument.ActivationRecord;
+import org.aika.corpus.StreamingDocument.InputRecord;
+import org.aika.neuron.Activation;
+import org.aika.neuron.INeuron;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The {@code Segmenter} splits a huge text into segments and processes each segment as an independent document.
+ * The segments are distributed over a set of thread slots of the model and processed concurrently. Every segment
+ * document is extended by an overlap margin on both sides, so that activations near the segment boundaries still
+ * see their context. The final activations are translated back into the positions of the original text. An
+ * activation is only kept by the segment whose core region contains its begin, which removes the duplicates
+ * within the overlap.
+ *
+ * <p>Since each segment has its own interpretation search, this is only exact for networks without dependencies
+ * across the segment boundaries that exceed the overlap margin.
+ *
+ * @author Lukas Molzberger
+ */
+public class Segmenter {
+
+    public static final BoundaryDetector SENTENCES = regex("[.!?]+\\s+");
+    public static final BoundaryDetector PARAGRAPHS = regex("\\n\\s*\\n");
+
+    public final Model m;
+    public final BoundaryDetector boundaryDetector;
+    public final int overlap;
+
+
+    public Segmenter(Model m, BoundaryDetector boundaryDetector, int overlap) {
+        this.m = m;
+        this.boundaryDetector = boundaryDetector;
+        this.overlap = overlap;
+    }
+
+
+    /**
+     * Splits the text at the matches of the given regular expression. The next segment begins after the match.
+     *
+     * @param regex
+     * @return
+     */
+    public static BoundaryDetector regex(String regex) {
+        Pattern p = Pattern.compile(regex);
+        return (txt, inputs) -> {
+            List<Integer> results = new ArrayList<>();
+            Matcher matcher = p.matcher(txt);
+            while(matcher.find()) {
+                results.add(matcher.end());
+            }
+            return results;
+        };
+    }
+
+
+    /**
+     * Splits the text after each input activation of the given separator neuron.
+     *
+     * @param separator
+     * @return
+     */
+    public static BoundaryDetector separator(Neuron separator) {
+        return (txt, inputs) -> {
+            TreeSet<Integer> results = new TreeSet<>();
+            for(InputRecord ir: inputs) {
+                if(ir.n == separator) {
+                    results.add(ir.end);
+                }
+            }
+            return new ArrayList<>(results);
+        };
+    }
+
+
+    /**
+     * Computes the segments of the given text.
+     *
+     * @param txt
+     * @param inputs
+     * @return
+     */
+    public List<Segment> computeSegments(String txt, List<InputRecord> inputs) {
+        List<Segment> results = new ArrayList<>();
+        int begin = 0;
+        for(Integer b: boundaryDetector.getBoundaries(txt, inputs)) {
+            if(b > begin && b < txt.length()) {
+                results.add(new Segment(begin, b, txt.length()));
+                begin = b;
+            }
+        }
+        results.add(new Segment(begin, txt.length(), txt.length()));
+        return results;
+    }
+
+
+    /**
+     * Processes the given text using all thread slots of the model and returns the final activations in the
+     * positions of the original text. No other document may be processed by the model at the same time.
+     *
+     * @param txt
+     * @param inputs The input activations in the positions of the original text.
+     * @return
+     */
+    public List<ActivationRecord> process(String txt, List<InputRecord> inputs) {
+        List<Integer> threadIds = new ArrayList<>();
+        for(int i = 0; i < m.numberOfThreads; i++) {
+            threadIds.add(i);
+        }
+        return process(txt, inputs, threadIds);
+    }
+
+
+    /**
+     * Processes the given text and returns the final activations in the positions of the original text. The
+     * segments are processed concurrently in the given thread slots, which must not be used by any other document
+     * during this call.
+     *
+     * @param txt
+     * @param inputs The input activations in the positions of the original text.
+     * @param slots The thread slots of the model that may be used for the segment documents.
+     * @return
+     */
+    public List<ActivationRecord> process(String txt, List<InputRecord> inputs, Collection<Integer> slots) {
+        if(slots.isEmpty()) {
+            throw new IllegalArgumentException("At least one thread slot is required.");
+        }
+
+        List<Segment> segments = computeSegments(txt, inputs);
+
+        TreeMap<Integer, Segment> segmentsByBegin = new TreeMap<>();
+        for(Segment s: segments) {
+            segmentsByBegin.put(s.begin, s);
+        }
+
+        // An input belongs to every segment whose document region contains it. The segments are visited backwards
+        // from the last one that begins within the overlap after the input, until a segment ends too early.
+        for(InputRecord ir: inputs) {
+            for(Segment s: segmentsByBegin.headMap(ir.begin + overlap, true).descendingMap().values()) {
+                if(s.docEnd < ir.end) break;
+
+                if(ir.begin >= s.docBegin) {
+                    s.inputs.add(ir);
+                }
+            }
+        }
+
+        BlockingQueue<Integer> threadIds = new ArrayBlockingQueue<>(slots.size());
+        threadIds.addAll(slots);
+
+        ExecutorService executor = Executors.newFixedThreadPool(slots.size());
+        List<Future<List<ActivationRecord>>> futures = new ArrayList<>();
+        for(Segment s: segments) {
+            futures.add(executor.submit(() -> {
+                int threadId = threadIds.take();
+                try {
+                    return processSegment(txt, s, threadId);
+                } finally {
+                    threadIds.add(threadId);
+                }
+            }));
+        }
+        executor.shutdown();
+
+        List<ActivationRecord> results = new ArrayList<>();
+        try {
+            for(Future<List<ActivationRecord>> f: futures) {
+                results.addAll(f.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            // Segments that have not started yet are dropped, the running ones are awaited so that all thread
+            // slots are released when this method returns.
+            executor.shutdownNow();
+            awaitTermination(executor);
+            throw new RuntimeException(e);
+        }
+        return results;
+    }
+
+
+    private static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while(true) {
+            try {
+                if(executor.awaitTermination(1, TimeUnit.MINUTES)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private List<ActivationRecord> processSegment(String txt, Segment s, int threadId) {
+        Document doc = m.createDocument(txt.substring(s.docBegin, s.docEnd), threadId);
+        try {
+            for(InputRecord ir: s.inputs) {
+                ir.n.addInput(doc, ir.begin - s.docBegin, ir.end - s.docBegin, ir.rid, doc.bottom, ir.value);
+            }
+
+            doc.process();
+
+            List<ActivationRecord> results = new ArrayList<>();
+            for(INeuron n: doc.finallyActivatedNeurons) {
+                for(Activation act: n.getFinalActivations(doc)) {
+                    Range r = act.key.r;
+                    int pos = s.docBegin + (r.begin != null ? r.begin : r.end);
+                    if(pos >= s.begin && pos < s.end) {
+                        results.add(new ActivationRecord(
+                                n.provider,
+                                new Range(
+                                        r.begin != null ? s.docBegin + r.begin : null,
+                                        r.end != null ? s.docBegin + r.end : null
+                                ),
+                                act.key.rid,
+                                act.finalState.value
+                        ));
+                    }
+                }
+            }
+            return results;
+        } finally {
+            // Release the thread slot even if the segment failed.
+            doc.clearActivations();
+        }
+    }
+
+
+    /**
+     * Determines the positions at which a new segment may begin.
+     */
+    public interface BoundaryDetector {
+
+        /**
+         * @param txt
+         * @param inputs
+         * @return The boundary positions in increasing order.
+         */
+        List<Integer> getBoundaries(String txt, List<InputRecord> inputs);
+    }
+
+
+    /**
+     * A segment consists of a core region, which is owned by this segment, and the surrounding document region
+     * including the overlap margin.
+     */
+    public class Segment {
+        public final int begin;
+        public final int end;
+        public final int docBegin;
+        public final int docEnd;
+
+        List<InputRecord> inputs = new ArrayList<>();
+
+        public Segment(int begin, int end, int length) {
+            this.begin = begin;
+            this.end = end;
+            this.docBegin = Math.max(0, begin - overlap);
+            this.docEnd = Math.min(length, end + overlap);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.corpus;
+
+
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.neuron.Activation;
+import org.aika.neuron.INeuron;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The {@code StreamingDocument} processes texts that are too long to be held as a single {@link Document}, such as
+ * log streams or books. The text is appended in chunks together with the input activations of each chunk. Each call
+ * of {@code process} runs the propagation and the interpretation search on a sliding window and returns the final
+ * activations of the prefix that can no longer change.
+ *
+ * <p>Whether an activation is final is decided using {@code maxReach}, the maximum number of characters an
+ * activation of the network may span. An activation ending before {@code length - maxReach} cannot be affected by
+ * text that is appended later. After each window has been processed its activations and interpretation nodes are
+ * released, and only the last {@code maxReach} characters, together with their inputs, are kept for the next
+ * window. Hence the memory consumption is bounded by the window size and not by the length of the stream. An input
+ * that begins before the last {@code maxReach} characters but ends within them is kept as well, and the window is
+ * extended to its beginning.
+ *
+ * <p>All the positions used in this class are absolute positions within the stream.
+ *
+ * @author Lukas Molzberger
+ */
+public class StreamingDocument {
+
+    public final Model m;
+    public final int threadId;
+    public final int maxReach;
+
+    private StringBuilder content = new StringBuilder();
+    private int windowBegin = 0;
+    private int finalizedEnd = 0;
+    private int countedPositions = 0;
+
+    private List<InputRecord> inputs = new ArrayList<>();
+
+
+    public StreamingDocument(Model m, int threadId, int maxReach) {
+        this.m = m;
+        this.threadId = threadId;
+        this.maxReach = maxReach;
+    }
+
+
+    /**
+     * Appends a chunk of text to the stream.
+     *
+     * @param chunk
+     */
+    public void append(String chunk) {
+        content.append(chunk);
+    }
+
+
+    /**
+     * The absolute length of the stream that has been appended so far.
+     *
+     * @return
+     */
+    public int length() {
+        return windowBegin + content.length();
+    }
+
+
+    public void addInput(Neuron n, int begin, int end) {
+        addInput(n, begin, end, null, 1.0);
+    }
+
+
+    public void addInput(Neuron n, int begin, int end, Integer rid) {
+        addInput(n, begin, end, rid, 1.0);
+    }
+
+
+    /**
+     * Adds an input activation using absolute stream positions. Inputs may only be added for positions that have
+     * not been finalized yet.
+     *
+     * @param n
+     * @param begin
+     * @param end
+     * @param rid
+     * @param value
+     */
+    public void addInput(Neuron n, int begin, int end, Integer rid, double value) {
+        if(begin < windowBegin) {
+            throw new IllegalArgumentException("The input range " + begin + "," + end + " lies before the current window, which starts at " + windowBegin + ".");
+        }
+        inputs.add(new InputRecord(n, begin, end, rid, value));
+    }
+
+
+    /**
+     * Processes the current window and returns the final activations of the prefix that can no longer be affected
+     * by appended text.
+     *
+     * @return The newly finalized activations in absolute positions.
+     */
+    public List<ActivationRecord> process() {
+        return process(length() - maxReach);
+    }
+
+
+    /**
+     * Processes the remaining window at the end of the stream and returns all remaining activations.
+     *
+     * @return The newly finalized activations in absolute positions.
+     */
+    public List<ActivationRecord> finish() {
+        return process(Integer.MAX_VALUE);
+    }
+
+
+    private List<ActivationRecord> process(int boundary) {
+        List<ActivationRecord> results = new ArrayList<>();
+        if(boundary <= finalizedEnd) return results;
+
+        Document doc = m.createDocument(content.toString(), threadId);
+
+        // Only the newly appended positions are counted for the model statistics.
+        doc.changeNumberOfPositions(-(countedPositions - windowBegin));
+        countedPositions = length();
+
+        for(InputRecord ir: inputs) {
+            ir.n.addInput(doc, ir.begin - windowBegin, ir.end - windowBegin, ir.rid, doc.bottom, ir.value);
+        }
+
+        doc.process();
+
+        for(INeuron n: doc.finallyActivatedNeurons) {
+            for(Activation act: n.getFinalActivations(doc)) {
+                Range r = act.key.r;
+                int end = windowBegin + (r.end != null ? r.end : r.begin);
+                if(end > finalizedEnd && end <= boundary) {
+                    results.add(new ActivationRecord(
+                            n.provider,
+                            new Range(
+                                    r.begin != null ? windowBegin + r.begin : null,
+                                    r.end != null ? windowBegin + r.end : null
+                            ),
+                            act.key.rid,
+                            act.finalState.value
+                    ));
+                }
+            }
+        }
+
+        doc.clearActivations();
+
+        finalizedEnd = Math.min(boundary, length());
+        slideWindow(finalizedEnd - maxReach);
+
+        return results;
+    }
+
+
+    private void slideWindow(int newBegin) {
+        // The window must not start after an input that reaches into it.
+        for(InputRecord ir: inputs) {
+            if(ir.end > newBegin) {
+                newBegin = Math.min(newBegin, ir.begin);
+            }
+        }
+
+        if(newBegin <= windowBegin) return;
+
+        content.delete(0, newBegin - windowBegin);
+        windowBegin = newBegin;
+
+        for(Iterator<InputRecord> it = inputs.iterator(); it.hasNext(); ) {
+            if(it.next().end <= windowBegin) {
+                it.remove();
+            }
+        }
+    }
+
+
+    /**
+     * A buffered input activation in absolute positions.
+     */
+    public static class InputRecord {
+        public final Neuron n;
+        public final int begin;
+        public final int end;
+        public final Integer rid;
+        public final double value;
+
+        public InputRecord(Neuron n, int begin, int end, Integer rid, double value) {
+            this.n = n;
+            this.begin = begin;
+            this.end = end;
+            this.rid = rid;
+            this.value = value;
+        }
+    }
+
+
+    /**
+     * A finalized activation in absolute positions. Unlike the {@code Activation} itself, it does not reference
+     * the document or the interpretation nodes, which are released after each window.
+     */
+    public static class ActivationRecord {
+        public final Neuron n;
+        public final Range r;
+        public final Integer rid;
+        public final double value;
+
+        public ActivationRecord(Neuron n, Range r, Integer rid, double value) {
+            this.n = n;
+            this.r = r;
+            this.rid = rid;
+            this.value = value;
+        }
+
+
+        public String toString() {
+            return n.get().label + " " + r + " " + rid + " " + value;
+        }
+    }
+}
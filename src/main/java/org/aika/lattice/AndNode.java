@@ -17,6 +17,7 @@
 package org.aika.lattice;
 
 
+import org.aika.Footprint;
 import org.aika.Neuron;
 import org.aika.lattice.NodeActivation.Key;
 import org.aika.Model;
@@ -27,7 +28,6 @@ import org.aika.corpus.InterprNode;
 import org.aika.corpus.Range;
 import org.aika.neuron.INeuron;
 import org.aika.neuron.Synapse;
-import org.apache.commons.math3.distribution.BinomialDistribution;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -55,9 +55,17 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
 
     public volatile int numberOfPositionsNotify;
     private volatile int frequencyNotify;
+    private long visitedComputeWeight = -1;
 
     private double weight = -1;
 
+    /**
+     * Set if the node has been created while converting a neuron and not by the pattern discovery. Only such nodes
+     * are removed by {@code removeIfUnused}. The flag is not persisted, so a node that has been suspended in the
+     * meantime is kept.
+     */
+    volatile boolean createdByConverter;
+
 
     public AndNode() {}
 
@@ -66,8 +74,8 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
         super(m, level);
         this.parents = parents;
 
-        m.stat.nodes++;
-        m.stat.nodesPerLevel[level]++;
+        m.metrics.nodes.increment();
+        m.metrics.nodesPerLevel[level].increment();
 
         ridRequired = false;
 
@@ -82,6 +90,8 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
         }
 
         endRequired = false;
+
+        updateEstimatedBytes();
     }
 
 
@@ -172,30 +182,35 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
     }
 
 
-    public void updateWeight(Document doc, long v) {
-        ThreadState th = getThreadState(doc.threadId, true);
-        Model m = doc.m;
+    public boolean updateWeight(Document doc, long v) {
+        return updateWeight(doc.m, v);
+    }
+
+
+    /**
+     * Re-evaluates the significance weight of this node and schedules the next re-evaluation.
+     *
+     * @return false if the node has not been evaluated.
+     */
+    public synchronized boolean updateWeight(Model m, long v) {
         if(isBlocked ||
                 (m.numberOfPositions - nOffset) == 0 ||
                 frequency < Node.minFrequency ||
-                th.visitedComputeWeight == v ||
+                visitedComputeWeight == v ||
                 (numberOfPositionsNotify > m.numberOfPositions && frequencyNotify > frequency && Math.abs(nullHypFreq - oldNullHypFreq) < 0.01)
                 ) {
-            return;
+            return false;
         }
 
-        th.visitedComputeWeight = v;
+        visitedComputeWeight = v;
 
         double avgSize = sizeSum / instanceSum;
         double n = (double) (m.numberOfPositions - nOffset) / avgSize;
 
-        doc.m.numberOfPositionsQueue.remove(provider);
         numberOfPositionsNotify = computeNotify(n) + m.numberOfPositions;
-        doc.m.numberOfPositionsQueue.add(provider);
+        m.weightUpdateScheduler.schedule(this);
 
-        BinomialDistribution binDist = new BinomialDistribution(null, (int)Math.round(n), nullHypFreq / n);
-
-        weight = binDist.cumulativeProbability(frequency - 1);
+        weight = Significance.cumulativeProbability((int)Math.round(n), nullHypFreq / n, frequency - 1);
 
         frequencyNotify = computeNotify(frequency) + frequency;
         oldNullHypFreq = nullHypFreq;
@@ -203,6 +218,21 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
         if(weight >= SIGNIFICANCE_THRESHOLD) {
 //            checkSignificantPattern(t);
         }
+        return true;
+    }
+
+
+    /**
+     * Moves the notify position of a node that was due, but has not been evaluated, forward and schedules it again,
+     * so that the node does not drop out of the schedule. The distance grows with the number of positions, just like
+     * for an evaluated node.
+     */
+    synchronized void postponeWeightUpdate(Model m) {
+        // The node has been evaluated and rescheduled concurrently.
+        if(numberOfPositionsNotify > m.numberOfPositions) return;
+
+        numberOfPositionsNotify = computeNotify(Math.max(1, m.numberOfPositions - nOffset)) + m.numberOfPositions;
+        m.weightUpdateScheduler.schedule(this);
     }
 
 
@@ -223,28 +253,51 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
     }
 
 
-    @Override
-    void apply(Document doc, NodeActivation<AndNode> act, InterprNode removedConflict) {
+    /**
+     * Removes this node and, recursively, its parents, as long as they are neither used by a neuron nor by another
+     * and-node. Nodes that have been created by the pattern discovery are kept, since the discovery still collects
+     * their frequencies and may refine them later on.
+     *
+     * @param m
+     */
+    public void removeIfUnused(Model m) {
+        if(!createdByConverter) return;
+
+        lock.acquireReadLock();
+        boolean used = (orChildren != null && !orChildren.isEmpty()) ||
+                (allOrChildren != null && !allOrChildren.isEmpty()) ||
+                (andChildren != null && !andChildren.isEmpty());
+        lock.releaseReadLock();
+
+        if(isRemoved || used) return;
 
-        // Check if the activation has been deleted in the meantime.
-        if(act.isRemoved) {
-            return;
+        remove(m);
+
+        for(Provider<? extends Node> p: parents.values()) {
+            Node pn = p.get();
+            if(pn instanceof AndNode) {
+                ((AndNode) pn).removeIfUnused(m);
+            }
         }
+    }
+
 
+    @Override
+    void collectNextLevelActivations(Document doc, NodeActivation<AndNode> act, int maxActId, List<NextLevelActivation> results) {
         for(NodeActivation<?> pAct: act.inputs.values()) {
             Node<?, NodeActivation<?>> pn = pAct.key.n;
             pn.lock.acquireReadLock();
             Refinement ref = pn.reverseAndChildren.get(new ReverseAndRefinement(act.key.n.provider, act.key.rid, pAct.key.rid));
             if(ref != null) {
                 for (NodeActivation secondAct : pAct.outputs.values()) {
-                    if (act != secondAct && !secondAct.isRemoved) {
+                    if (act != secondAct && !secondAct.isRemoved && secondAct.id <= maxActId) {
                         Refinement secondRef = pn.reverseAndChildren.get(new ReverseAndRefinement(secondAct.key.n.provider, secondAct.key.rid, pAct.key.rid));
                         if (secondRef != null) {
                             Refinement nRef = new Refinement(secondRef.rid, ref.getOffset(), secondRef.input);
 
                             Provider<AndNode> nlp = getAndChild(nRef);
                             if (nlp != null) {
-                                addNextLevelActivation(doc, act, secondAct, nlp, removedConflict);
+                                results.add(new NextLevelActivation(act, secondAct, nlp, Range.mergeRange(act.key.r, secondAct.key.r)));
                             }
                         }
                     }
@@ -252,16 +305,12 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
             }
             pn.lock.releaseReadLock();
         }
-
-        if(removedConflict == null) {
-            OrNode.processCandidate(doc, this, act, false);
-        }
     }
 
 
     @Override
-    public void discover(Document doc, NodeActivation<AndNode> act) {
-        if(!isExpandable(true)) return;
+    void collectDiscoveryCandidates(Document doc, NodeActivation<AndNode> act, Collection<DiscoveryCandidate> results) {
+        if(!isExpandable(false)) return;
 
         for(NodeActivation<?> pAct: act.inputs.values()) {
             Node<?, NodeActivation<?>> pn = pAct.key.n;
@@ -273,16 +322,12 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
                     Integer ridDelta = Utils.nullSafeSub(act.key.rid, false, secondAct.key.rid, false);
                     if (act != secondAct &&
                             !secondNode.isBlocked &&
-                            secondNode.isFrequent() &&
                             (ridDelta == null || ridDelta < MAX_RID_RANGE)
                             ) {
                         Refinement secondRef = pn.reverseAndChildren.get(new ReverseAndRefinement(secondAct.key.n.provider, secondAct.key.rid, pAct.key.rid));
                         Refinement nRef = new Refinement(secondRef.rid, ref.getOffset(), secondRef.input);
 
-                        AndNode nln = createNextLevelNode(doc.m, doc.threadId, this, nRef, true);
-                        if(nln != null) {
-                            doc.addedNodes.add(nln);
-                        }
+                        results.add(new DiscoveryCandidate(this, nRef, secondNode));
                     }
                 }
             }
@@ -352,6 +397,12 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
             if(n.andChildren == null || !n.andChildren.containsKey(ref)) {
                 nln = new AndNode(m, n.level + 1, parents);
                 nln.isBlocked = n.isBlocked || ref.input.get().isBlocked;
+                nln.createdByConverter = !discoverPatterns;
+
+                m.processingListener.onAndNodeCreated(nln);
+            } else if(!discoverPatterns) {
+                // The node has been created concurrently by another thread.
+                nln = ((Provider<AndNode>) n.andChildren.get(ref)).get();
             }
 
             for(Provider<? extends Node> pn: parentsForLocking) {
@@ -362,17 +413,25 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
     }
 
 
-    public static void addNextLevelActivation(Document doc, NodeActivation<AndNode> act, NodeActivation<AndNode> secondAct, Provider<AndNode> pnlp, InterprNode conflict) {
+    public static void addNextLevelActivation(Document doc, NodeActivation<?> act, NodeActivation<?> secondAct, Provider<AndNode> pnlp, Range r, InterprNode conflict) {
         // TODO: check if the activation already exists
+        if (doc.checkGuards()) return;
+
+        AndNode nlp = pnlp.get();
+
         Key ak = act.key;
         InterprNode o = InterprNode.add(doc, true, ak.o, secondAct.key.o);
         if (o != null && (conflict == null || o.contains(conflict, false))) {
-            AndNode nlp = pnlp.get();
+            if (doc.countAndJoin(pnlp) > doc.maxAndJoinsPerNode) {
+                doc.truncate("Maximum number of and-joins exceeded for node: " + pnlp.id);
+                return;
+            }
+
             nlp.addActivation(
                     doc,
                     new Key(
                             nlp,
-                            Range.mergeRange(ak.r, secondAct.key.r),
+                            r,
                             Utils.nullSafeMin(ak.rid, secondAct.key.rid),
                             o
                     ),
@@ -393,7 +452,7 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
     public static SortedMap<Refinement, Provider<? extends Node>> computeNextLevelParents(Model m, int threadId, Node pa, Refinement ref, boolean discoverPatterns) {
         Collection<Refinement> refinements = pa.collectNodeAndRefinements(ref);
 
-        long v = visitedCounter++;
+        long v = visitedCounter.addAndGet(1);
         SortedMap<Refinement, Provider<? extends Node>> parents = new TreeMap<>();
 
         for(Refinement pRef: refinements) {
@@ -484,6 +543,12 @@ public class AndNode extends Node<AndNode, NodeActivation<AndNode>> {
     }
 
 
+    @Override
+    public long estimateBytes() {
+        return super.estimateBytes() + Footprint.LATTICE_ENTRY * Footprint.size(parents);
+    }
+
+
     public String logicToString() {
         StringBuilder sb = new StringBuilder();
         sb.append("AND[");
@@ -54,7 +54,8 @@ public class InputNode extends Node<InputNode, NodeActivation<InputNode>> {
     // Key: Output Neuron
     Map<SynapseKey, Synapse> synapses;
 
-    private long visitedTrain = -1;
+    // Key: Provider id of the partner input node
+    IntHashMap<Refinement[]> andChildrenByInput;
 
     public InputNode() {
     }
@@ -64,8 +65,8 @@ public class InputNode extends Node<InputNode, NodeActivation<InputNode>> {
         this.key = Synapse.lookupKey(key);
 
         if (m != null) {
-            m.stat.nodes++;
-            m.stat.nodesPerLevel[level]++;
+            m.metrics.nodes.increment();
+            m.metrics.nodesPerLevel[level].increment();
         }
 
         endRequired = false;
@@ -135,7 +136,7 @@ public class InputNode extends Node<InputNode, NodeActivation<InputNode>> {
     boolean hasSupport(NodeActivation<InputNode> act) {
         for (NodeActivation iAct : act.inputs.values()) {
             Activation iNAct = (Activation) iAct;
-            if (!iAct.isRemoved && iNAct.upperBound > 0.0) return true;
+            if (!iAct.isRemoved && iNAct.upperBound > iNAct.key.n.neuron.get().getMinUpperBound(iNAct)) return true;
         }
 
         return false;
@@ -252,37 +253,90 @@ public class InputNode extends Node<InputNode, NodeActivation<InputNode>> {
         return result;
     }
 
-    /**
-     * @param doc
-     * @param act
-     * @param removedConflict This parameter contains a removed conflict if it is not null. In this case only expand activations that contain this removed conflict.
-     */
     @Override
-    void apply(Document doc, NodeActivation act, InterprNode removedConflict) {
-        // Check if the activation has been deleted in the meantime.
-        if (act.isRemoved) {
-            return;
+    void addAndChild(Refinement ref, Provider<AndNode> child) {
+        super.addAndChild(ref, child);
+
+        if (andChildrenByInput == null) {
+            andChildrenByInput = new IntHashMap<>();
         }
+        Refinement[] refs = andChildrenByInput.get(ref.input.id);
+        andChildrenByInput.put(ref.input.id, refs == null ? new Refinement[] {ref} : Utils.addToArray(refs, ref));
+    }
 
+
+    @Override
+    void removeAndChild(Refinement ref) {
+        super.removeAndChild(ref);
+
+        if (andChildrenByInput != null) {
+            Refinement[] refs = andChildrenByInput.get(ref.input.id);
+            if (refs != null) {
+                List<Refinement> remaining = new ArrayList<>(refs.length);
+                for (Refinement r : refs) {
+                    if (r.compareTo(ref) != 0) {
+                        remaining.add(r);
+                    }
+                }
+                if (remaining.isEmpty()) {
+                    andChildrenByInput.remove(ref.input.id);
+                } else {
+                    andChildrenByInput.put(ref.input.id, remaining.toArray(new Refinement[remaining.size()]));
+                }
+            }
+            if (andChildren == null) {
+                andChildrenByInput = null;
+            }
+        }
+    }
+
+
+    /**
+     * Hot input nodes may have a very large number of and-children, while only a few of the partner input nodes are
+     * activated within the current document. Hence, if there are more partner input nodes than activated nodes in the
+     * document, the activated nodes are looked up in the and-children index instead of iterating over all
+     * and-children.
+     */
+    @Override
+    void collectNextLevelActivations(Document doc, NodeActivation<InputNode> act, int maxActId, List<NextLevelActivation> results) {
         lock.acquireReadLock();
         if (andChildren != null) {
-            for (Map.Entry<Refinement, Provider<AndNode>> me : andChildren.entrySet()) {
-                Provider<InputNode> refInput = me.getKey().input;
-                InputNode in = refInput.getIfNotSuspended();
-                if (in != null) {
-                    addNextLevelActivations(doc, in, me.getKey(), me.getValue(), act, removedConflict);
+            if (andChildrenByInput.size() <= doc.activatedNodes.size() + doc.activatedNodesForTraining.size()) {
+                for (Map.Entry<Refinement, Provider<AndNode>> me : andChildren.entrySet()) {
+                    Provider<InputNode> refInput = me.getKey().input;
+                    InputNode in = refInput.getIfNotSuspended();
+                    if (in != null) {
+                        collectNextLevelActivations(doc, in, me.getKey(), me.getValue(), act, maxActId, results);
+                    }
+                }
+            } else {
+                for (Node n : doc.activatedNodes) {
+                    collectNextLevelActivations(doc, n, act, maxActId, results);
+                }
+                for (Node n : doc.activatedNodesForTraining) {
+                    if (!doc.activatedNodes.contains(n)) {
+                        collectNextLevelActivations(doc, n, act, maxActId, results);
+                    }
                 }
             }
         }
         lock.releaseReadLock();
+    }
 
-        if (removedConflict == null) {
-            OrNode.processCandidate(doc, this, act, false);
+
+    private void collectNextLevelActivations(Document doc, Node n, NodeActivation act, int maxActId, List<NextLevelActivation> results) {
+        if (!(n instanceof InputNode)) return;
+
+        Refinement[] refs = andChildrenByInput.get(n.provider.id);
+        if (refs == null) return;
+
+        for (Refinement ref : refs) {
+            collectNextLevelActivations(doc, (InputNode) n, ref, andChildren.get(ref), act, maxActId, results);
         }
     }
 
 
-    private static void addNextLevelActivations(Document doc, InputNode secondNode, Refinement ref, Provider<AndNode> pnlp, NodeActivation act, InterprNode removedConflict) {
+    private static void collectNextLevelActivations(Document doc, InputNode secondNode, Refinement ref, Provider<AndNode> pnlp, NodeActivation act, int maxActId, List<NextLevelActivation> results) {
         ThreadState th = secondNode.getThreadState(doc.threadId, false);
         if (th == null || th.activations.isEmpty()) return;
 
@@ -302,28 +356,31 @@ public class InputNode extends Node<InputNode, NodeActivation<InputNode>> {
         );
 
         s.forEach(secondAct -> {
-            if (!secondAct.isRemoved) {
-                InterprNode o = InterprNode.add(doc, true, ak.o, secondAct.key.o);
-                if (o != null && (removedConflict == null || o.contains(removedConflict, false))) {
-                    AndNode nlp = pnlp.get();
-                    nlp.addActivation(doc,
-                            new NodeActivation.Key(
-                                    nlp,
-                                    Range.mergeRange(
-                                            Range.getOutputRange(ak.r, new boolean[]{firstNode.key.startRangeOutput, firstNode.key.endRangeOutput}),
-                                            Range.getOutputRange(secondAct.key.r, new boolean[]{secondNode.key.startRangeOutput, secondNode.key.endRangeOutput})
-                                    ),
-                                    Utils.nullSafeMin(ak.rid, secondAct.key.rid),
-                                    o
-                            ),
-                            AndNode.prepareInputActs(act, secondAct)
-                    );
-                }
+            if (!secondAct.isRemoved && secondAct.id <= maxActId) {
+                results.add(new NextLevelActivation(
+                        act,
+                        secondAct,
+                        pnlp,
+                        Range.mergeRange(
+                                Range.getOutputRange(ak.r, new boolean[]{firstNode.key.startRangeOutput, firstNode.key.endRangeOutput}),
+                                Range.getOutputRange(secondAct.key.r, new boolean[]{secondNode.key.startRangeOutput, secondNode.key.endRangeOutput})
+                        )
+                ));
             }
         });
     }
 
 
+    /**
+     * Open ranged input nodes remove and replace existing activations while adding new ones. Hence they are
+     * always processed sequentially.
+     */
+    @Override
+    public boolean isBatchable(Document doc) {
+        return key.startRangeMapping != Mapping.NONE && key.endRangeMapping != Mapping.NONE && super.isBatchable(doc);
+    }
+
+
     private static Operator computeStartRangeMatch(Key k1, Key k2) {
         if (k1.startRangeMatch == FIRST || k1.startRangeMatch == LAST) return k1.startRangeMatch;
         if (k2.startRangeMatch == FIRST || k2.startRangeMatch == LAST) return Operator.invert(k2.startRangeMatch);
@@ -351,8 +408,8 @@ public class InputNode extends Node<InputNode, NodeActivation<InputNode>> {
 
 
     @Override
-    public void discover(Document doc, NodeActivation<InputNode> act) {
-        long v = Node.visitedCounter++;
+    void collectDiscoveryCandidates(Document doc, NodeActivation<InputNode> act, Collection<DiscoveryCandidate> results) {
+        Set<InputNode> visited = new TreeSet<>();
 
         for (INeuron n : doc.finallyActivatedNeurons) {
             for (Activation secondNAct : n.getFinalActivations(doc)) {
@@ -365,12 +422,12 @@ public class InputNode extends Node<InputNode, NodeActivation<InputNode>> {
 
                     if (act != secondAct &&
                             this != in &&
-                            in.visitedTrain != v &&
+                            !visited.contains(in) &&
                             !in.key.isRecurrent &&
                             ((srm.compare(act.key.r.begin, act.key.r.end, secondAct.key.r.begin, secondAct.key.r.end) && erm.compare(act.key.r.end, act.key.r.begin, secondAct.key.r.end, secondAct.key.r.begin)) ||
                                     (ridDelta != null && ridDelta < AndNode.MAX_RID_RANGE))) {
-                        in.visitedTrain = v;
-                        AndNode.createNextLevelNode(doc.m, doc.threadId, this, ref, true);
+                        visited.add(in);
+                        results.add(new DiscoveryCandidate(this, ref, null));
                     }
                 }
             }
@@ -439,6 +496,14 @@ public class InputNode extends Node<InputNode, NodeActivation<InputNode>> {
     }
 
 
+    @Override
+    public long estimateBytes() {
+        return super.estimateBytes() +
+                Footprint.TREE_MAP_ENTRY * Footprint.size(synapses) +
+                Footprint.HASH_MAP_ENTRY * (andChildrenByInput != null ? andChildrenByInput.size() : 0);
+    }
+
+
     public String logicToString() {
         StringBuilder sb = new StringBuilder();
         sb.append("I");
@@ -31,6 +31,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 
 /**
@@ -90,13 +94,70 @@ public abstract class Node<T extends Node, A extends NodeActivation<T>> extends
     public ReadWriteLock lock = new ReadWriteLock();
 
 
-    public boolean isQueued = false;
-    public long queueId;
-
-    public static long visitedCounter = 1;
+    public static AtomicLong visitedCounter = new AtomicLong(1);
 
     public ThreadState<T, A>[] threads;
 
+    /**
+     * A candidate activation of a next level and-node, resulting from the join of two activations of the
+     * current level.
+     */
+    static class NextLevelActivation {
+        NodeActivation act;
+        NodeActivation secondAct;
+        Provider<AndNode> pnlp;
+        Range r;
+
+        NextLevelActivation(NodeActivation act, NodeActivation secondAct, Provider<AndNode> pnlp, Range r) {
+            this.act = act;
+            this.secondAct = secondAct;
+            this.pnlp = pnlp;
+            this.r = r;
+        }
+    }
+
+
+    /**
+     * A candidate for a new next level and-node found during the pattern discovery. The candidate consists of the
+     * node that is going to be refined and the refinement. If the candidate results from the join with the activation
+     * of another and-node, this second node needs to be frequent at the time the new node is created.
+     */
+    public static class DiscoveryCandidate implements Comparable<DiscoveryCandidate> {
+        public final Node n;
+        public final Refinement ref;
+        public final Node secondNode;
+
+        DiscoveryCandidate(Node n, Refinement ref, Node secondNode) {
+            this.n = n;
+            this.ref = ref;
+            this.secondNode = secondNode;
+        }
+
+
+        public boolean isValid() {
+            return secondNode == null || (!secondNode.isBlocked && secondNode.isFrequent());
+        }
+
+
+        public AndNode createNode(Model m, int threadId) {
+            return AndNode.createNextLevelNode(m, threadId, n, ref, true);
+        }
+
+
+        @Override
+        public int compareTo(DiscoveryCandidate c) {
+            int r = n.compareTo(c.n);
+            if (r != 0) return r;
+            r = ref.compareTo(c.ref);
+            if (r != 0) return r;
+            if (secondNode == c.secondNode) return 0;
+            if (secondNode == null) return -1;
+            if (c.secondNode == null) return 1;
+            return secondNode.compareTo(c.secondNode);
+        }
+    }
+
+
     /**
      * The {@code ThreadState} is a thread local data structure containing the activations of a single document for
      * a specific logic node.
@@ -112,7 +173,9 @@ public abstract class Node<T extends Node, A extends NodeActivation<T>> extends
         public NavigableMap<Key, RemovedEntry> removed;
         long visitedNeuronRefsChange = -1;
         public long visitedAllowedOption = -1;
-        public long visitedComputeWeight = -1;
+
+        public boolean isQueued = false;
+        public long queueId;
 
         private RidVisited nullRidVisited;
         private RidVisited[] ridVisited = new RidVisited[2 * MAX_RID];
@@ -174,6 +237,7 @@ public abstract class Node<T extends Node, A extends NodeActivation<T>> extends
 
             th = new ThreadState(endRequired, ridRequired);
             threads[threadId] = th;
+            updateEstimatedBytes();
         }
         th.lastUsed = Document.docIdCounter.get();
         return th;
@@ -203,9 +267,28 @@ public abstract class Node<T extends Node, A extends NodeActivation<T>> extends
 
     public abstract String logicToString();
 
-    abstract void apply(Document doc, A act, InterprNode conflict);
+    /**
+     * Collects the next level and-node activations that result from joining the given activation with the
+     * activations of its sibling nodes. Only sibling activations with an id up to {@code maxActId} are considered.
+     * This method does not modify the document, so it may be called concurrently for several activations.
+     *
+     * @param doc
+     * @param act
+     * @param maxActId
+     * @param results
+     */
+    abstract void collectNextLevelActivations(Document doc, A act, int maxActId, List<NextLevelActivation> results);
 
-    public abstract void discover(Document doc, NodeActivation<T> act);
+    /**
+     * Collects the candidates for new next level and-nodes that are supported by the given activation. This method
+     * does not modify the pattern lattice, so it may be called concurrently for several documents. The frequency of
+     * this node itself is not checked here.
+     *
+     * @param doc
+     * @param act
+     * @param results
+     */
+    abstract void collectDiscoveryCandidates(Document doc, NodeActivation<T> act, Collection<DiscoveryCandidate> results);
 
     abstract Collection<Refinement> collectNodeAndRefinements(Refinement newRef);
 
@@ -217,6 +300,32 @@ public abstract class Node<T extends Node, A extends NodeActivation<T>> extends
 
     abstract boolean contains(Refinement ref);
 
+
+    /**
+     * Estimates the size of the logic node, its child entries and its thread states. The activations within the
+     * thread states are accounted in the footprint of their document.
+     */
+    @Override
+    public long estimateBytes() {
+        long b = Footprint.NODE;
+        if (threads != null) {
+            b += Footprint.REFERENCE * threads.length;
+            for (ThreadState th : threads) {
+                if (th != null) {
+                    b += Footprint.threadState(th.activationsEnd != null, th.activationsRid != null);
+                }
+            }
+        }
+        b += Footprint.LATTICE_ENTRY * (
+                Footprint.size(andChildren) +
+                Footprint.size(reverseAndChildren) +
+                Footprint.size(orChildren) +
+                Footprint.size(allOrChildren)
+        );
+        return b;
+    }
+
+
     protected Node() {
     }
 
@@ -338,6 +447,124 @@ public abstract class Node<T extends Node, A extends NodeActivation<T>> extends
     }
 
 
+    void apply(Document doc, A act, InterprNode conflict) {
+        // Check if the activation has been deleted in the meantime.
+        if (act.isRemoved) {
+            return;
+        }
+
+        if (conflict == null && doc.pendingApply != null) {
+            doc.pendingApply.add(act);
+            return;
+        }
+
+        List<NextLevelActivation> nlActs = new ArrayList<>();
+        collectNextLevelActivations(doc, act, Integer.MAX_VALUE, nlActs);
+        apply(doc, act, nlActs, conflict);
+    }
+
+
+    void apply(Document doc, A act, List<NextLevelActivation> nlActs, InterprNode conflict) {
+        if (act.isRemoved) {
+            return;
+        }
+
+        for (NextLevelActivation nlAct : nlActs) {
+            AndNode.addNextLevelActivation(doc, nlAct.act, nlAct.secondAct, nlAct.pnlp, nlAct.r, conflict);
+        }
+
+        if (conflict == null) {
+            OrNode.processCandidate(doc, this, act, false);
+        }
+    }
+
+
+    /**
+     * Returns true if the pending changes of this node may be processed as part of a level-synchronous batch.
+     * This is only the case for lattice nodes without pending removals.
+     *
+     * @param doc
+     * @return
+     */
+    public boolean isBatchable(Document doc) {
+        ThreadState th = getThreadState(doc.threadId, false);
+        return level >= 1 && (th == null || th.removed.isEmpty());
+    }
+
+
+    /**
+     * Processes the pending changes of several queued nodes of the same level. In a first step the added
+     * activations of all the nodes are registered. The joins with the sibling activations are then computed
+     * concurrently using the given pool and finally applied in the same order as in the sequential case.
+     * An activation only sees sibling activations with a lower activation id, so every pair of activations is
+     * joined exactly once.
+     *
+     * @param doc
+     * @param batch
+     * @param pool
+     */
+    public static void processChanges(Document doc, List<Node> batch, ForkJoinPool pool) {
+        List<NodeActivation> acts = new ArrayList<>();
+        doc.pendingApply = acts;
+        try {
+            for (Node n : batch) {
+                n.processChanges(doc);
+            }
+        } finally {
+            doc.pendingApply = null;
+        }
+
+        List<List<NextLevelActivation>> results;
+        if (acts.size() > 1) {
+            try {
+                results = pool.submit(() -> acts.parallelStream()
+                        .map(act -> collectNextLevelActivations(doc, act))
+                        .collect(Collectors.toList())
+                ).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        } else {
+            results = acts.stream()
+                    .map(act -> collectNextLevelActivations(doc, act))
+                    .collect(Collectors.toList());
+        }
+
+        for (int i = 0; i < acts.size(); i++) {
+            NodeActivation act = acts.get(i);
+            act.key.n.apply(doc, act, results.get(i), null);
+        }
+    }
+
+
+    private static List<NextLevelActivation> collectNextLevelActivations(Document doc, NodeActivation act) {
+        List<NextLevelActivation> nlActs = new ArrayList<>();
+        act.key.n.collectNextLevelActivations(doc, act, act.id, nlActs);
+        return nlActs;
+    }
+
+
+    /**
+     * Creates the next level and-nodes for all the valid discovery candidates of the given activation.
+     *
+     * @param doc
+     * @param act
+     */
+    public void discover(Document doc, NodeActivation<T> act) {
+        List<DiscoveryCandidate> candidates = new ArrayList<>();
+        collectDiscoveryCandidates(doc, act, candidates);
+
+        for (DiscoveryCandidate c : candidates) {
+            if (c.isValid()) {
+                AndNode nln = c.createNode(doc.m, doc.threadId);
+                if (nln != null) {
+                    doc.addedNodes.add(nln);
+                }
+            }
+        }
+    }
+
+
     public void count(int threadId) {
         ThreadState<T, A> ts = getThreadState(threadId, false);
         if (ts == null) return;
@@ -346,12 +573,17 @@ public abstract class Node<T extends Node, A extends NodeActivation<T>> extends
             frequency++;
             frequencyHasChanged = true;
 
-            sizeSum += act.key.r.end == null || act.key.r.begin == null || act.key.r.end == Integer.MAX_VALUE ? 1 : Math.max(1, act.key.r.end - act.key.r.begin);
+            sizeSum += computeSize(act.key.r);
             instanceSum++;
         }
     }
 
 
+    static int computeSize(Range r) {
+        return r.end == null || r.begin == null || r.end == Integer.MAX_VALUE ? 1 : Math.max(1, r.end - r.begin);
+    }
+
+
     A processAddedActivation(Document doc, Key<T> ak, Collection<NodeActivation> inputActs, boolean isTrainingAct) {
         if (Document.APPLY_DEBUG_OUTPUT) {
             log.info("add: " + ak + " - " + ak.n);
@@ -416,6 +648,8 @@ public abstract class Node<T extends Node, A extends NodeActivation<T>> extends
         if (ak.rid != null) {
             doc.activationsByRid.put(ak, act);
         }
+
+        doc.estimatedBytes += Footprint.activation(numberOfIndexEntries(th, ak));
     }
 
 
@@ -443,6 +677,16 @@ public abstract class Node<T extends Node, A extends NodeActivation<T>> extends
         if (ak.rid != null) {
             doc.activationsByRid.remove(ak);
         }
+
+        doc.estimatedBytes -= Footprint.activation(numberOfIndexEntries(th, ak));
+    }
+
+
+    private static int numberOfIndexEntries(ThreadState th, Key ak) {
+        return 2 +
+                (th.activationsEnd != null ? 1 : 0) +
+                (th.activationsRid != null ? 1 : 0) +
+                (ak.rid != null ? 1 : 0);
     }
 
 
@@ -594,8 +838,9 @@ public abstract class Node<T extends Node, A extends NodeActivation<T>> extends
 
             if (cp == null) {
                 if (discoverPatterns) return false;
-                cp = AndNode.createNextLevelNode(m, threadId, this, nRef, discoverPatterns).provider;
-                if (cp == null) return false;
+                AndNode nln = AndNode.createNextLevelNode(m, threadId, this, nRef, discoverPatterns);
+                if (nln == null) return false;
+                cp = nln.provider;
             }
 
             Integer nOffset = Utils.nullSafeMin(ref.getRelativePosition(), offset);
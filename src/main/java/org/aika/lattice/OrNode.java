@@ -49,6 +49,9 @@ public class OrNode extends Node<OrNode, Activation> {
     public TreeMap<Integer, TreeSet<Provider<Node>>> parents = new TreeMap<>();
     public TreeMap<Integer, TreeSet<Provider<Node>>> allParents = new TreeMap<>();
 
+    // Maps the provider id of a parent node to its rid offsets, again using Integer.MIN_VALUE as the null offset.
+    public IntHashMap<int[]> parentIndex = new IntHashMap<>();
+
     public Neuron neuron = null;
     public Node requiredNode;
 
@@ -58,8 +61,8 @@ public class OrNode extends Node<OrNode, Activation> {
     public OrNode(Model m) {
         super(m, -1); // Or-node activations always need to be processed first!
 
-        m.stat.nodes++;
-        m.stat.orNodes++;
+        m.metrics.nodes.increment();
+        m.metrics.orNodes.increment();
 
         endRequired = true;
         ridRequired = true;
@@ -99,6 +102,11 @@ public class OrNode extends Node<OrNode, Activation> {
 
     @Override
     public void deleteActivation(Document doc, Activation act) {
+        if(act.isPruned) {
+            act.isPruned = false;
+            doc.prunedActivations--;
+        }
+
         ThreadState th = getThreadState(doc.threadId, false);
         if(th == null || th.activations.isEmpty()) {
             doc.activatedNeurons.remove(neuron.get());
@@ -106,30 +114,92 @@ public class OrNode extends Node<OrNode, Activation> {
     }
 
 
-    private void retrieveInputs(Document doc, Range inputR, Integer rid, List<NodeActivation<?>> inputs, Integer pRidOffset, TreeSet<Provider<Node>> parents) {
-        // Optimization the number of parents can get very large, thus we need to avoid iterating over all of them.
-        if(parents.size() > 10) {
-            retrieveInputs(doc, null, inputR, rid, inputs, pRidOffset, parents);
+    /**
+     * Collects the activations of all parent nodes that match the given range and rid. Since the number of parents
+     * can get very large, either the parents or the nodes activated within the document are iterated, depending on
+     * which of them is smaller. In the second case the rid offsets of an activated node are looked up in the
+     * parent index.
+     *
+     * <p>The parents and the parent index are only read under the read lock of this node, since they may be modified
+     * concurrently by the converter. The activations of the parents are selected after the lock has been released.
+     */
+    private void retrieveInputs(Document doc, Range inputR, Integer rid, List<NodeActivation<?>> inputs) {
+        List<Provider<Node>> parentNodes = new ArrayList<>();
+        List<Integer> parentRidOffsets = new ArrayList<>();
+
+        lock.acquireReadLock();
+        if(parentIndex.size() <= doc.activatedNodes.size()) {
+            for (Map.Entry<Integer, TreeSet<Provider<Node>>> me : parents.entrySet()) {
+                Integer pRidOffset = me.getKey() != Integer.MIN_VALUE ? me.getKey() : null;
+                for(Provider<Node> pn: me.getValue()) {
+                    parentNodes.add(pn);
+                    parentRidOffsets.add(pRidOffset);
+                }
+            }
         } else {
-            for(Provider<Node> pn: parents) {
-                retrieveInputs(doc, pn.get(), inputR, rid, inputs, pRidOffset, parents);
+            for(Node n: doc.activatedNodes) {
+                int[] ridOffsets = parentIndex.get(n.provider.id);
+                if(ridOffsets == null) continue;
+
+                for(int ro: ridOffsets) {
+                    parentNodes.add(n.provider);
+                    parentRidOffsets.add(ro != Integer.MIN_VALUE ? ro : null);
+                }
             }
         }
+        lock.releaseReadLock();
+
+        for(int i = 0; i < parentNodes.size(); i++) {
+            retrieveInputs(doc, parentNodes.get(i).get(), inputR, rid, inputs, parentRidOffsets.get(i));
+        }
     }
 
 
-    private void retrieveInputs(Document doc, Node<?, NodeActivation<?>> n, Range inputR, Integer rid, List<NodeActivation<?>> inputs, Integer pRidOffset, TreeSet<Provider<Node>> parents) {
-        Stream<NodeActivation> s = n != null ?
-                NodeActivation.select(doc, n, Utils.nullSafeAdd(rid, true, pRidOffset, false), inputR, EQUALS, EQUALS, null, null) :
-                NodeActivation.select(doc, Utils.nullSafeAdd(rid, true, pRidOffset, false), inputR, EQUALS, EQUALS, null, null);
+    private void retrieveInputs(Document doc, Node n, Range inputR, Integer rid, List<NodeActivation<?>> inputs, Integer pRidOffset) {
+        Stream<NodeActivation> s = NodeActivation.select(doc, n, Utils.nullSafeAdd(rid, true, pRidOffset, false), inputR, EQUALS, EQUALS, null, null);
         for(NodeActivation iAct: s.collect(Collectors.toList())) {
-            if(!iAct.isRemoved && parents.contains(iAct.key.n.provider) && !checkSelfReferencing(doc, iAct)) {
+            if(!iAct.isRemoved && !checkSelfReferencing(doc, iAct)) {
                 inputs.add(iAct);
             }
         }
     }
 
 
+    private void addToParentIndex(int key, Provider<Node> pn) {
+        int[] ridOffsets = parentIndex.get(pn.id);
+        if(ridOffsets == null) {
+            parentIndex.put(pn.id, new int[] {key});
+            return;
+        }
+        for(int ro: ridOffsets) {
+            if(ro == key) return;
+        }
+        ridOffsets = Arrays.copyOf(ridOffsets, ridOffsets.length + 1);
+        ridOffsets[ridOffsets.length - 1] = key;
+        parentIndex.put(pn.id, ridOffsets);
+    }
+
+
+    private void removeFromParentIndex(int key, Provider<Node> pn) {
+        int[] ridOffsets = parentIndex.get(pn.id);
+        if(ridOffsets == null) return;
+
+        int[] result = new int[ridOffsets.length];
+        int i = 0;
+        for(int ro: ridOffsets) {
+            if(ro != key) {
+                result[i++] = ro;
+            }
+        }
+
+        if(i == 0) {
+            parentIndex.remove(pn.id);
+        } else if(i < ridOffsets.length) {
+            parentIndex.put(pn.id, Arrays.copyOf(result, i));
+        }
+    }
+
+
     Activation processAddedActivation(Document doc, Key<OrNode> ak, Collection<NodeActivation> inputActs, boolean isTrainingAct) {
         Activation act = super.processAddedActivation(doc, ak, inputActs, isTrainingAct);
         if(act != null) {
@@ -156,10 +226,7 @@ public class OrNode extends Node<OrNode, Activation> {
         Integer rid = Utils.nullSafeSub(ak.rid, true, ridOffset, false);
 
         List<NodeActivation<?>> inputs = new ArrayList<>();
-
-        for (Map.Entry<Integer, TreeSet<Provider<Node>>> me : parents.entrySet()) {
-            retrieveInputs(doc, r, rid, inputs, me.getKey() != Integer.MIN_VALUE ? me.getKey() : null, me.getValue());
-        }
+        retrieveInputs(doc, r, rid, inputs);
 
         if(inputs.isEmpty()) return;
 
@@ -236,6 +303,11 @@ public class OrNode extends Node<OrNode, Activation> {
     }
 
 
+    @Override
+    void collectNextLevelActivations(Document doc, Activation act, int maxActId, List<NextLevelActivation> results) {
+    }
+
+
     @Override
     public void apply(Document doc, Activation act, InterprNode conflict) {
         if(conflict == null) {
@@ -245,7 +317,7 @@ public class OrNode extends Node<OrNode, Activation> {
 
 
     @Override
-    public void discover(Document doc, NodeActivation act) {
+    void collectDiscoveryCandidates(Document doc, NodeActivation<OrNode> act, Collection<DiscoveryCandidate> results) {
     }
 
 
@@ -308,7 +380,12 @@ public class OrNode extends Node<OrNode, Activation> {
             p.put(key, pn);
         }
         pn.add(in.provider);
+        if(!all) {
+            addToParentIndex(key, in.provider);
+        }
         lock.releaseWriteLock();
+
+        provider.m.processingListener.onOrNodeInput(this, in);
     }
 
 
@@ -340,6 +417,9 @@ public class OrNode extends Node<OrNode, Activation> {
                 p.remove(key);
             }
         }
+        if(!all) {
+            removeFromParentIndex(key, in.provider);
+        }
         lock.releaseWriteLock();
     }
 
@@ -350,22 +430,28 @@ public class OrNode extends Node<OrNode, Activation> {
 
         super.remove(m);
 
-        lock.acquireReadLock();
         removeParents(true);
         removeParents(false);
-        lock.releaseReadLock();
     }
 
 
     public void removeParents(boolean all) {
-        for(Map.Entry<Integer, TreeSet<Provider<Node>>> me: (all ? allParents : parents).entrySet()) {
-            for(Provider<Node> p: me.getValue()) {
-                Node pn = p.get();
+        lock.acquireWriteLock();
+        TreeMap<Integer, TreeSet<Provider<Node>>> p = all ? allParents : parents;
+        TreeMap<Integer, TreeSet<Provider<Node>>> removed = new TreeMap<>(p);
+        p.clear();
+        if(!all) {
+            parentIndex.clear();
+        }
+        lock.releaseWriteLock();
+
+        for(Map.Entry<Integer, TreeSet<Provider<Node>>> me: removed.entrySet()) {
+            for(Provider<Node> pp: me.getValue()) {
+                Node pn = pp.get();
                 pn.removeOrChild(new OrEntry(me.getKey() != Integer.MIN_VALUE ? me.getKey() : null, provider), all);
                 pn.provider.setModified();
             }
         }
-        (all ? allParents : parents).clear();
     }
 
 
@@ -397,6 +483,23 @@ public class OrNode extends Node<OrNode, Activation> {
     }
 
 
+    @Override
+    public long estimateBytes() {
+        return super.estimateBytes() + estimateBytes(parents) + estimateBytes(allParents);
+    }
+
+
+    private static long estimateBytes(TreeMap<Integer, TreeSet<Provider<Node>>> p) {
+        if (p == null) return 0;
+
+        long b = 0;
+        for (TreeSet<Provider<Node>> s: p.values()) {
+            b += Footprint.TREE_MAP_ENTRY + Footprint.TREE_SET + Footprint.TREE_MAP_ENTRY * s.size();
+        }
+        return b;
+    }
+
+
     public String logicToString() {
         StringBuilder sb = new StringBuilder();
         sb.append("OR[");
@@ -458,7 +561,9 @@ public class OrNode extends Node<OrNode, Activation> {
 
             int sa = in.readInt();
             for(int j = 0; j < sa; j++) {
-                ridParents.add(m.lookupNodeProvider(in.readInt()));
+                Provider<Node> pn = m.lookupNodeProvider(in.readInt());
+                ridParents.add(pn);
+                addToParentIndex(ridOffset, pn);
             }
         }
     }
@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.lattice;
+
+
+import org.aika.IntHashMap;
+import org.aika.Model;
+import org.aika.corpus.Document;
+import org.aika.lattice.Node.DiscoveryCandidate;
+import org.aika.lattice.Node.ThreadState;
+import org.aika.neuron.Activation;
+import org.aika.neuron.INeuron;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The {@code PatternDiscovery} mines frequent patterns over a large corpus of documents. In contrast to
+ * {@code Document.train}, the documents are only counted during processing. The counts are collected per thread
+ * slot of the model and the discovery candidates are only collected, but not yet created. After each batch of
+ * documents, the counts of all thread slots are merged into the nodes, the weights of the and-nodes are updated and
+ * every unique candidate is turned into a new and-node exactly once.
+ *
+ * <p>Since the frequencies of the nodes are only updated during the merge, the frequency check of a node while
+ * counting a document uses the merged frequency plus the counts of the current thread slot.
+ *
+ * @author Lukas Molzberger
+ */
+public class PatternDiscovery {
+
+    public final Model m;
+    public int batchSize = 100;
+
+    private final Counts[] counts;
+
+
+    public PatternDiscovery(Model m) {
+        this.m = m;
+        counts = new Counts[m.numberOfThreads];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new Counts();
+        }
+    }
+
+
+    /**
+     * Counts the activations of a processed document and collects its discovery candidates. This method may be called
+     * concurrently for documents of different thread slots, but not concurrently to {@code merge}.
+     *
+     * @param doc
+     */
+    public void count(Document doc) {
+        Counts c = counts[doc.threadId];
+
+        for (Node n : doc.activatedNodes) {
+            ThreadState<?, NodeActivation<?>> th = n.getThreadState(doc.threadId, false);
+            if (th == null) continue;
+
+            Count nc = c.nodes.get(n.provider.id);
+            if (nc == null) {
+                nc = new Count(n);
+                c.nodes.put(n.provider.id, nc);
+            }
+
+            for (NodeActivation act : th.activations.values()) {
+                nc.frequency++;
+                nc.sizeSum += Node.computeSize(act.key.r);
+                nc.instanceSum++;
+            }
+
+            if (!n.isBlocked && n.frequency + nc.frequency >= Node.minFrequency) {
+                for (NodeActivation act : th.activations.values()) {
+                    n.collectDiscoveryCandidates(doc, act, c.candidates);
+                }
+            }
+        }
+
+        for (INeuron n : doc.finallyActivatedNeurons) {
+            ThreadState<OrNode, Activation> th = n.node.get().getThreadState(doc.threadId, false);
+            if (th == null) continue;
+
+            NeuronCount nc = c.neurons.get(n.provider.id);
+            if (nc == null) {
+                nc = new NeuronCount(n);
+                c.neurons.put(n.provider.id, nc);
+            }
+
+            for (Activation act : th.activations.values()) {
+                if (act.finalState != null && act.finalState.value > 0.0) {
+                    nc.activationSum += act.finalState.value;
+                    nc.numberOfActivations++;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Merges the counts of all thread slots into the nodes and neurons, updates the weights of the and-nodes and
+     * creates the new and-nodes for the collected discovery candidates.
+     *
+     * @return The newly created and-nodes.
+     */
+    public synchronized List<AndNode> merge() {
+        long v = Node.visitedCounter.addAndGet(1);
+
+        m.numberOfPositions += m.numberOfPositionsDelta.getAndSet(0);
+
+        TreeSet<Node> changedNodes = new TreeSet<>();
+        TreeSet<DiscoveryCandidate> candidates = new TreeSet<>();
+        for (Counts c : counts) {
+            for (Count nc : c.nodes.values()) {
+                Node n = nc.n;
+                n.frequency += nc.frequency;
+                n.sizeSum += nc.sizeSum;
+                n.instanceSum += nc.instanceSum;
+                n.frequencyHasChanged = true;
+                changedNodes.add(n);
+            }
+
+            for (NeuronCount nc : c.neurons.values()) {
+                nc.n.activationSum += nc.activationSum;
+                nc.n.numberOfActivations += nc.numberOfActivations;
+            }
+
+            candidates.addAll(c.candidates);
+            c.clear();
+        }
+
+        for (Node n : changedNodes) {
+            n.computeNullHyp(m);
+            if (n.frequencyHasChanged && !n.isBlocked && n.isFrequent()) {
+                n.frequencyHasChanged = false;
+
+                if (n instanceof AndNode) {
+                    ((AndNode) n).updateWeight(m, v);
+                }
+            }
+        }
+
+        m.weightUpdateScheduler.processDue(v);
+        m.weightUpdateScheduler.flush();
+
+        List<AndNode> results = new ArrayList<>();
+        for (DiscoveryCandidate c : candidates) {
+            if (!c.n.isRemoved && !c.n.isBlocked && c.n.isFrequent() && c.isValid()) {
+                AndNode nln = c.createNode(m, m.defaultThreadId);
+                if (nln != null) {
+                    results.add(nln);
+                }
+            }
+        }
+        return results;
+    }
+
+
+    /**
+     * Processes the given texts in batches of {@code batchSize} documents. The documents of a batch are distributed
+     * over the thread slots of the model and processed concurrently. After each batch the counts are merged.
+     *
+     * @param texts
+     * @param initializer Adds the input activations to a newly created document.
+     * @return The newly created and-nodes.
+     */
+    public List<AndNode> process(List<String> texts, DocumentInitializer initializer) {
+        ExecutorService executor = Executors.newFixedThreadPool(m.numberOfThreads);
+        BlockingQueue<Integer> threadIds = new ArrayBlockingQueue<>(m.numberOfThreads);
+        for (int i = 0; i < m.numberOfThreads; i++) {
+            threadIds.add(i);
+        }
+
+        List<AndNode> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < texts.size(); i += batchSize) {
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (String txt : texts.subList(i, Math.min(texts.size(), i + batchSize))) {
+                    tasks.add(() -> {
+                        int threadId = threadIds.take();
+                        try {
+                            Document doc = m.createDocument(txt, threadId);
+                            try {
+                                initializer.addInputs(doc);
+                                doc.process();
+                                count(doc);
+                            } finally {
+                                // Release the thread slot even if the document failed.
+                                doc.clearActivations();
+                            }
+                        } finally {
+                            threadIds.add(threadId);
+                        }
+                        return null;
+                    });
+                }
+
+                for (Future<Void> f : executor.invokeAll(tasks)) {
+                    f.get();
+                }
+
+                results.addAll(merge());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdown();
+        }
+        return results;
+    }
+
+
+    public interface DocumentInitializer {
+        void addInputs(Document doc);
+    }
+
+
+    private static class Counts {
+        IntHashMap<Count> nodes = new IntHashMap<>();
+        IntHashMap<NeuronCount> neurons = new IntHashMap<>();
+        List<DiscoveryCandidate> candidates = new ArrayList<>();
+
+        void clear() {
+            nodes.clear();
+            neurons.clear();
+            candidates.clear();
+        }
+    }
+
+
+    private static class Count {
+        Node n;
+        int frequency;
+        int sizeSum;
+        int instanceSum;
+
+        Count(Node n) {
+            this.n = n;
+        }
+    }
+
+
+    private static class NeuronCount {
+        INeuron n;
+        double activationSum;
+        int numberOfActivations;
+
+        NeuronCount(INeuron n) {
+            this.n = n;
+        }
+    }
+}
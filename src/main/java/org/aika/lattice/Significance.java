@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.lattice;
+
+
+import org.apache.commons.math3.exception.NotPositiveException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+import org.apache.commons.math3.special.Beta;
+import org.apache.commons.math3.special.Erf;
+import org.apache.commons.math3.special.Gamma;
+
+/**
+ * Computes the cumulative probability of the binomial distribution that is used as the significance of an and-node.
+ * Depending on the number of trials n and the probability p, one of the following methods is chosen:
+ *
+ * <ul>
+ * <li>The normal approximation, if the Berry-Esseen bound 0.4748 * (p^2 + q^2) / sqrt(n * p * q) is below
+ * {@code MAX_ERROR}.</li>
+ * <li>The Poisson approximation with lambda = n * p, if p is below {@code MAX_ERROR}. The total variation distance
+ * between both distributions is bounded by p (Barbour and Hall).</li>
+ * <li>Otherwise the exact value. For a small standard deviation, the probabilities are summed up starting at k
+ * towards the tail, using the cached log-factorials for the first term and the ratio of successive terms for the
+ * others. The summation stops as soon as the terms become negligible. Since the number of non-negligible terms grows
+ * with the standard deviation, the regularized incomplete beta function is used for larger ones.</li>
+ * </ul>
+ *
+ * Hence, the absolute error of the result is bounded by {@code MAX_ERROR}.
+ *
+ * @author Lukas Molzberger
+ */
+public class Significance {
+
+    public static double MAX_ERROR = 0.001;
+
+    private static final double BERRY_ESSEEN_CONSTANT = 0.4748;
+    private static final double EPSILON = 1e-17;
+    private static final int MAX_TABLE_SIZE = 1 << 20;
+    private static final double MAX_SUMMATION_SD = 20.0;
+
+    private static volatile double[] logFactorials = new double[]{0.0};
+
+
+    public enum Method {
+        EXACT,
+        POISSON,
+        NORMAL
+    }
+
+
+    public static Method selectMethod(int n, double p) {
+        double q = 1.0 - p;
+        double variance = n * p * q;
+        if (variance > 0.0 && BERRY_ESSEEN_CONSTANT * (p * p + q * q) / Math.sqrt(variance) <= MAX_ERROR) {
+            return Method.NORMAL;
+        }
+        if (p <= MAX_ERROR) {
+            return Method.POISSON;
+        }
+        return Method.EXACT;
+    }
+
+
+    /**
+     * Computes P(X <= k) for a binomially distributed X with n trials and the success probability p.
+     *
+     * @param n
+     * @param p
+     * @param k
+     * @return
+     */
+    public static double cumulativeProbability(int n, double p, int k) {
+        if (n < 0) throw new NotPositiveException(n);
+        if (p < 0.0 || p > 1.0) throw new OutOfRangeException(p, 0, 1);
+
+        if (k < 0) return 0.0;
+        if (k >= n) return 1.0;
+        if (p == 0.0) return 1.0;
+        if (p == 1.0) return 0.0;
+
+        switch (selectMethod(n, p)) {
+            case NORMAL:
+                return normal(n, p, k);
+            case POISSON:
+                return poisson(n * p, k);
+            default:
+                return exact(n, p, k);
+        }
+    }
+
+
+    static double normal(int n, double p, int k) {
+        double x = (k + 0.5 - n * p) / Math.sqrt(n * p * (1.0 - p));
+        return 0.5 * Erf.erfc(-x / Math.sqrt(2.0));
+    }
+
+
+    static double poisson(double lambda, int k) {
+        double t = Math.exp(k * Math.log(lambda) - lambda - logFactorial(k));
+
+        if (k < lambda) {
+            // Lower tail: the terms are decreasing towards 0.
+            double sum = t;
+            for (int i = k; i > 0 && t > EPSILON * sum; i--) {
+                t *= i / lambda;
+                sum += t;
+            }
+            return Math.min(1.0, sum);
+        } else {
+            // Upper tail: the terms are decreasing towards infinity.
+            double sum = 0.0;
+            for (int i = k + 1; ; i++) {
+                t *= lambda / i;
+                sum += t;
+                if (t <= EPSILON * sum) break;
+            }
+            return Math.max(0.0, 1.0 - sum);
+        }
+    }
+
+
+    static double exact(int n, double p, int k) {
+        double q = 1.0 - p;
+        if (n * p * q > MAX_SUMMATION_SD * MAX_SUMMATION_SD) {
+            return 1.0 - Beta.regularizedBeta(p, k + 1.0, n - k);
+        }
+
+        double logP = Math.log(p);
+        double logQ = Math.log(q);
+
+        if (k < n * p) {
+            // Lower tail: the terms are decreasing towards 0.
+            double t = Math.exp(logBinomial(n, k) + k * logP + (n - k) * logQ);
+            double sum = t;
+            for (int i = k; i > 0 && t > EPSILON * sum; i--) {
+                t *= (i / (double) (n - i + 1)) * (q / p);
+                sum += t;
+            }
+            return Math.min(1.0, sum);
+        } else {
+            // Upper tail: the terms are decreasing towards n.
+            double t = Math.exp(logBinomial(n, k + 1) + (k + 1) * logP + (n - k - 1) * logQ);
+            double sum = t;
+            for (int i = k + 1; i < n && t > EPSILON * sum; i++) {
+                t *= ((n - i) / (double) (i + 1)) * (p / q);
+                sum += t;
+            }
+            return Math.max(0.0, 1.0 - sum);
+        }
+    }
+
+
+    private static double logBinomial(int n, int k) {
+        return logFactorial(n) - logFactorial(k) - logFactorial(n - k);
+    }
+
+
+    static double logFactorial(int n) {
+        double[] table = logFactorials;
+        if (n < table.length) return table[n];
+        if (n >= MAX_TABLE_SIZE) return Gamma.logGamma(n + 1.0);
+
+        synchronized (Significance.class) {
+            table = logFactorials;
+            if (n >= table.length) {
+                double[] newTable = new double[Math.min(MAX_TABLE_SIZE, Math.max(n + 1, 2 * table.length))];
+                System.arraycopy(table, 0, newTable, 0, table.length);
+                for (int i = table.length; i < newTable.length; i++) {
+                    newTable[i] = Gamma.logGamma(i + 1.0);
+                }
+                logFactorials = newTable;
+                table = newTable;
+            }
+        }
+        return table[n];
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.lattice;
+
+
+import org.aika.Model;
+import org.aika.Provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * The {@code WeightUpdateScheduler} keeps track of the and-nodes whose weight needs to be re-evaluated once the
+ * number of positions of the model has reached a certain value. The entries of the queue are immutable snapshots of
+ * the notify position of a node, so that the order of the heap never changes after an entry has been inserted.
+ * If a node is rescheduled, its old entry is not removed, but skipped later on because its position no longer
+ * matches the current notify position of the node.
+ *
+ * <p>A due node that is not evaluated, for instance because its frequency is still too low, is postponed and stays in
+ * the schedule.
+ *
+ * <p>If an executor is set, the due re-evaluations are run as a single batch on the executor instead of on the
+ * calling document thread. In this case {@code Document.train} returns while the batch may still be running, and
+ * the caller has to call {@code flush} before it relies on the updated weights, for instance before the model is
+ * stored or the training ends.
+ *
+ * @author Lukas Molzberger
+ */
+public class WeightUpdateScheduler {
+
+    public final Model m;
+    public Executor executor;
+
+    private final PriorityBlockingQueue<Entry> queue = new PriorityBlockingQueue<>();
+    private int pending = 0;
+
+
+    public WeightUpdateScheduler(Model m) {
+        this.m = m;
+    }
+
+
+    /**
+     * Schedules the re-evaluation of the given node at its current notify position.
+     *
+     * @param n
+     */
+    public void schedule(AndNode n) {
+        queue.add(new Entry(n.numberOfPositionsNotify, n.provider));
+    }
+
+
+    public int size() {
+        return queue.size();
+    }
+
+
+    /**
+     * Removes all the nodes from the queue whose notify position has been reached.
+     *
+     * @return The due nodes.
+     */
+    public List<AndNode> pollDue() {
+        List<AndNode> results = new ArrayList<>();
+        while (true) {
+            Entry e = queue.peek();
+            if (e == null || e.notifyPos > m.numberOfPositions) break;
+
+            e = queue.poll();
+            if (e == null) break;
+            if (e.notifyPos > m.numberOfPositions) {
+                queue.add(e);
+                break;
+            }
+
+            AndNode n = e.provider.get();
+            if (n.numberOfPositionsNotify == e.notifyPos && !n.isRemoved) {
+                results.add(n);
+            }
+        }
+        return results;
+    }
+
+
+    /**
+     * Re-evaluates the weights of all due nodes, either directly or on the executor.
+     *
+     * @param v The visited id. A node is evaluated at most once for the same visited id.
+     */
+    public void processDue(long v) {
+        List<AndNode> due = pollDue();
+        if (due.isEmpty()) return;
+
+        if (executor == null) {
+            updateWeights(due, v);
+        } else {
+            synchronized (this) {
+                pending++;
+            }
+            executor.execute(() -> {
+                try {
+                    updateWeights(due, v);
+                } finally {
+                    synchronized (this) {
+                        pending--;
+                        notifyAll();
+                    }
+                }
+            });
+        }
+    }
+
+
+    /**
+     * Waits until all the batches that have been submitted to the executor are finished.
+     */
+    public synchronized void flush() {
+        try {
+            while (pending > 0) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private void updateWeights(List<AndNode> nodes, long v) {
+        for (AndNode n : nodes) {
+            if (!n.updateWeight(m, v)) {
+                n.postponeWeightUpdate(m);
+            }
+        }
+    }
+
+
+    private static class Entry implements Comparable<Entry> {
+        final int notifyPos;
+        final Provider<AndNode> provider;
+
+        Entry(int notifyPos, Provider<AndNode> provider) {
+            this.notifyPos = notifyPos;
+            this.provider = provider;
+        }
+
+
+        @Override
+        public int compareTo(Entry e) {
+            int r = Integer.compare(notifyPos, e.notifyPos);
+            if (r != 0) return r;
+            return provider.compareTo(e.provider);
+        }
+    }
+}
@@ -34,11 +34,17 @@ public final class Activation extends NodeActivation<OrNode> {
     public double upperBound;
     public double lowerBound;
 
+    // The sums of the bounds before the transfer function, only maintained in the incremental bounds mode.
+    public double upperBoundSum;
+    public double lowerBoundSum;
+    public boolean boundSumsValid;
+
     public Rounds rounds = new Rounds();
 
     public State finalState;
 
     public boolean ubQueued = false;
+    public boolean isPruned = false;
     public boolean isQueued = false;
     public long queueId;
 
@@ -61,6 +67,7 @@ public final class Activation extends NodeActivation<OrNode> {
             neuronOutputs.add(sa);
         } else {
             neuronInputs.add(sa);
+            boundSumsValid = false;
         }
     }
 
@@ -70,7 +77,8 @@ public final class Activation extends NodeActivation<OrNode> {
             neuronOutputs.remove(sa);
         } else {
             neuronInputs.remove(sa);
-        };
+            boundSumsValid = false;
+        }
     }
 
     /**
@@ -81,6 +89,11 @@ public final class Activation extends NodeActivation<OrNode> {
         public final Activation input;
         public final Activation output;
 
+        // The summands of this link within the bound sums of the output activation.
+        public double upperBoundSummand;
+        public double lowerBoundSummand;
+        public boolean isSuppressing;
+
         public static Comparator<SynapseActivation> INPUT_COMP = new Comparator<SynapseActivation>() {
             @Override
             public int compare(SynapseActivation sa1, SynapseActivation sa2) {
@@ -140,8 +153,9 @@ public final class Activation extends NodeActivation<OrNode> {
         }
 
         public State get(int r) {
-            Map.Entry<Integer, State> me = rounds.floorEntry(r);
-            return me != null ? me.getValue() : State.ZERO;
+            // floorKey does not create an entry object, in contrast to floorEntry.
+            Integer fr = rounds.floorKey(r);
+            return fr != null ? rounds.get(fr) : State.ZERO;
         }
 
         public Rounds copy() {
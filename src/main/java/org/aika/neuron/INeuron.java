@@ -58,10 +58,27 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
 
     private static final Logger log = LoggerFactory.getLogger(INeuron.class);
 
+    /**
+     * The version of the serialized neuron format. Version 1 is the format without the {@code minUpperBound}.
+     */
+    public static final int FORMAT_VERSION = 2;
+
     public static double WEIGHT_TOLERANCE = 0.001;
     public static double TOLERANCE = 0.000001;
     public static int MAX_SELF_REFERENCING_DEPTH = 5;
 
+    /**
+     * If enabled, the bound sums of each activation are kept and only updated by the delta of a single input link
+     * whenever the bounds of an input activation change, instead of re-summing all the inputs.
+     */
+    public static boolean INCREMENTAL_BOUNDS = false;
+
+    /**
+     * Approximate mode: Activations whose upper bound does not exceed this value are not propagated into the lattice.
+     * The default of 0.0 corresponds to the exact mode. It can be overridden per neuron.
+     */
+    public static double MIN_UPPER_BOUND = 0.0;
+
     public String label;
 
     public volatile double bias;
@@ -81,6 +98,9 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
     public boolean isBlocked;
     public boolean noTraining;
 
+    // Overrides MIN_UPPER_BOUND for this neuron if set.
+    public Double minUpperBound;
+
     public volatile double activationSum;
     public volatile int numberOfActivations;
 
@@ -159,6 +179,19 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
     }
 
 
+    /**
+     * Returns the upper bound that an activation of this neuron needs to exceed in order to be propagated into the
+     * lattice. Input activations are always propagated.
+     *
+     * @param act
+     * @return
+     */
+    public double getMinUpperBound(Activation act) {
+        if (act.isInput) return 0.0;
+        return minUpperBound != null ? minUpperBound : MIN_UPPER_BOUND;
+    }
+
+
     public double avgActivation() {
         return numberOfActivations > 0.0 ? activationSum / numberOfActivations : 1.0;
     }
@@ -206,25 +239,26 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
 
 
     public void computeBounds(Activation act) {
+        if (INCREMENTAL_BOUNDS && act.boundSumsValid) {
+            act.upperBound = transferFunction(act.upperBoundSum);
+            act.lowerBound = transferFunction(act.lowerBoundSum);
+            return;
+        }
+
         double ub = bias + posRecSum - (negDirSum + negRecSum);
         double lb = bias + posRecSum - (negDirSum + negRecSum);
 
         for (SynapseActivation sa : act.neuronInputs) {
-            Synapse s = sa.s;
-            Activation iAct = sa.input;
+            computeBoundsSummands(act, sa, true);
 
-            if (iAct == act || iAct.isRemoved) continue;
-
-            if (s.isNegative()) {
-                if (!checkSelfReferencing(act.key.o, iAct.key.o, null, 0) && act.key.o.contains(iAct.key.o, true)) {
-                    ub += iAct.lowerBound * s.w;
-                }
+            ub += sa.upperBoundSummand;
+            lb += sa.lowerBoundSummand;
+        }
 
-                lb += s.w;
-            } else {
-                ub += iAct.upperBound * s.w;
-                lb += iAct.lowerBound * s.w;
-            }
+        if (INCREMENTAL_BOUNDS) {
+            act.upperBoundSum = ub;
+            act.lowerBoundSum = lb;
+            act.boundSumsValid = true;
         }
 
         act.upperBound = transferFunction(ub);
@@ -232,45 +266,140 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
     }
 
 
-    public State computeWeight(int round, Activation act, SearchNode sn, Document doc) {
-        Coverage c = sn.getCoverage(act.key.o);
-        if(c == Coverage.UNKNOWN) return State.ZERO;
+    /**
+     * Applies the changed bounds of the given activation to the bound sums of its output activations. Output
+     * activations whose sums have not been computed yet are left alone, since they will be computed from scratch.
+     *
+     * @param iAct
+     */
+    public static void updateOutputBounds(Activation iAct) {
+        for (SynapseActivation sa : iAct.neuronOutputs) {
+            Activation oAct = sa.output;
+            if (!oAct.boundSumsValid) continue;
+
+            double oldUb = sa.upperBoundSummand;
+            double oldLb = sa.lowerBoundSummand;
 
-        double st = bias - (negDirSum + negRecSum);
-        double[] sum = {st, 0.0};
+            computeBoundsSummands(oAct, sa, false);
 
-        int fired = -1;
+            oAct.upperBoundSum += sa.upperBoundSummand - oldUb;
+            oAct.lowerBoundSum += sa.lowerBoundSummand - oldLb;
+        }
+    }
 
-        for (InputState is: getInputStates(act, round, sn)) {
-            Synapse s = is.sa.s;
-            Activation iAct = is.sa.input;
 
-            if (iAct == act || iAct.isRemoved) continue;
+    private static void computeBoundsSummands(Activation act, SynapseActivation sa, boolean checkConflicts) {
+        Synapse s = sa.s;
+        Activation iAct = sa.input;
 
-            int t = s.key.isRecurrent ? REC : DIR;
-            sum[t] += is.s.value * s.w;
+        if (iAct == act || iAct.isRemoved) {
+            sa.upperBoundSummand = 0.0;
+            sa.lowerBoundSummand = 0.0;
+            return;
+        }
 
-            if (!s.key.isRecurrent && !s.isNegative() && sum[DIR] + sum[REC] >= 0.0 && fired < 0) {
-                fired = iAct.rounds.get(round).fired + 1;
+        if (s.isNegative()) {
+            if (checkConflicts) {
+                sa.isSuppressing = !checkSelfReferencing(act.key.o, iAct.key.o, null, 0) && act.key.o.contains(iAct.key.o, true);
             }
+            sa.upperBoundSummand = sa.isSuppressing ? iAct.lowerBound * s.w : 0.0;
+            sa.lowerBoundSummand = s.w;
+        } else {
+            sa.upperBoundSummand = iAct.upperBound * s.w;
+            sa.lowerBoundSummand = iAct.lowerBound * s.w;
         }
+    }
 
-        double drSum = sum[DIR] + sum[REC];
 
-        // Compute only the recurrent part is above the threshold.
-        NormWeight newWeight = NormWeight.create(
-                c == Coverage.SELECTED ? (sum[DIR] + negRecSum) < 0.0 ? Math.max(0.0, drSum) : sum[REC] - negRecSum : 0.0,
-                (sum[DIR] + negRecSum) < 0.0 ? Math.max(0.0, sum[DIR] + negRecSum + maxRecurrentSum) : maxRecurrentSum
-        );
+    public State computeWeight(int round, Activation act, SearchNode sn, Document doc) {
+        StateKernel k = doc.stateKernel;
+        computeWeight(round, act, sn, doc, k);
+        return k.toState();
+    }
+
+
+    /**
+     * Allocation free version of {@code computeWeight}, which writes the resulting state into the result slots of
+     * the given kernel.
+     */
+    public void computeWeight(int round, Activation act, SearchNode sn, Document doc, StateKernel k) {
+        Coverage c = sn.getCoverage(act.key.o);
+        if(c == Coverage.UNKNOWN) {
+            k.setZero();
+            return;
+        }
+
+        gatherInputStates(act, round, sn, k);
+        k.evaluate(bias - (negDirSum + negRecSum), negRecSum, maxRecurrentSum, c == Coverage.SELECTED);
 
-        if (doc.debugActId == act.id && doc.debugActWeight <= newWeight.w) {
-            storeDebugOutput(doc, act, newWeight, drSum, round, sn);
+        if (doc.debugActId == act.id && doc.debugActWeight <= k.weight) {
+            storeDebugOutput(doc, act, NormWeight.create(k.weight, k.norm), k.sum, round, sn);
         }
+    }
 
-        return new State(
-                c == Coverage.SELECTED ? transferFunction(drSum) : 0.0,
-                c == Coverage.SELECTED ? fired : -1,
-                newWeight
+
+    /**
+     * Collects the input values of the given activation into the kernel. For each synapse only the input
+     * activation with the highest value is considered.
+     */
+    private void gatherInputStates(Activation act, int round, SearchNode sn, StateKernel k) {
+        k.clear();
+
+        InterprNode o = act.key.o;
+        Synapse lastSynapse = null;
+        SynapseActivation maxSa = null;
+        double maxValue = 0.0;
+        int maxFired = -1;
+        for (SynapseActivation sa : act.neuronInputs) {
+            if (lastSynapse != null && lastSynapse != sa.s) {
+                addInputState(act, k, maxSa, maxValue, maxFired);
+                maxSa = null;
+            }
+
+            Synapse s = sa.s;
+            Activation iAct = sa.input;
+            double v = 0.0;
+            int f = -1;
+            if (s.key.isRecurrent) {
+                if (!s.isNegative() || !checkSelfReferencing(o, iAct.key.o, sn, 0)) {
+                    if (round == 0) {
+                        v = sn.getCoverage(iAct.key.o) == Coverage.SELECTED ? 1.0 : 0.0;
+                        f = 0;
+                    } else {
+                        State is = iAct.rounds.get(round - 1);
+                        v = is.value;
+                        f = is.fired;
+                    }
+                }
+            } else {
+                State is = iAct.rounds.get(round);
+                v = is.value;
+                f = is.fired;
+            }
+
+            if (maxSa == null || maxValue < v) {
+                maxSa = sa;
+                maxValue = v;
+                maxFired = f;
+            }
+            lastSynapse = s;
+        }
+        if (maxSa != null) {
+            addInputState(act, k, maxSa, maxValue, maxFired);
+        }
+    }
+
+
+    private static void addInputState(Activation act, StateKernel k, SynapseActivation sa, double value, int fired) {
+        Activation iAct = sa.input;
+        if (iAct == act || iAct.isRemoved) return;
+
+        Synapse s = sa.s;
+        k.add(
+                value,
+                s.w,
+                (s.key.isRecurrent ? StateKernel.RECURRENT : 0) | (s.isNegative() ? StateKernel.NEGATIVE : 0),
+                fired
         );
     }
 
@@ -488,7 +617,7 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
         ArrayList<Activation> recNegTmp = new ArrayList<>();
 
         provider.lock.acquireReadLock();
-        NavigableMap<Synapse, Synapse> syns = (dir == 0 ? provider.inMemoryInputSynapses : provider.inMemoryOutputSynapses);
+        IndexedSynapseMap syns = (dir == 0 ? provider.inMemoryInputSynapses : provider.inMemoryOutputSynapses);
 
         for (Synapse s : getActiveSynapses(doc, dir, syns)) {
             Neuron p = (dir == 0 ? s.input : s.output);
@@ -562,6 +691,7 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
             SynapseActivation sa = new SynapseActivation(s, iAct, oAct);
             iAct.addSynapseActivation(0, sa);
             oAct.addSynapseActivation(1, sa);
+            doc.estimatedBytes += Footprint.SYNAPSE_ACTIVATION;
 
             if (s.isNegative() && sk.isRecurrent) {
                 recNegTmp.add(rAct);
@@ -570,34 +700,24 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
     }
 
 
-    private static Collection<Synapse> getActiveSynapses(Document doc, int dir, NavigableMap<Synapse, Synapse> syns) {
-        // Optimization in case the set of synapses is very large
-        if (syns.size() < 10 || doc.activatedNeurons.size() * 20 > syns.size()) {
+    /**
+     * Returns the synapses whose partner neuron might be activated in the current document. Since the set of synapses
+     * can get very large, either the synapses or the neurons activated within the document are iterated, depending
+     * on which of them is smaller. In the second case the activated neurons are looked up in the partner index.
+     */
+    private static Collection<Synapse> getActiveSynapses(Document doc, int dir, IndexedSynapseMap syns) {
+        if (syns.size() <= doc.activatedNeurons.size()) {
             return syns.values();
         }
 
-        Collection<Synapse> synsTmp;
-        ArrayList<Synapse> newSyns = new ArrayList<>();
-        Synapse lk = new Synapse(null, Synapse.Key.MIN_KEY);
-        Synapse uk = new Synapse(null, Synapse.Key.MAX_KEY);
-
+        ArrayList<Synapse> results = new ArrayList<>();
         for (INeuron n : doc.activatedNeurons) {
-            if (dir == 0) {
-                lk.input = n.provider;
-                uk.input = n.provider;
-            } else {
-                lk.output = n.provider;
-                uk.output = n.provider;
-            }
-
-            // Using addAll is not efficient here.
-            for (Synapse s : syns.subMap(lk, true, uk, true).values()) {
-                newSyns.add(s);
+            Synapse[] ss = syns.getByPartner(n.provider.id);
+            if (ss != null) {
+                Collections.addAll(results, ss);
             }
         }
-
-        synsTmp = newSyns;
-        return synsTmp;
+        return results;
     }
 
 
@@ -628,6 +748,7 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
             for (SynapseActivation sa : (dir == 0 ? act.neuronInputs : act.neuronOutputs)) {
                 Activation rAct = dir == 0 ? sa.input : sa.output;
                 rAct.removeSynapseActivation(dir, sa);
+                doc.estimatedBytes -= Footprint.SYNAPSE_ACTIVATION;
             }
         }
     }
@@ -649,7 +770,7 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
     private static boolean isAllowed(int threadId, InterprNode io, InterprNode o, Collection<NodeActivation> inputActs) {
         if (io != null && o.contains(io, false)) return true;
         for (NodeActivation act : inputActs) {
-            if (act.key.n.isAllowedOption(threadId, o, act, Node.visitedCounter++)) return true;
+            if (act.key.n.isAllowedOption(threadId, o, act, Node.visitedCounter.addAndGet(1))) return true;
         }
         return false;
     }
@@ -657,7 +778,7 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
 
     private static void removeConflict(Document doc, InterprNode io, InterprNode o, NodeActivation act, NodeActivation nAct, long v) {
         if (o.markedConflict == v || o.orInterprNodes == null) {
-            if (!nAct.key.n.isAllowedOption(doc.threadId, o, nAct, Node.visitedCounter++)) {
+            if (!nAct.key.n.isAllowedOption(doc.threadId, o, nAct, Node.visitedCounter.addAndGet(1))) {
                 assert io != null;
 
                 Conflicts.remove(doc, act, io, o);
@@ -685,6 +806,18 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
     }
 
 
+    /**
+     * Estimates the size of the neuron and its input synapses. The output synapses are accounted in the footprint of
+     * their output neurons.
+     */
+    @Override
+    public long estimateBytes() {
+        return Footprint.NEURON +
+                Footprint.SYNAPSE * Footprint.size(inputSynapses) +
+                Footprint.TREE_MAP_ENTRY * Footprint.size(outputNodes);
+    }
+
+
     public int compareTo(INeuron n) {
         if (provider.id < n.provider.id) return -1;
         else if (provider.id > n.provider.id) return 1;
@@ -694,7 +827,8 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
 
     @Override
     public void write(DataOutput out) throws IOException {
-        out.writeBoolean(true);
+        // The format version replaces the former neuron marker 'true', so old readers still recognize a neuron.
+        out.writeByte(FORMAT_VERSION);
 
         out.writeUTF(label);
 
@@ -718,6 +852,11 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
         out.writeBoolean(isBlocked);
         out.writeBoolean(noTraining);
 
+        out.writeBoolean(minUpperBound != null);
+        if (minUpperBound != null) {
+            out.writeDouble(minUpperBound);
+        }
+
         out.writeDouble(activationSum);
         out.writeInt(numberOfActivations);
 
@@ -733,6 +872,19 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
 
     @Override
     public void readFields(DataInput in, Model m) throws IOException {
+        readFields(in, m, FORMAT_VERSION);
+    }
+
+
+    /**
+     * Reads a neuron that has been written in the given format version. Version 1 did not contain the
+     * {@code minUpperBound}.
+     */
+    public void readFields(DataInput in, Model m, int version) throws IOException {
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported neuron format version: " + version);
+        }
+
         label = in.readUTF();
 
         bias = in.readDouble();
@@ -756,6 +908,10 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
         isBlocked = in.readBoolean();
         noTraining = in.readBoolean();
 
+        if (version >= 2 && in.readBoolean()) {
+            minUpperBound = in.readDouble();
+        }
+
         activationSum = in.readDouble();
         numberOfActivations = in.readInt();
 
@@ -819,31 +975,36 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
 
 
     public static Neuron init(Model m, int threadId, Neuron pn, double bias, double negDirSum, double negRecSum, double posRecSum, Set<Synapse> inputs) {
+        INeuron n = link(pn, bias, negDirSum, negRecSum, posRecSum, inputs);
+
+        if (!new Converter(m, threadId, n, inputs).convert()) return null;
+
+        n.publish();
+
+        return n.provider;
+    }
+
+
+    /**
+     * Sets the bias and the weight sums of the neuron and links its input synapses. The logic nodes of the neuron
+     * are not created yet, this is done by the {@code Converter}.
+     */
+    public static INeuron link(Neuron pn, double bias, double negDirSum, double negRecSum, double posRecSum, Set<Synapse> inputs) {
         INeuron n = pn.get();
-        n.provider.m.stat.neurons++;
+        n.provider.m.metrics.neurons.increment();
         n.bias = bias;
         n.negDirSum = negDirSum;
         n.negRecSum = negRecSum;
         n.posRecSum = posRecSum;
 
-        float sum = 0.0f;
-        ArrayList<Synapse> modifiedSynapses = new ArrayList<>();
         for (Synapse s : inputs) {
             assert !s.key.startRangeOutput || s.key.startRangeMatch == Range.Operator.EQUALS || s.key.startRangeMatch == Range.Operator.FIRST;
             assert !s.key.endRangeOutput || s.key.endRangeMatch == Range.Operator.EQUALS || s.key.endRangeMatch == Range.Operator.FIRST;
 
             s.output = n.provider;
             s.link();
-
-            sum += s.w;
-            modifiedSynapses.add(s);
         }
-
-        if (!new Converter(m, threadId, n, modifiedSynapses).convert()) return null;
-
-        n.publish();
-
-        return n.provider;
+        return n;
     }
 
 
@@ -863,9 +1024,14 @@ public class INeuron extends AbstractNode<Neuron> implements Comparable<INeuron>
 
 
     public static INeuron readNeuron(DataInput in, Neuron p) throws IOException {
+        return readNeuron(in, p, FORMAT_VERSION);
+    }
+
+
+    public static INeuron readNeuron(DataInput in, Neuron p, int version) throws IOException {
         INeuron n = new INeuron();
         n.provider = p;
-        n.readFields(in, p.m);
+        n.readFields(in, p.m, version);
         return n;
     }
 
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.neuron;
+
+
+import org.aika.IntHashMap;
+import org.aika.Utils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.TreeMap;
+
+/**
+ * A sorted map of synapses which additionally indexes the synapses by the id of their partner neuron, that is the
+ * input neuron for the input synapses of a neuron and the output neuron for its output synapses. This allows to look
+ * up the synapses leading to a certain neuron without a range query on the sorted map.
+ *
+ * <p>The sorted map is wrapped rather than extended, so that the synapses can only be modified through {@code put},
+ * {@code remove} and {@code clear}, which keep the partner index up to date. The collection returned by
+ * {@code values} is read only.
+ *
+ * @author Lukas Molzberger
+ */
+public class IndexedSynapseMap {
+
+    private final boolean dir;
+    private final TreeMap<Synapse, Synapse> synapses;
+    private final IntHashMap<Synapse[]> partnerIndex = new IntHashMap<>();
+
+
+    /**
+     * @param comparator
+     * @param dir If false the synapses are indexed by their input neuron, otherwise by their output neuron.
+     */
+    public IndexedSynapseMap(Comparator<Synapse> comparator, boolean dir) {
+        this.synapses = new TreeMap<>(comparator);
+        this.dir = dir;
+    }
+
+
+    /**
+     * Returns the synapses whose partner neuron has the given id or null if there are none.
+     *
+     * @param partnerId
+     * @return
+     */
+    public Synapse[] getByPartner(int partnerId) {
+        return partnerIndex.get(partnerId);
+    }
+
+
+    public int numberOfPartners() {
+        return partnerIndex.size();
+    }
+
+
+    public Synapse get(Synapse key) {
+        return synapses.get(key);
+    }
+
+
+    /**
+     * Returns a read only view of the synapses in the order of the comparator.
+     *
+     * @return
+     */
+    public Collection<Synapse> values() {
+        return Collections.unmodifiableCollection(synapses.values());
+    }
+
+
+    public int size() {
+        return synapses.size();
+    }
+
+
+    public boolean isEmpty() {
+        return synapses.isEmpty();
+    }
+
+
+    public Synapse put(Synapse key, Synapse value) {
+        Synapse old = synapses.put(key, value);
+        if (old != null) {
+            removeFromIndex(old);
+        }
+        addToIndex(value);
+        return old;
+    }
+
+
+    public Synapse remove(Synapse key) {
+        Synapse old = synapses.remove(key);
+        if (old != null) {
+            removeFromIndex(old);
+        }
+        return old;
+    }
+
+
+    public void clear() {
+        synapses.clear();
+        partnerIndex.clear();
+    }
+
+
+    private int getPartnerId(Synapse s) {
+        return (dir ? s.output : s.input).id;
+    }
+
+
+    private void addToIndex(Synapse s) {
+        int id = getPartnerId(s);
+        Synapse[] syns = partnerIndex.get(id);
+        partnerIndex.put(id, syns == null ? new Synapse[] {s} : Utils.addToArray(syns, s));
+    }
+
+
+    private void removeFromIndex(Synapse s) {
+        int id = getPartnerId(s);
+        Synapse[] syns = partnerIndex.get(id);
+        if (syns == null) return;
+
+        if (syns.length == 1) {
+            if (syns[0] == s) {
+                partnerIndex.remove(id);
+            }
+        } else {
+            for (Synapse x : syns) {
+                if (x == s) {
+                    partnerIndex.put(id, Utils.removeToArray(syns, s));
+                    return;
+                }
+            }
+        }
+    }
+}
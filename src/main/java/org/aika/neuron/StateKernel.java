@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.neuron;
+
+
+import org.aika.neuron.Activation.State;
+import org.aika.neuron.INeuron.NormWeight;
+
+import java.util.Arrays;
+
+/**
+ * The {@code StateKernel} evaluates the state of an activation on flat primitive arrays. The input values, synapse
+ * weights and flags are gathered into buffers that are reused across evaluations, and the result is written into
+ * primitive slots. A {@code State} object only needs to be created if the result actually differs from the stored
+ * state of the activation. Since the evaluations of a document are sequential, one kernel per document is sufficient.
+ *
+ * @author Lukas Molzberger
+ */
+public class StateKernel {
+
+    public static final int RECURRENT = 1;
+    public static final int NEGATIVE = 2;
+
+    public int size;
+    public double[] values = new double[16];
+    public double[] weights = new double[16];
+    public int[] flags = new int[16];
+    public int[] fired = new int[16];
+
+    // Result slots
+    public double sum;
+    public double value;
+    public int resultFired;
+    public double weight;
+    public double norm;
+
+
+    public void clear() {
+        size = 0;
+    }
+
+
+    public void add(double value, double weight, int flags, int fired) {
+        if (size == values.length) {
+            int n = size * 2;
+            values = Arrays.copyOf(values, n);
+            weights = Arrays.copyOf(weights, n);
+            this.flags = Arrays.copyOf(this.flags, n);
+            this.fired = Arrays.copyOf(this.fired, n);
+        }
+        values[size] = value;
+        weights[size] = weight;
+        this.flags[size] = flags;
+        this.fired[size] = fired;
+        size++;
+    }
+
+
+    /**
+     * Computes the activation value, the fired round and the weight from the gathered inputs.
+     *
+     * @param bias The bias minus the negative direct and recurrent sums of the neuron.
+     * @param negRecSum
+     * @param maxRecurrentSum
+     * @param selected Whether the interpretation of the activation is selected.
+     */
+    public void evaluate(double bias, double negRecSum, double maxRecurrentSum, boolean selected) {
+        double dirSum = bias;
+        double recSum = 0.0;
+        int f = -1;
+
+        for (int i = 0; i < size; i++) {
+            int fl = flags[i];
+            double x = values[i] * weights[i];
+            if ((fl & RECURRENT) != 0) {
+                recSum += x;
+            } else {
+                dirSum += x;
+                if ((fl & NEGATIVE) == 0 && dirSum + recSum >= 0.0 && f < 0) {
+                    f = fired[i] + 1;
+                }
+            }
+        }
+
+        double drSum = dirSum + recSum;
+        sum = drSum;
+
+        // Compute only the recurrent part is above the threshold.
+        weight = selected ? (dirSum + negRecSum) < 0.0 ? Math.max(0.0, drSum) : recSum - negRecSum : 0.0;
+        norm = (dirSum + negRecSum) < 0.0 ? Math.max(0.0, dirSum + negRecSum + maxRecurrentSum) : maxRecurrentSum;
+
+        value = selected ? INeuron.transferFunction(drSum) : 0.0;
+        resultFired = selected ? f : -1;
+    }
+
+
+    public void setZero() {
+        sum = 0.0;
+        value = 0.0;
+        resultFired = -1;
+        weight = 0.0;
+        norm = 0.0;
+    }
+
+
+    /**
+     * Same as {@code State.equalsWithWeights}, but without creating a state for the result.
+     *
+     * @param s
+     * @return
+     */
+    public boolean equalsWithWeights(State s) {
+        return Math.abs(value - s.value) <= INeuron.WEIGHT_TOLERANCE &&
+                Math.abs(weight - s.weight.w) <= INeuron.WEIGHT_TOLERANCE &&
+                Math.abs(norm - s.weight.n) <= INeuron.WEIGHT_TOLERANCE;
+    }
+
+
+    public State toState() {
+        if (value == 0.0 && resultFired == -1 && weight == 0.0 && norm == 0.0) return State.ZERO;
+        return new State(value, resultFired, NormWeight.create(weight, norm));
+    }
+}
@@ -139,7 +139,7 @@ public class Synapse implements Writable {
         (dir ? in : out).lock.releaseWriteLock();
         (dir ? out : in).lock.releaseWriteLock();
 
-        out.provider.m.stat.synapses++;
+        out.provider.m.metrics.synapses.increment();
     }
 
 
@@ -196,12 +196,14 @@ public class Synapse implements Writable {
     static Map<Key, Key> keyMap = new TreeMap<>();
 
     public static Key lookupKey(Key k) {
-        Key rk = keyMap.get(k);
-        if(rk == null) {
-            keyMap.put(k, k);
-            rk = k;
+        synchronized (keyMap) {
+            Key rk = keyMap.get(k);
+            if (rk == null) {
+                keyMap.put(k, k);
+                rk = k;
+            }
+            return rk;
         }
-        return rk;
     }
 
 
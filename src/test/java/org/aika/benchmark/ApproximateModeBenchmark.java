@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Document;
+import org.aika.neuron.Activation;
+import org.aika.neuron.INeuron;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ * Measures the processing time per document of the approximate mode for different minimum upper bounds. During the
+ * setup, the final activations of a reference corpus are compared with the exact mode and the number of pruned
+ * activations as well as the precision and recall of the final activations are reported.
+ *
+ * <p>The model is built by the {@code ModelGenerator}. On top of its words, evidence neurons combine several words with
+ * weak to strong weights and output neurons combine two evidence neurons. The reference corpus is drawn by the
+ * {@code DocumentGenerator}.
+ *
+ * @author Lukas Molzberger
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ApproximateModeBenchmark {
+
+    static int NUMBER_OF_EVIDENCE_NEURONS = 50;
+    static int NUMBER_OF_OUTPUT_NEURONS = 50;
+    static int NUMBER_OF_DOCUMENTS = 100;
+    static int DOCUMENT_LENGTH = 50;
+
+    @Param({"0.0", "0.2", "0.5"})
+    public double minUpperBound;
+
+    Model m;
+    ModelGenerator mg;
+    DocumentGenerator dg;
+    List<int[]> corpus;
+    int docIndex = 0;
+
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        m = new Model();
+        mg = new ModelGenerator(42);
+        mg.generate(m);
+
+        List<Neuron> evidence = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_EVIDENCE_NEURONS; i++) {
+            List<Input> inputs = new ArrayList<>();
+            for (int j = 0; j < 10; j++) {
+                inputs.add(createInput(mg.words.get(mg.sampleWord(r)), 0.05f + 0.95f * r.nextFloat()));
+            }
+            evidence.add(m.initNeuron(m.createNeuron("EV-" + i), -0.001, inputs));
+        }
+
+        for (int i = 0; i < NUMBER_OF_OUTPUT_NEURONS; i++) {
+            m.initNeuron(m.createNeuron("OUT-" + i), -0.001,
+                    createInput(evidence.get(r.nextInt(NUMBER_OF_EVIDENCE_NEURONS)), 2.0f),
+                    createInput(evidence.get(r.nextInt(NUMBER_OF_EVIDENCE_NEURONS)), 2.0f)
+            );
+        }
+
+        dg = new DocumentGenerator(mg, 43);
+        corpus = dg.nextCorpus(NUMBER_OF_DOCUMENTS, DOCUMENT_LENGTH);
+
+        report();
+
+        INeuron.MIN_UPPER_BOUND = minUpperBound;
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        INeuron.MIN_UPPER_BOUND = 0.0;
+    }
+
+
+    @Benchmark
+    public int processDocument() {
+        Document doc = processDocument(corpus.get(docIndex));
+        docIndex = (docIndex + 1) % corpus.size();
+
+        int result = doc.prunedActivations;
+        doc.clearActivations();
+        return result;
+    }
+
+
+    private void report() {
+        INeuron.MIN_UPPER_BOUND = 0.0;
+        List<Set<String>> reference = new ArrayList<>();
+        for (int[] tokenIds : corpus) {
+            Document doc = processDocument(tokenIds);
+            reference.add(collectFinalActivations(doc));
+            doc.clearActivations();
+        }
+
+        INeuron.MIN_UPPER_BOUND = minUpperBound;
+        long pruned = 0;
+        long truePositives = 0;
+        long numberOfApprox = 0;
+        long numberOfExact = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            Document doc = processDocument(corpus.get(i));
+            pruned += doc.prunedActivations;
+
+            Set<String> approx = collectFinalActivations(doc);
+            doc.clearActivations();
+
+            Set<String> exact = reference.get(i);
+            for (String act : approx) {
+                if (exact.contains(act)) truePositives++;
+            }
+            numberOfApprox += approx.size();
+            numberOfExact += exact.size();
+        }
+
+        System.out.println();
+        System.out.println("Min upper bound: " + minUpperBound +
+                "  Pruned activations: " + pruned +
+                "  Precision: " + (numberOfApprox > 0 ? (double) truePositives / numberOfApprox : 1.0) +
+                "  Recall: " + (numberOfExact > 0 ? (double) truePositives / numberOfExact : 1.0));
+    }
+
+
+    private Document processDocument(int[] tokenIds) {
+        Document doc = dg.createDocument(m, tokenIds, 0);
+        doc.process();
+        return doc;
+    }
+
+
+    private static Set<String> collectFinalActivations(Document doc) {
+        Set<String> results = new TreeSet<>();
+        for (INeuron n : doc.activatedNeurons) {
+            for (Activation act : n.getFinalActivations(doc)) {
+                results.add(n.label + act.key.r);
+            }
+        }
+        return results;
+    }
+
+
+    private static Input createInput(Neuron in, float w) {
+        return new Input()
+                .setNeuron(in)
+                .setWeight(w)
+                .setRecurrent(false)
+                .setBiasDelta(0.0)
+                .setRangeMatch(EQUALS)
+                .setRangeOutput(true);
+    }
+}
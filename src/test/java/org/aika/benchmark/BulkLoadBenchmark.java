@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.Model;
+import org.aika.Neuron;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time needed to initialize a model of the {@code ModelGenerator} depending on the number of words, once
+ * using {@code Model.initNeuron} for each neuron and once using the {@code BulkLoader}. The neurons and their inputs
+ * are generated during the setup, so that only the initialization is measured.
+ *
+ * @author Lukas Molzberger
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkLoadBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int scale;
+
+    @Param({"4"})
+    public int numberOfThreads;
+
+    Model m;
+    ModelGenerator mg;
+
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        m = new Model(null, numberOfThreads);
+        mg = new ModelGenerator(42).setScale(scale);
+        mg.deferInitialization = true;
+        mg.generate(m);
+    }
+
+
+    @Benchmark
+    public Model initNeuron() {
+        mg.initNeurons(m);
+        return m;
+    }
+
+
+    @Benchmark
+    public List<Neuron> bulkLoad() {
+        return mg.bulkLoad(m);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.Model;
+import org.aika.corpus.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the processing time of a document for a gazetteer-style or-neuron, whose inputs are all the words of a
+ * model of the {@code ModelGenerator}. Only the number of words grows with the dictionary size, while the other
+ * parts of the model keep their default size. Since the documents have a fixed length, the time per document should
+ * not depend on the size of the dictionary.
+ *
+ * @author Lukas Molzberger
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DictionaryOrBenchmark {
+
+    static int NUMBER_OF_DOCUMENTS = 100;
+
+    @Param({"1000", "10000", "100000"})
+    public int dictionarySize;
+
+    @Param({"50"})
+    public int wordsPerDocument;
+
+    Model m;
+    ModelGenerator mg;
+    DocumentGenerator dg;
+    List<int[]> corpus;
+    int docIndex = 0;
+
+
+    @Setup
+    public void setup() {
+        m = new Model();
+        mg = new ModelGenerator(42);
+        mg.numberOfWords = dictionarySize;
+        mg.dictionary = true;
+        mg.generate(m);
+
+        dg = new DocumentGenerator(mg, 43);
+        corpus = dg.nextCorpus(NUMBER_OF_DOCUMENTS, wordsPerDocument);
+    }
+
+
+    @Benchmark
+    public int processDocument() {
+        Document doc = dg.createDocument(m, corpus.get(docIndex), 0);
+        docIndex = (docIndex + 1) % corpus.size();
+        doc.process();
+
+        int result = mg.dictionaryNeuron.getFinalActivations(doc).size();
+        doc.clearActivations();
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.Model;
+import org.aika.corpus.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates deterministic documents for a model of the {@code ModelGenerator}. The words are drawn from the Zipf
+ * distribution of the model. With the probability {@code phraseProbability} all words of a random phrase are inserted
+ * instead of a single word, so that the phrase neurons are activated.
+ *
+ * <p>Each word occupies one character followed by a space, which is fed into the clock signal of the counter neuron.
+ * The relational id of a word is its position in the document.
+ *
+ * @author Lukas Molzberger
+ */
+public class DocumentGenerator {
+
+    public ModelGenerator mg;
+    public Random r;
+
+    public double phraseProbability = 0.3;
+
+
+    public DocumentGenerator(ModelGenerator mg, long seed) {
+        this.mg = mg;
+        r = new Random(seed);
+    }
+
+
+    public int[] nextTokens(int length) {
+        int[] tokenIds = new int[length];
+        int i = 0;
+        while (i < length) {
+            if (!mg.phraseWords.isEmpty() && r.nextDouble() < phraseProbability) {
+                for (int wordId : mg.phraseWords.get(r.nextInt(mg.phraseWords.size()))) {
+                    if (i == length) break;
+                    tokenIds[i++] = wordId;
+                }
+            } else {
+                tokenIds[i++] = mg.sampleWord(r);
+            }
+        }
+        return tokenIds;
+    }
+
+
+    public List<int[]> nextCorpus(int numberOfDocuments, int length) {
+        List<int[]> corpus = new ArrayList<>();
+        for (int i = 0; i < numberOfDocuments; i++) {
+            corpus.add(nextTokens(length));
+        }
+        return corpus;
+    }
+
+
+    public static String createText(int[] tokenIds) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < tokenIds.length; i++) {
+            sb.append("w ");
+        }
+        return sb.toString();
+    }
+
+
+    public void addInputs(Document doc, int[] tokenIds) {
+        mg.startSignal.addInput(doc, 0, 1, 0);
+        for (int i = 0; i < tokenIds.length; i++) {
+            mg.clockSignal.addInput(doc, 2 * i + 1, 2 * i + 2);
+        }
+        for (int i = 0; i < tokenIds.length; i++) {
+            mg.words.get(tokenIds[i]).addInput(doc, 2 * i, 2 * i + 1, i);
+        }
+    }
+
+
+    public Document createDocument(Model m, int[] tokenIds, int threadId) {
+        Document doc = m.createDocument(createText(tokenIds), threadId);
+        addInputs(doc, tokenIds);
+        return doc;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the end-to-end processing of documents: {@code addInput} for each token, {@code process} and
+ * {@code getFinalActivations} of the output neurons. The {@code process} methods report documents per second and
+ * the {@code latency} methods the latency percentiles (p50, p99, ...) per document in microseconds.
+ *
+ * <p>The model is built by the {@code ModelGenerator} and the documents are drawn by the {@code DocumentGenerator}.
+ * The model combines the structures of the tests in {@code org.aika.network}: ambiguous words whose senses suppress
+ * each other ({@code NamedEntityRecognitionTest}, {@code MutualExclusionTest}) and patterns whose relational ids are
+ * assigned by a counter neuron ({@code RecurrentPatternTest}). The parameter {@code scale} is the number of words of
+ * the model.
+ *
+ * <p>The {@code Concurrently} methods process documents in {@code MAX_THREADS} thread slots of the same model. The
+ * baseline results are stored in {@code benchmarks/DocumentThroughputBenchmark.txt}. The processing time grows
+ * linearly with both the scale and the document length, so that a document of 1000 words takes more than a minute on
+ * a model of scale 100000. The model of scale 100000 requires about 1 GB of heap.
+ *
+ * @author Lukas Molzberger
+ */
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 3, jvmArgsAppend = "-Xmx3g")
+public class DocumentThroughputBenchmark {
+
+    static int MAX_THREADS = 4;
+    static int NUMBER_OF_DOCUMENTS = 100;
+
+
+    @State(Scope.Benchmark)
+    public static class Network {
+
+        @Param({"1000", "10000", "100000"})
+        public int scale;
+
+        @Param({"10", "100", "1000"})
+        public int documentLength;
+
+        Model m;
+        ModelGenerator mg;
+        DocumentGenerator dg;
+        List<int[]> corpus;
+        List<Neuron> outputs;
+
+        AtomicInteger threadIdCounter = new AtomicInteger();
+
+
+        @Setup
+        public void setup() {
+            m = new Model(null, MAX_THREADS);
+            mg = new ModelGenerator(42).setScale(scale);
+            mg.generate(m);
+
+            dg = new DocumentGenerator(mg, 43);
+            corpus = dg.nextCorpus(NUMBER_OF_DOCUMENTS, documentLength);
+            outputs = mg.getOutputNeurons();
+        }
+    }
+
+
+    @State(Scope.Thread)
+    public static class ThreadSlot {
+        int threadId;
+        int docIndex;
+
+
+        @Setup
+        public void setup(Network n) {
+            threadId = n.threadIdCounter.getAndIncrement();
+            docIndex = threadId;
+        }
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(1)
+    public int process(Network n, ThreadSlot ts) {
+        return processDocument(n, ts);
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public int processConcurrently(Network n, ThreadSlot ts) {
+        return processDocument(n, ts);
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(1)
+    public int latency(Network n, ThreadSlot ts) {
+        return processDocument(n, ts);
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(4)
+    public int latencyConcurrently(Network n, ThreadSlot ts) {
+        return processDocument(n, ts);
+    }
+
+
+    private static int processDocument(Network n, ThreadSlot ts) {
+        int[] tokenIds = n.corpus.get(ts.docIndex);
+        ts.docIndex = (ts.docIndex + 1) % n.corpus.size();
+
+        Document doc = n.dg.createDocument(n.m, tokenIds, ts.threadId);
+        doc.process();
+
+        int result = 0;
+        for (Neuron out : n.outputs) {
+            result += out.getFinalActivations(doc).size();
+        }
+        doc.clearActivations();
+        return result;
+    }
+}
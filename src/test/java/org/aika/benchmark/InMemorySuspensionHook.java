@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.SuspensionHook;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@code SuspensionHook} that keeps the suspended neurons and logic nodes in memory. It stands in for an external
+ * store, whose access time is simulated by busy waiting {@code storeLatency} or {@code retrieveLatency} microseconds
+ * for each call. The number of calls and the bytes stored and retrieved are counted.
+ *
+ * @author Lukas Molzberger
+ */
+public class InMemorySuspensionHook implements SuspensionHook {
+
+    public long storeLatency;
+    public long retrieveLatency;
+
+    public AtomicInteger currentId = new AtomicInteger(0);
+    public Map<Integer, byte[]> storage = new ConcurrentHashMap<>();
+
+    public LongAdder stores = new LongAdder();
+    public LongAdder retrieves = new LongAdder();
+    public LongAdder bytesWritten = new LongAdder();
+    public LongAdder bytesRead = new LongAdder();
+
+
+    public InMemorySuspensionHook() {
+        this(0, 0);
+    }
+
+
+    /**
+     * @param storeLatency    The simulated latency of a store call in microseconds.
+     * @param retrieveLatency The simulated latency of a retrieve call in microseconds.
+     */
+    public InMemorySuspensionHook(long storeLatency, long retrieveLatency) {
+        this.storeLatency = storeLatency;
+        this.retrieveLatency = retrieveLatency;
+    }
+
+
+    @Override
+    public int getNewId() {
+        return currentId.addAndGet(1);
+    }
+
+
+    @Override
+    public void store(int id, byte[] data) {
+        simulateLatency(storeLatency);
+        storage.put(id, data);
+
+        stores.increment();
+        bytesWritten.add(data.length);
+    }
+
+
+    @Override
+    public byte[] retrieve(int id) {
+        simulateLatency(retrieveLatency);
+        byte[] data = storage.get(id);
+
+        retrieves.increment();
+        bytesRead.add(data.length);
+        return data;
+    }
+
+
+    public void resetCounters() {
+        stores.reset();
+        retrieves.reset();
+        bytesWritten.reset();
+        bytesRead.reset();
+    }
+
+
+    private static void simulateLatency(long micros) {
+        if (micros <= 0) return;
+
+        long end = System.nanoTime() + micros * 1000;
+        while (System.nanoTime() < end) {
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Conflicts;
+import org.aika.corpus.Document;
+import org.aika.corpus.InterprNode;
+import org.aika.corpus.SearchNode;
+import org.aika.corpus.SearchNode.DebugState;
+import org.aika.neuron.Activation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.aika.Input.RangeRelation.*;
+
+/**
+ * Measures the interpretation search ({@code SearchNode.computeBestInterpretation}) on documents with a controlled
+ * conflict structure. During the setup, the number of conflicts, search steps and the hit rate of the candidate
+ * caches are reported. The allocation rate can be measured with {@code -prof gc}.
+ *
+ * <p>Each ambiguous word has two senses, which are added as input activations with their own primitive
+ * interpretation nodes and conflict with each other. The parameters are:
+ *
+ * <ul>
+ * <li>{@code ambiguousWords}: the number of ambiguous words in the document.</li>
+ * <li>{@code conflictDensity}: the probability that the second sense of a word also conflicts with the first sense
+ * of the next word.</li>
+ * <li>{@code feedback}: whether the entity neurons of the senses have a recurrent positive feedback loop from the
+ * category of the previous word, as in {@code NamedEntityRecognitionTest}.</li>
+ * <li>{@code orNesting}: the number of nested or-neurons above the categories, whose activations combine the
+ * interpretation nodes of all senses.</li>
+ * </ul>
+ *
+ * The conflicts are added directly through {@code Conflicts.add}, so the search can be measured independently of
+ * the neurons that would normally create them.
+ *
+ * @author Lukas Molzberger
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InterpretationSearchBenchmark {
+
+    static int NUMBER_OF_SENSES = 2;
+
+    @Param({"4", "8", "12"})
+    public int ambiguousWords;
+
+    @Param({"0.0", "0.5"})
+    public double conflictDensity;
+
+    @Param({"false", "true"})
+    public boolean feedback;
+
+    @Param({"0", "2"})
+    public int orNesting;
+
+    Model m;
+    Neuron[] senses = new Neuron[NUMBER_OF_SENSES];
+    List<Neuron> outputs = new ArrayList<>();
+
+
+    @Setup
+    public void setup() {
+        m = new Model();
+
+        for (int j = 0; j < NUMBER_OF_SENSES; j++) {
+            senses[j] = m.createNeuron("S-" + j);
+
+            Neuron category = m.createNeuron("C-" + j);
+
+            List<Input> inputs = new ArrayList<>();
+            inputs.add(new Input()
+                    .setNeuron(senses[j])
+                    .setWeight(10.0f + j)
+                    .setBiasDelta(0.9)
+                    .setRelativeRid(0)
+                    .setRecurrent(false)
+                    .setRangeMatch(EQUALS)
+                    .setRangeOutput(true)
+            );
+            if (feedback) {
+                inputs.add(new Input()
+                        .setNeuron(category)
+                        .setWeight(5.0f)
+                        .setBiasDelta(0.9)
+                        .setRelativeRid(-1)
+                        .setRecurrent(true)
+                        .setRangeMatch(NONE)
+                );
+            }
+            Neuron entity = m.initNeuron(m.createNeuron("E-" + j), 3.0, inputs);
+            outputs.add(entity);
+
+            m.initNeuron(category, -0.001,
+                    new Input()
+                            .setNeuron(entity)
+                            .setWeight(10.0f)
+                            .setBiasDelta(0.0)
+                            .setRelativeRid(0)
+                            .setRecurrent(false)
+                            .setRangeMatch(EQUALS)
+                            .setRangeOutput(true)
+            );
+            outputs.add(category);
+        }
+
+        List<Neuron> layer = new ArrayList<>(outputs);
+        for (int d = 0; d < orNesting; d++) {
+            List<Input> inputs = new ArrayList<>();
+            for (Neuron n : layer) {
+                inputs.add(new Input()
+                        .setNeuron(n)
+                        .setWeight(10.0f)
+                        .setBiasDelta(0.0)
+                        .setRecurrent(false)
+                        .setRangeMatch(NONE)
+                );
+            }
+            Neuron or = m.initNeuron(m.createNeuron("OR-" + d), -0.001, inputs);
+            outputs.add(or);
+            layer = Collections.singletonList(or);
+        }
+
+        report();
+    }
+
+
+    @Benchmark
+    public int processDocument() {
+        Document doc = createDocument();
+        doc.process();
+
+        int result = doc.searchSteps;
+        doc.clearActivations();
+        return result;
+    }
+
+
+    private void report() {
+        Document doc = createDocument();
+        int conflicts = SearchNode.collectConflicts(doc).size();
+        doc.process();
+
+        int cached = doc.searchStateCounts[DebugState.CACHED.ordinal()];
+        int explore = doc.searchStateCounts[DebugState.EXPLORE.ordinal()];
+
+        int finalActs = 0;
+        for (Neuron n : outputs) {
+            finalActs += n.getFinalActivations(doc).size();
+        }
+
+        System.out.println();
+        System.out.println("Conflicts: " + conflicts +
+                "  Search steps: " + doc.searchSteps +
+                "  CACHED: " + cached +
+                "  EXPLORE: " + explore +
+                "  LIMITED: " + doc.searchStateCounts[DebugState.LIMITED.ordinal()] +
+                "  Cache hit rate: " + (cached + explore > 0 ? (double) cached / (cached + explore) : 0.0) +
+                "  Final activations: " + finalActs +
+                "  Interrupted: " + doc.interrupted);
+        doc.clearActivations();
+    }
+
+
+    private Document createDocument() {
+        Random r = new Random(42);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ambiguousWords; i++) {
+            sb.append("w ");
+        }
+        Document doc = m.createDocument(sb.toString());
+
+        InterprNode[][] options = new InterprNode[ambiguousWords][NUMBER_OF_SENSES];
+        Activation[][] acts = new Activation[ambiguousWords][NUMBER_OF_SENSES];
+        for (int i = 0; i < ambiguousWords; i++) {
+            for (int j = 0; j < NUMBER_OF_SENSES; j++) {
+                options[i][j] = InterprNode.addPrimitive(doc);
+                acts[i][j] = senses[j].addInput(doc, 2 * i, 2 * i + 1, i, options[i][j]);
+            }
+        }
+
+        for (int i = 0; i < ambiguousWords; i++) {
+            for (int j = 1; j < NUMBER_OF_SENSES; j++) {
+                Conflicts.add(doc, acts[i][j], options[i][0], options[i][j]);
+            }
+            if (i + 1 < ambiguousWords && r.nextDouble() < conflictDensity) {
+                Conflicts.add(doc, acts[i + 1][0], options[i][NUMBER_OF_SENSES - 1], options[i + 1][0]);
+            }
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.BulkLoader;
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Range.Operator;
+
+import java.util.*;
+
+import static org.aika.Input.RangeRelation.*;
+
+/**
+ * Builds a deterministic synthetic model of arbitrary size through {@code Model.initNeuron}. The same seed and
+ * configuration always result in the same neurons and synapses, created in the same order.
+ *
+ * <p>The model consists of:
+ *
+ * <ul>
+ * <li>Word neurons, which are the input neurons of the model. The relational id of a word is its position in the
+ * document.</li>
+ * <li>Phrase neurons, which are conjunctions of two to {@code maxPhraseLength} consecutive words using the relative
+ * relational ids.</li>
+ * <li>Sense neurons, which represent the meanings of a word or phrase. The senses are arranged in ambiguity groups of
+ * {@code ambiguityGroupSize} senses that share the same input and suppress each other through a recurrent negative
+ * feedback loop, as in {@code MutualExclusionTest}.</li>
+ * <li>Entity neurons, which are disjunctions of {@code entityFanIn} words and phrases.</li>
+ * <li>A counter neuron driven by a clock and a start signal ({@code initCounterNeuron}), relational neurons for the
+ * first {@code numberOfRelationalWords} words and patterns of three consecutive relational words, as in
+ * {@code RecurrentPatternTest}.</li>
+ * <li>Optionally a gazetteer-style dictionary neuron, which is a disjunction of all the words.</li>
+ * </ul>
+ *
+ * The frequency of the words follows a Zipf distribution. The inputs of the phrases, senses and entities are drawn
+ * from the same distribution, so that the documents of the {@code DocumentGenerator} actually activate them.
+ *
+ * <p>If {@code deferInitialization} is set, {@code generate} only creates the definitions of the phrase, sense,
+ * suppressing, entity, dictionary and counter pattern neurons. They are initialized afterwards either one by one by
+ * {@code initNeurons} or by {@code bulkLoad}, so that the initialization can be measured separately.
+ *
+ * @author Lukas Molzberger
+ */
+public class ModelGenerator {
+
+    public long seed = 42;
+
+    public int numberOfWords = 1000;
+    public int numberOfPhrases = 500;
+    public int maxPhraseLength = 3;
+    public int numberOfSenses = 500;
+    public int ambiguityGroupSize = 2;
+    public int numberOfEntities = 250;
+    public int entityFanIn = 3;
+    public int numberOfRelationalWords = 20;
+    public int numberOfCounterPatterns = 10;
+
+    public double zipfExponent = 1.0;
+
+    public boolean dictionary = false;
+    public boolean deferInitialization = false;
+
+    public Neuron startSignal;
+    public Neuron clockSignal;
+    public Neuron counterNeuron;
+
+    public List<Neuron> words = new ArrayList<>();
+    public List<Neuron> phrases = new ArrayList<>();
+    public List<int[]> phraseWords = new ArrayList<>();
+    public List<Neuron> senses = new ArrayList<>();
+    public List<Neuron> suppressingNeurons = new ArrayList<>();
+    public List<Neuron> entities = new ArrayList<>();
+    public List<Neuron> relationalWords = new ArrayList<>();
+    public List<Neuron> counterPatterns = new ArrayList<>();
+    public Neuron dictionaryNeuron;
+
+    double[] wordCdf;
+
+    List<Definition> definitions = new ArrayList<>();
+
+
+    public ModelGenerator() {
+    }
+
+
+    public ModelGenerator(long seed) {
+        this.seed = seed;
+    }
+
+
+    /**
+     * Scales the default configuration to the given number of words.
+     *
+     * @param numberOfWords
+     * @return
+     */
+    public ModelGenerator setScale(int numberOfWords) {
+        this.numberOfWords = numberOfWords;
+        numberOfPhrases = numberOfWords / 2;
+        numberOfSenses = numberOfWords / 2;
+        numberOfEntities = numberOfWords / 4;
+        return this;
+    }
+
+
+    public List<Neuron> getOutputNeurons() {
+        List<Neuron> results = new ArrayList<>();
+        results.addAll(senses);
+        results.addAll(entities);
+        results.addAll(counterPatterns);
+        if (dictionaryNeuron != null) {
+            results.add(dictionaryNeuron);
+        }
+        return results;
+    }
+
+
+    public Model generate() {
+        Model m = new Model();
+        generate(m);
+        return m;
+    }
+
+
+    public void generate(Model m) {
+        Random r = new Random(seed);
+
+        wordCdf = computeZipfCdf(numberOfWords, zipfExponent);
+
+        startSignal = m.createNeuron("START-SIGNAL");
+        clockSignal = m.createNeuron("CLOCK");
+        counterNeuron = m.initCounterNeuron(m.createNeuron("CTN"), clockSignal, false, startSignal, true, false);
+
+        for (int i = 0; i < numberOfWords; i++) {
+            words.add(m.createNeuron("W-" + i));
+        }
+
+        generatePhrases(m, r);
+        generateSenses(m, r);
+        generateEntities(m, r);
+        generateCounterPatterns(m, r);
+
+        if (dictionary) {
+            generateDictionary(m);
+        }
+    }
+
+
+    /**
+     * Initializes the deferred neurons one by one using {@code Model.initNeuron}.
+     */
+    public void initNeurons(Model m) {
+        for (Definition d : definitions) {
+            m.initNeuron(d.neuron, d.bias, d.inputs);
+        }
+        definitions.clear();
+    }
+
+
+    /**
+     * Initializes the deferred neurons using the {@code BulkLoader}.
+     */
+    public List<Neuron> bulkLoad(Model m) {
+        BulkLoader bl = new BulkLoader(m);
+        for (Definition d : definitions) {
+            bl.add(d.neuron, d.bias, d.inputs);
+        }
+        definitions.clear();
+        return bl.load();
+    }
+
+
+    private Neuron init(Model m, Neuron n, double bias, List<Input> inputs) {
+        if (deferInitialization) {
+            definitions.add(new Definition(n, bias, inputs));
+            return n;
+        }
+        return m.initNeuron(n, bias, inputs);
+    }
+
+
+    private Neuron init(Model m, Neuron n, double bias, Input... inputs) {
+        return init(m, n, bias, Arrays.asList(inputs));
+    }
+
+
+    private void generatePhrases(Model m, Random r) {
+        for (int i = 0; i < numberOfPhrases; i++) {
+            int length = 2 + r.nextInt(maxPhraseLength - 1);
+            int[] wordIds = new int[length];
+            List<Input> inputs = new ArrayList<>();
+            for (int j = 0; j < length; j++) {
+                wordIds[j] = sampleWord(r);
+
+                Input in = new Input()
+                        .setNeuron(words.get(wordIds[j]))
+                        .setWeight(1.0f)
+                        .setRecurrent(false)
+                        .setBiasDelta(0.9)
+                        .setRelativeRid(j);
+
+                if (j == 0) {
+                    in.setStartRangeMatch(Operator.EQUALS)
+                            .setEndRangeMatch(Operator.GREATER_THAN)
+                            .setStartRangeOutput(true);
+                } else if (j == length - 1) {
+                    in.setStartRangeMatch(Operator.LESS_THAN)
+                            .setEndRangeMatch(Operator.EQUALS)
+                            .setEndRangeOutput(true);
+                } else {
+                    in.setRangeMatch(CONTAINS);
+                }
+                inputs.add(in);
+            }
+
+            phrases.add(init(m, m.createNeuron("P-" + i), 0.4, inputs));
+            phraseWords.add(wordIds);
+        }
+    }
+
+
+    private void generateSenses(Model m, Random r) {
+        Neuron suppr = null;
+        Neuron anchor = null;
+        List<Input> supprInputs = new ArrayList<>();
+        for (int i = 0; i < numberOfSenses; i++) {
+            int groupPos = i % ambiguityGroupSize;
+            if (groupPos == 0) {
+                suppr = m.createNeuron("SUPPR-" + (i / ambiguityGroupSize));
+                suppressingNeurons.add(suppr);
+                anchor = sampleWordOrPhrase(r);
+                supprInputs.clear();
+            }
+
+            // The senses of an ambiguity group share the same input, but differ in their weights.
+            Neuron sense = init(m, m.createNeuron("S-" + i),
+                    0.01,
+                    new Input()
+                            .setNeuron(anchor)
+                            .setWeight(10.0f + 0.5f * groupPos)
+                            .setRecurrent(false)
+                            .setBiasDelta(0.9)
+                            .setRangeMatch(EQUALS)
+                            .setRangeOutput(true),
+                    new Input()
+                            .setNeuron(suppr)
+                            .setWeight(-10.0f)
+                            .setRecurrent(true)
+                            .setBiasDelta(1.0)
+            );
+            senses.add(sense);
+
+            supprInputs.add(createOrInput(sense));
+            if (groupPos == ambiguityGroupSize - 1 || i == numberOfSenses - 1) {
+                init(m, suppr, -0.001, new ArrayList<>(supprInputs));
+            }
+        }
+    }
+
+
+    private void generateEntities(Model m, Random r) {
+        for (int i = 0; i < numberOfEntities; i++) {
+            List<Input> inputs = new ArrayList<>();
+            for (int j = 0; j < entityFanIn; j++) {
+                inputs.add(createOrInput(sampleWordOrPhrase(r)));
+            }
+            entities.add(init(m, m.createNeuron("E-" + i), -0.001, inputs));
+        }
+    }
+
+
+    private void generateCounterPatterns(Model m, Random r) {
+        for (int i = 0; i < Math.min(numberOfRelationalWords, numberOfWords); i++) {
+            relationalWords.add(m.initRelationalNeuron(m.createNeuron("RN-" + i), counterNeuron, words.get(i), false));
+        }
+        if (relationalWords.isEmpty()) return;
+
+        for (int i = 0; i < numberOfCounterPatterns; i++) {
+            counterPatterns.add(init(m, m.createNeuron("CP-" + i),
+                    0.001,
+                    new Input()
+                            .setNeuron(relationalWords.get(r.nextInt(relationalWords.size())))
+                            .setWeight(1.0f)
+                            .setRecurrent(false)
+                            .setBiasDelta(1.0)
+                            .setRelativeRid(0)
+                            .setStartRangeMatch(Operator.EQUALS)
+                            .setEndRangeMatch(Operator.GREATER_THAN)
+                            .setStartRangeOutput(true),
+                    new Input()
+                            .setNeuron(relationalWords.get(r.nextInt(relationalWords.size())))
+                            .setWeight(1.0f)
+                            .setRecurrent(false)
+                            .setBiasDelta(1.0)
+                            .setRelativeRid(1)
+                            .setRangeMatch(CONTAINS),
+                    new Input()
+                            .setNeuron(relationalWords.get(r.nextInt(relationalWords.size())))
+                            .setWeight(1.0f)
+                            .setRecurrent(false)
+                            .setBiasDelta(1.0)
+                            .setRelativeRid(2)
+                            .setStartRangeMatch(Operator.LESS_THAN)
+                            .setEndRangeMatch(Operator.EQUALS)
+                            .setEndRangeOutput(true),
+                    new Input()
+                            .setNeuron(counterNeuron)
+                            .setWeight(1.0f)
+                            .setRecurrent(false)
+                            .setBiasDelta(1.0)
+                            .setRelativeRid(0)
+                            .setRangeMatch(NONE)
+            ));
+        }
+    }
+
+
+    private void generateDictionary(Model m) {
+        List<Input> inputs = new ArrayList<>(numberOfWords);
+        for (Neuron w : words) {
+            inputs.add(createOrInput(w));
+        }
+        dictionaryNeuron = init(m, m.createNeuron("DICT"), -0.001, inputs);
+    }
+
+
+    public int sampleWord(Random r) {
+        int i = Arrays.binarySearch(wordCdf, r.nextDouble());
+        return Math.min(numberOfWords - 1, i >= 0 ? i : -i - 1);
+    }
+
+
+    private Neuron sampleWordOrPhrase(Random r) {
+        if (!phrases.isEmpty() && r.nextBoolean()) {
+            return phrases.get(r.nextInt(phrases.size()));
+        }
+        return words.get(sampleWord(r));
+    }
+
+
+    static double[] computeZipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, s);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+
+    private static Input createOrInput(Neuron n) {
+        return new Input()
+                .setNeuron(n)
+                .setWeight(10.0f)
+                .setRecurrent(false)
+                .setBiasDelta(0.0)
+                .setRangeMatch(EQUALS)
+                .setRangeOutput(true);
+    }
+
+
+    private static class Definition {
+        Neuron neuron;
+        double bias;
+        List<Input> inputs;
+
+        Definition(Neuron neuron, double bias, List<Input> inputs) {
+            this.neuron = neuron;
+            this.bias = bias;
+            this.inputs = inputs;
+        }
+    }
+}
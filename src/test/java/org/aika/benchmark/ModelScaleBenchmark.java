@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the processing time per document depending on the size of a model of the {@code ModelGenerator}. During
+ * the setup, the time to build the model as well as the number of neurons, synapses and lattice nodes are reported.
+ *
+ * <p>The parameter {@code scale} is the number of words. Including the words, the model contains about 1.5 times as
+ * many neurons and 3.5 times as many synapses. The model needs about 9 MB of heap per 1000 words, so the largest
+ * scale of 1M words needs a heap of about 12 GB. Smaller scales can be selected with e.g. {@code -p scale=100000}.
+ *
+ * @author Lukas Molzberger
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+@State(Scope.Thread)
+public class ModelScaleBenchmark {
+
+    static int NUMBER_OF_DOCUMENTS = 100;
+    static int DOCUMENT_LENGTH = 50;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int scale;
+
+    Model m;
+    ModelGenerator mg;
+    DocumentGenerator dg;
+    List<int[]> corpus;
+    List<Neuron> outputs;
+    int docIndex = 0;
+
+
+    @Setup
+    public void setup() {
+        long t = System.nanoTime();
+        m = new Model();
+        mg = new ModelGenerator(42).setScale(scale);
+        mg.generate(m);
+        t = System.nanoTime() - t;
+
+        dg = new DocumentGenerator(mg, 43);
+        corpus = dg.nextCorpus(NUMBER_OF_DOCUMENTS, DOCUMENT_LENGTH);
+        outputs = mg.getOutputNeurons();
+
+        System.out.println();
+        System.out.println("Scale: " + scale +
+                "  Neurons: " + m.metrics.neurons +
+                "  Synapses: " + m.metrics.synapses +
+                "  Nodes: " + m.metrics.nodes +
+                "  Build time: " + (t / 1000000) + "ms");
+    }
+
+
+    @Benchmark
+    public int processDocument() {
+        Document doc = dg.createDocument(m, corpus.get(docIndex), 0);
+        docIndex = (docIndex + 1) % corpus.size();
+        doc.process();
+
+        int result = 0;
+        for (Neuron out : outputs) {
+            result += out.getFinalActivations(doc).size();
+        }
+        doc.clearActivations();
+        return result;
+    }
+}
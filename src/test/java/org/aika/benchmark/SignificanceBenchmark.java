@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.lattice.Significance;
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the significance computation of {@code AndNode.updateWeight} using the commons-math
+ * {@code BinomialDistribution} with the {@code Significance} class.
+ *
+ * @author Lukas Molzberger
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SignificanceBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int n;
+
+    @Param({"0.0001", "0.01", "0.3"})
+    public double p;
+
+    int k;
+
+
+    @Setup
+    public void setup() {
+        // A pattern that occurs a little more often than expected by the null hypothesis.
+        k = (int) Math.round(n * p + 2.0 * Math.sqrt(n * p * (1.0 - p)));
+    }
+
+
+    @Benchmark
+    public double binomialDistribution() {
+        BinomialDistribution binDist = new BinomialDistribution(null, n, p);
+        return binDist.cumulativeProbability(k);
+    }
+
+
+    @Benchmark
+    public double significance() {
+        return Significance.cumulativeProbability(n, p, k);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ * Measures the linking of neuron activations for a model with a skewed synapse distribution. The model is built by
+ * the {@code ModelGenerator} with a dictionary neuron, which has an input synapse from each of the words (fan-in).
+ * In addition, a hub neuron has an output synapse to a pair neuron for each of the words (fan-out). Only the number
+ * of words grows with the model, while the other parts of the model keep their default size. A document activates
+ * the hub for each token and a fixed number of words, so that the time per document should not depend on the number
+ * of words in the model.
+ *
+ * @author Lukas Molzberger
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SkewedSynapseBenchmark {
+
+    static int NUMBER_OF_DOCUMENTS = 100;
+
+    @Param({"1000", "10000", "100000"})
+    public int numberOfWords;
+
+    @Param({"50"})
+    public int wordsPerDocument;
+
+    Model m;
+    ModelGenerator mg;
+    DocumentGenerator dg;
+    Neuron hub;
+    List<int[]> corpus;
+    int docIndex = 0;
+
+
+    @Setup
+    public void setup() {
+        m = new Model();
+        mg = new ModelGenerator(42);
+        mg.numberOfWords = numberOfWords;
+        mg.dictionary = true;
+        mg.generate(m);
+
+        hub = m.createNeuron("HUB");
+        for(int i = 0; i < numberOfWords; i++) {
+            m.initNeuron(m.createNeuron("HP-" + i), 0.5, createInput(hub), createInput(mg.words.get(i)));
+        }
+
+        dg = new DocumentGenerator(mg, 43);
+        corpus = dg.nextCorpus(NUMBER_OF_DOCUMENTS, wordsPerDocument);
+    }
+
+
+    @Benchmark
+    public int processDocument() {
+        int[] tokenIds = corpus.get(docIndex);
+        docIndex = (docIndex + 1) % corpus.size();
+
+        Document doc = m.createDocument(DocumentGenerator.createText(tokenIds));
+        for(int i = 0; i < tokenIds.length; i++) {
+            hub.addInput(doc, 2 * i, 2 * i + 1);
+        }
+        dg.addInputs(doc, tokenIds);
+        doc.process();
+
+        int result = mg.dictionaryNeuron.getFinalActivations(doc).size();
+        doc.clearActivations();
+        return result;
+    }
+
+
+    private static Input createInput(Neuron n) {
+        return new Input()
+                .setNeuron(n)
+                .setWeight(1.0f)
+                .setRecurrent(false)
+                .setBiasDelta(1.0)
+                .setRangeMatch(EQUALS)
+                .setRangeOutput(true);
+    }
+}
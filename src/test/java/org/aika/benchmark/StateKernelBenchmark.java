@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Document;
+import org.aika.corpus.SearchNode;
+import org.aika.neuron.Activation;
+import org.aika.neuron.INeuron;
+import org.aika.neuron.StateKernel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ * Measures the evaluation of the state of a neuron activation with 10, 100 and 10000 input activations, once
+ * creating a {@code State} object for each evaluation and once using the result slots of the {@code StateKernel}.
+ * Run with {@code -prof gc} to see the allocation rate of both variants.
+ *
+ * @author Lukas Molzberger
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StateKernelBenchmark {
+
+    @Param({"10", "100", "10000"})
+    public int numberOfInputs;
+
+    Document doc;
+    INeuron neuron;
+    Activation act;
+    SearchNode sn;
+    StateKernel kernel = new StateKernel();
+
+
+    @Setup
+    public void setup() {
+        Model m = new Model();
+
+        List<Neuron> inputNeurons = new ArrayList<>(numberOfInputs);
+        List<Input> inputs = new ArrayList<>(numberOfInputs);
+        for (int i = 0; i < numberOfInputs; i++) {
+            Neuron in = m.createNeuron("IN-" + i);
+            inputNeurons.add(in);
+            inputs.add(
+                    new Input()
+                            .setNeuron(in)
+                            .setWeight(1.0f)
+                            .setRecurrent(false)
+                            .setBiasDelta(0.0)
+                            .setRangeMatch(EQUALS)
+                            .setRangeOutput(true)
+            );
+        }
+        Neuron out = m.initNeuron(m.createNeuron("OUT"), -0.001, inputs);
+
+        doc = m.createDocument("a");
+        for (Neuron in : inputNeurons) {
+            in.addInput(doc, 0, 1);
+        }
+        doc.process();
+
+        neuron = out.get();
+        act = out.getFinalActivations(doc).iterator().next();
+        sn = doc.selectedSearchNode;
+
+        if (act.neuronInputs.size() != numberOfInputs || sn.getCoverage(act.key.o) != SearchNode.Coverage.SELECTED) {
+            throw new IllegalStateException();
+        }
+    }
+
+
+    @Benchmark
+    public Activation.State computeState() {
+        return neuron.computeWeight(0, act, sn, doc);
+    }
+
+
+    @Benchmark
+    public double computeStateKernel() {
+        neuron.computeWeight(0, act, sn, doc, kernel);
+        return kernel.weight;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.benchmark;
+
+
+import org.aika.*;
+import org.aika.corpus.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the suspension and reactivation of neurons and logic nodes of a {@code ModelGenerator} model, which is
+ * stored in an {@code InMemorySuspensionHook}.
+ *
+ * <ul>
+ * <li>{@code reactivate}: the latency percentiles of {@code Provider.get} for a single suspended word neuron, which
+ * includes the deserialization and the relinking of its synapses.</li>
+ * <li>{@code processDocument}: before each document, the fraction {@code suspendFraction} of all neurons and logic
+ * nodes in memory is suspended. The document then reactivates the parts of the model that it touches.</li>
+ * <li>{@code processDocumentConcurrently}: the same with {@code MAX_THREADS} threads, so that the suspension of one
+ * thread competes with the document processing of the others.</li>
+ * </ul>
+ *
+ * The words of the documents and of the {@code reactivate} method are drawn with the parameter {@code zipfExponent},
+ * where 0.0 is a uniform distribution. The parameter {@code retrieveLatency} is the simulated latency of the store
+ * in microseconds. After each trial the number of reactivations, the bytes read and written and the lock wait time
+ * of the {@code ReadWriteLock}s are reported.
+ *
+ * @author Lukas Molzberger
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuspensionBenchmark {
+
+    static int MAX_THREADS = 2;
+    static int NUMBER_OF_DOCUMENTS = 100;
+    static int DOCUMENT_LENGTH = 20;
+
+
+    @State(Scope.Benchmark)
+    public static class Network {
+
+        @Param({"10000"})
+        public int scale;
+
+        @Param({"0.5", "0.9"})
+        public double suspendFraction;
+
+        @Param({"0.0", "1.0"})
+        public double zipfExponent;
+
+        @Param({"0", "50"})
+        public long retrieveLatency;
+
+        Model m;
+        InMemorySuspensionHook hook;
+        ModelGenerator mg;
+
+        AtomicInteger threadIdCounter = new AtomicInteger();
+        LongAdder documents = new LongAdder();
+        LongAdder suspended = new LongAdder();
+
+
+        @Setup
+        public void setup() {
+            hook = new InMemorySuspensionHook(0, retrieveLatency);
+            m = new Model(hook, MAX_THREADS);
+            mg = new ModelGenerator(42).setScale(scale);
+            mg.zipfExponent = zipfExponent;
+            mg.generate(m);
+
+            m.suspendAll();
+
+            System.out.println();
+            System.out.println("Initially suspended: " + hook.stores + " providers  " + hook.bytesWritten + " bytes");
+
+            hook.resetCounters();
+            ReadWriteLock.WAIT_COUNT.reset();
+            ReadWriteLock.WAIT_NANOS.reset();
+        }
+
+
+        @TearDown
+        public void report() {
+            long docs = documents.sum();
+            long reactivations = hook.retrieves.sum();
+
+            System.out.println();
+            System.out.println("Documents: " + docs +
+                    "  Suspended: " + suspended +
+                    "  Reactivations: " + reactivations +
+                    (docs > 0 ? " (" + (reactivations / docs) + " per document)" : "") +
+                    "  Bytes read: " + hook.bytesRead +
+                    (reactivations > 0 ? " (" + (hook.bytesRead.sum() / reactivations) + " per reactivation)" : "") +
+                    "  Bytes written: " + hook.bytesWritten +
+                    "  Lock waits: " + ReadWriteLock.WAIT_COUNT +
+                    "  Lock wait time: " + (ReadWriteLock.WAIT_NANOS.sum() / 1000000) + "ms");
+        }
+
+
+        /**
+         * Suspends each neuron and logic node in memory with the probability {@code suspendFraction}. As in
+         * {@code Model.suspendUnusedNodes}, nodes that are used by a document that is still being processed are
+         * kept in memory.
+         */
+        void suspendFraction(Random r) {
+            int docId = Document.docIdCounter.get();
+            for (Document doc : m.docs) {
+                if (doc != null) {
+                    docId = Math.min(docId, doc.id - 1);
+                }
+            }
+
+            List<Provider<? extends AbstractNode>> tmp;
+            synchronized (m.activeProviders) {
+                tmp = new ArrayList<>(m.activeProviders.values());
+            }
+            for (Provider<? extends AbstractNode> p : tmp) {
+                AbstractNode an = p.getIfNotSuspended();
+                if (an != null && an.lastUsedDocumentId <= docId && r.nextDouble() < suspendFraction) {
+                    p.suspend();
+                    suspended.increment();
+                }
+            }
+        }
+    }
+
+
+    @State(Scope.Thread)
+    public static class ThreadSlot {
+        int threadId;
+        int docIndex;
+        DocumentGenerator dg;
+        List<int[]> corpus;
+
+
+        @Setup
+        public void setup(Network n) {
+            threadId = n.threadIdCounter.getAndIncrement();
+            dg = new DocumentGenerator(n.mg, 43 + threadId);
+            corpus = dg.nextCorpus(NUMBER_OF_DOCUMENTS, DOCUMENT_LENGTH);
+        }
+    }
+
+
+    @State(Scope.Thread)
+    public static class SuspendedFraction {
+        Random r = new Random(44);
+
+
+        @Setup(Level.Invocation)
+        public void setup(Network n) {
+            n.suspendFraction(r);
+        }
+    }
+
+
+    @State(Scope.Thread)
+    public static class SuspendedWord {
+        Random r = new Random(45);
+        Neuron word;
+
+
+        @Setup(Level.Invocation)
+        public void setup(Network n) {
+            word = n.mg.words.get(n.mg.sampleWord(r));
+            word.suspend();
+            n.suspended.increment();
+        }
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(1)
+    public Object reactivate(SuspendedWord sw) {
+        return sw.word.get();
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(1)
+    public int processDocument(Network n, ThreadSlot ts, SuspendedFraction sf) {
+        return process(n, ts);
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(2)
+    public int processDocumentConcurrently(Network n, ThreadSlot ts, SuspendedFraction sf) {
+        return process(n, ts);
+    }
+
+
+    private static int process(Network n, ThreadSlot ts) {
+        int[] tokenIds = ts.corpus.get(ts.docIndex);
+        ts.docIndex = (ts.docIndex + 1) % ts.corpus.size();
+
+        Document doc = ts.dg.createDocument(n.m, tokenIds, ts.threadId);
+        doc.process();
+
+        int result = doc.activationIdCounter;
+        doc.clearActivations();
+        n.documents.increment();
+        return result;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.corpus;
+
+
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Range.Operator;
+import org.aika.lattice.AndNode;
+import org.aika.lattice.Node;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class DocumentGuardsTest {
+
+    static int LENGTH = 100;
+
+
+    @Test
+    public void testUnguarded() {
+        Model m = new Model();
+        Neuron inA = m.createNeuron("A");
+        Neuron pattern = createPattern(m, inA);
+
+        Document doc = processRepeatedTokens(m, inA, null);
+
+        Assert.assertFalse(doc.truncated);
+        Assert.assertEquals(LENGTH - 1, pattern.getFinalActivations(doc).size());
+        doc.clearActivations();
+    }
+
+
+    @Test
+    public void testMaxAndJoinsPerNode() {
+        Model m = new Model();
+        Neuron inA = m.createNeuron("A");
+        Neuron pattern = createPattern(m, inA);
+
+        Document doc = processRepeatedTokens(m, inA, d -> d.maxAndJoinsPerNode = 10);
+
+        Assert.assertTrue(doc.truncated);
+        Assert.assertTrue(numberOfAndActivations(doc) <= 10);
+        Assert.assertTrue(pattern.getFinalActivations(doc).size() <= 10);
+        doc.clearActivations();
+
+        // The counters are reset with the activations, so the next document is processed completely.
+        doc = processRepeatedTokens(m, inA, null);
+        Assert.assertFalse(doc.truncated);
+        Assert.assertEquals(LENGTH - 1, pattern.getFinalActivations(doc).size());
+        doc.clearActivations();
+    }
+
+
+    @Test
+    public void testMaxAndJoinsPerNodeAcrossDocuments() {
+        Model m = new Model();
+        Neuron inA = m.createNeuron("A");
+        Neuron pattern = createPattern(m, inA);
+
+        // The join counts belong to the document, so they do not accumulate on the thread slot.
+        for (int i = 0; i < 5; i++) {
+            Document doc = processRepeatedTokens(m, inA, d -> d.maxAndJoinsPerNode = LENGTH);
+
+            Assert.assertFalse(doc.truncated);
+            Assert.assertEquals(LENGTH - 1, pattern.getFinalActivations(doc).size());
+            doc.clearActivations();
+        }
+    }
+
+
+    @Test
+    public void testMaxActivations() {
+        Model m = new Model();
+        Neuron inA = m.createNeuron("A");
+        createPattern(m, inA);
+
+        // Each token creates an input neuron activation, an input node activation, an and-node activation and a
+        // pattern activation, hence the and-joins stop about half way through the document.
+        Document doc = processRepeatedTokens(m, inA, d -> d.maxActivations = 2 * LENGTH);
+
+        Assert.assertTrue(doc.truncated);
+        Assert.assertTrue(numberOfAndActivations(doc) < LENGTH / 2);
+        doc.clearActivations();
+    }
+
+
+    @Test
+    public void testMaxEstimatedBytes() {
+        Model m = new Model();
+        Neuron inA = m.createNeuron("A");
+        createPattern(m, inA);
+
+        Document doc = processRepeatedTokens(m, inA, d -> d.maxEstimatedBytes = 100 * 1024);
+
+        Assert.assertTrue(doc.truncated);
+        Assert.assertTrue(doc.getEstimatedBytes() < 2 * 100 * 1024);
+        doc.clearActivations();
+    }
+
+
+    private interface Configuration {
+        void apply(Document doc);
+    }
+
+
+    private static Document processRepeatedTokens(Model m, Neuron inA, Configuration conf) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < LENGTH; i++) {
+            sb.append('a');
+        }
+
+        Document doc = m.createDocument(sb.toString(), 0);
+        if (conf != null) {
+            conf.apply(doc);
+        }
+
+        for (int i = 0; i < LENGTH; i++) {
+            inA.addInput(doc, i, i + 1, i);
+        }
+        doc.process();
+        return doc;
+    }
+
+
+    private static int numberOfAndActivations(Document doc) {
+        int count = 0;
+        for (Node n : doc.activatedNodes) {
+            if (n instanceof AndNode) {
+                count += n.getActivations(doc).size();
+            }
+        }
+        return count;
+    }
+
+
+    private static Neuron createPattern(Model m, Neuron inA) {
+        return m.initNeuron(
+                m.createNeuron("AA"),
+                0.4,
+                new Input()
+                        .setNeuron(inA)
+                        .setWeight(1.0f)
+                        .setRecurrent(false)
+                        .setRelativeRid(0)
+                        .setBiasDelta(0.9)
+                        .setStartRangeMatch(Operator.EQUALS)
+                        .setEndRangeMatch(Operator.GREATER_THAN)
+                        .setStartRangeOutput(true),
+                new Input()
+                        .setNeuron(inA)
+                        .setWeight(1.0f)
+                        .setRecurrent(false)
+                        .setRelativeRid(1)
+                        .setBiasDelta(0.9)
+                        .setStartRangeMatch(Operator.LESS_THAN)
+                        .setEndRangeMatch(Operator.EQUALS)
+                        .setEndRangeOutput(true)
+        );
+    }
+}
@@ -19,6 +19,7 @@ package org.aika.corpus;
 import org.aika.Input;
 import org.aika.Model;
 import org.aika.Neuron;
+import org.aika.neuron.Activation;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -185,4 +186,59 @@ public class SearchNodeTest {
         doc.clearActivations();
     }
 
+
+    @Test
+    public void testSearchStatistics() {
+        Model m = new Model();
+
+        Neuron inA = m.createNeuron("A");
+        Neuron inB = m.createNeuron("B");
+
+        m.initNeuron(m.createNeuron("PA"), 0.001,
+                new Input()
+                        .setNeuron(inA)
+                        .setWeight(1.0f)
+                        .setBiasDelta(1.0)
+                        .setRecurrent(false)
+                        .setRangeMatch(Input.RangeRelation.EQUALS)
+                        .setRangeOutput(true)
+        );
+        m.initNeuron(m.createNeuron("PB"), 0.001,
+                new Input()
+                        .setNeuron(inB)
+                        .setWeight(2.0f)
+                        .setBiasDelta(1.0)
+                        .setRecurrent(false)
+                        .setRangeMatch(Input.RangeRelation.EQUALS)
+                        .setRangeOutput(true)
+        );
+
+        Document doc = m.createDocument("aaa");
+        for (int i = 0; i < 3; i++) {
+            InterprNode oa = InterprNode.addPrimitive(doc);
+            InterprNode ob = InterprNode.addPrimitive(doc);
+            inA.addInput(doc, i, i + 1, i, oa);
+            Activation actB = inB.addInput(doc, i, i + 1, i, ob);
+            Conflicts.add(doc, actB, oa, ob);
+        }
+
+        doc.process();
+
+        int sum = 0;
+        for (int c : doc.searchStateCounts) {
+            sum += c;
+        }
+        Assert.assertTrue(doc.searchSteps > 0);
+        Assert.assertEquals(doc.searchSteps, sum);
+
+        doc.clearActivations();
+
+        // Without conflicts no search is needed.
+        doc = m.createDocument("aaa");
+        inA.addInput(doc, 0, 1, 0);
+        doc.process();
+
+        Assert.assertEquals(0, doc.searchSteps);
+        doc.clearActivations();
+    }
 }
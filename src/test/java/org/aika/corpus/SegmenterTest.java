@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.corpus;
+
+
+import org.aika.Input;
+import org.aika.Input.RangeRelation;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.ProcessingListener;
+import org.aika.corpus.Range.Operator;
+import org.aika.corpus.StreamingDocument.ActivationRecord;
+import org.aika.corpus.StreamingDocument.InputRecord;
+import org.aika.neuron.Activation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class SegmenterTest {
+
+    @Test
+    public void testSentenceSegmentation() {
+        Model m = new Model(null, 4);
+        Map<Character, Neuron> inputNeurons = createInputNeurons(m);
+        Neuron pattern = createPattern(m, inputNeurons);
+
+        String txt = createText();
+        List<InputRecord> inputs = createInputs(txt, inputNeurons);
+
+        Set<String> expected = processAsSingleDocument(m, pattern, txt, inputs);
+
+        Segmenter segmenter = new Segmenter(m, Segmenter.SENTENCES, 2);
+        Assert.assertEquals(20, segmenter.computeSegments(txt, inputs).size());
+
+        List<String> segmented = new ArrayList<>();
+        int inputCount = 0;
+        for(ActivationRecord ar: segmenter.process(txt, inputs)) {
+            if(ar.n == pattern) {
+                segmented.add(ar.r.begin + "," + ar.r.end);
+            } else {
+                inputCount++;
+            }
+        }
+
+        Assert.assertEquals(30, expected.size());
+        Assert.assertEquals(expected.size(), segmented.size());
+        Assert.assertEquals(expected, new TreeSet<>(segmented));
+        Assert.assertEquals(inputs.size(), inputCount);
+
+        // The separator neuron splits directly after each period, so the trailing space forms a segment of its own.
+        Assert.assertEquals(21, new Segmenter(m, Segmenter.separator(inputNeurons.get('.')), 2).computeSegments(txt, inputs).size());
+    }
+
+
+    @Test
+    public void testSeparatorWithoutOverlap() {
+        Model m = new Model(null, 4);
+        Map<Character, Neuron> inputNeurons = createInputNeurons(m);
+        Neuron pattern = createPattern(m, inputNeurons);
+
+        String txt = createText();
+        List<InputRecord> inputs = createInputs(txt, inputNeurons);
+
+        Set<String> expected = processAsSingleDocument(m, pattern, txt, inputs);
+
+        // Every separator input ends on a segment boundary.
+        Segmenter segmenter = new Segmenter(m, Segmenter.separator(inputNeurons.get('.')), 0);
+        List<ActivationRecord> results = segmenter.process(txt, inputs);
+        Assert.assertEquals(expected, patternRanges(results, pattern));
+
+        int inputCount = 0;
+        for(ActivationRecord ar: results) {
+            if(ar.n != pattern) inputCount++;
+        }
+        Assert.assertEquals(inputs.size(), inputCount);
+    }
+
+
+    @Test
+    public void testRepeatedConcurrentSegmentation() {
+        Model m = new Model(null, 4);
+        Map<Character, Neuron> inputNeurons = createInputNeurons(m);
+        Neuron pattern = createPattern(m, inputNeurons);
+
+        String txt = createText();
+        List<InputRecord> inputs = createInputs(txt, inputNeurons);
+
+        Set<String> expected = processAsSingleDocument(m, pattern, txt, inputs);
+
+        Segmenter segmenter = new Segmenter(m, Segmenter.SENTENCES, 2);
+        for(int i = 0; i < 20; i++) {
+            Assert.assertEquals(expected, patternRanges(segmenter.process(txt, inputs), pattern));
+        }
+    }
+
+
+    @Test
+    public void testThreadSlots() {
+        Model m = new Model(null, 4);
+        Map<Character, Neuron> inputNeurons = createInputNeurons(m);
+        Neuron pattern = createPattern(m, inputNeurons);
+
+        String txt = createText();
+        List<InputRecord> inputs = createInputs(txt, inputNeurons);
+
+        Set<String> expected = processAsSingleDocument(m, pattern, txt, inputs);
+
+        // Slot 0 is occupied by another document while the segments are processed in the remaining slots.
+        Document other = m.createDocument("abc", 0);
+
+        Segmenter segmenter = new Segmenter(m, Segmenter.SENTENCES, 2);
+        Assert.assertEquals(expected, patternRanges(segmenter.process(txt, inputs, Arrays.asList(1, 2, 3)), pattern));
+
+        Assert.assertSame(other, m.docs[0]);
+        other.clearActivations();
+
+        // A failing segment releases its thread slot.
+        m.processingListener = new ProcessingListener() {
+            @Override
+            public void onProcess(Document doc, long nanos) {
+                throw new IllegalStateException();
+            }
+        };
+        try {
+            segmenter.process(txt, inputs, Collections.singletonList(2));
+            Assert.fail();
+        } catch (RuntimeException e) {
+        }
+        Assert.assertNull(m.docs[2]);
+    }
+
+
+    private static Map<Character, Neuron> createInputNeurons(Model m) {
+        Map<Character, Neuron> inputNeurons = new TreeMap<>();
+        for(char c: new char[] {'a', 'b', 'c', 'd', '.'}) {
+            inputNeurons.put(c, m.createNeuron(c + ""));
+        }
+        return inputNeurons;
+    }
+
+
+    private static Neuron createPattern(Model m, Map<Character, Neuron> inputNeurons) {
+        return m.initNeuron(
+                m.createNeuron("ABC"),
+                0.4,
+                new Input()
+                        .setNeuron(inputNeurons.get('a'))
+                        .setWeight(1.0f)
+                        .setRecurrent(false)
+                        .setRelativeRid(0)
+                        .setBiasDelta(0.9)
+                        .setStartRangeMatch(Operator.EQUALS)
+                        .setEndRangeMatch(Operator.GREATER_THAN)
+                        .setStartRangeOutput(true),
+                new Input()
+                        .setNeuron(inputNeurons.get('b'))
+                        .setWeight(1.0f)
+                        .setRecurrent(false)
+                        .setRelativeRid(1)
+                        .setBiasDelta(0.9)
+                        .setRangeMatch(RangeRelation.CONTAINS),
+                new Input()
+                        .setNeuron(inputNeurons.get('c'))
+                        .setWeight(1.0f)
+                        .setRecurrent(false)
+                        .setRelativeRid(2)
+                        .setBiasDelta(0.9)
+                        .setStartRangeMatch(Operator.LESS_THAN)
+                        .setEndRangeMatch(Operator.EQUALS)
+                        .setEndRangeOutput(true)
+        );
+    }
+
+
+    private static String createText() {
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < 20; i++) {
+            sb.append(i % 2 == 0 ? "dabcab. " : "abcd cabc. ");
+        }
+        return sb.toString();
+    }
+
+
+    private static List<InputRecord> createInputs(String txt, Map<Character, Neuron> inputNeurons) {
+        List<InputRecord> inputs = new ArrayList<>();
+        for(int i = 0; i < txt.length(); i++) {
+            Neuron n = inputNeurons.get(txt.charAt(i));
+            if(n != null) {
+                inputs.add(new InputRecord(n, i, i + 1, i, 1.0));
+            }
+        }
+        return inputs;
+    }
+
+
+    /**
+     * Reference: the whole text as a single document.
+     */
+    private static Set<String> processAsSingleDocument(Model m, Neuron pattern, String txt, List<InputRecord> inputs) {
+        Document doc = m.createDocument(txt, 0);
+        for(InputRecord ir: inputs) {
+            ir.n.addInput(doc, ir.begin, ir.end, ir.rid);
+        }
+        doc.process();
+
+        Set<String> expected = new TreeSet<>();
+        for(Activation act: pattern.getFinalActivations(doc)) {
+            expected.add(act.key.r.begin + "," + act.key.r.end);
+        }
+        doc.clearActivations();
+        return expected;
+    }
+
+
+    private static Set<String> patternRanges(List<ActivationRecord> results, Neuron pattern) {
+        Set<String> ranges = new TreeSet<>();
+        for(ActivationRecord ar: results) {
+            if(ar.n == pattern) {
+                ranges.add(ar.r.begin + "," + ar.r.end);
+            }
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.corpus;
+
+
+import org.aika.Input;
+import org.aika.Input.RangeRelation;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Range.Operator;
+import org.aika.corpus.StreamingDocument.ActivationRecord;
+import org.aika.neuron.Activation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class StreamingDocumentTest {
+
+    @Test
+    public void testStreamingDocument() {
+        Model m = new Model();
+
+        Map<Character, Neuron> inputNeurons = new TreeMap<>();
+        for(char c: new char[] {'a', 'b', 'c', 'd'}) {
+            inputNeurons.put(c, m.createNeuron(c + ""));
+        }
+
+        Neuron pattern = m.initNeuron(
+                m.createNeuron("ABC"),
+                0.4,
+                new Input()
+                        .setNeuron(inputNeurons.get('a'))
+                        .setWeight(1.0f)
+                        .setRecurrent(false)
+                        .setRelativeRid(0)
+                        .setBiasDelta(0.9)
+                        .setStartRangeMatch(Operator.EQUALS)
+                        .setEndRangeMatch(Operator.GREATER_THAN)
+                        .setStartRangeOutput(true),
+                new Input()
+                        .setNeuron(inputNeurons.get('b'))
+                        .setWeight(1.0f)
+                        .setRecurrent(false)
+                        .setRelativeRid(1)
+                        .setBiasDelta(0.9)
+                        .setRangeMatch(RangeRelation.CONTAINS),
+                new Input()
+                        .setNeuron(inputNeurons.get('c'))
+                        .setWeight(1.0f)
+                        .setRecurrent(false)
+                        .setRelativeRid(2)
+                        .setBiasDelta(0.9)
+                        .setStartRangeMatch(Operator.LESS_THAN)
+                        .setEndRangeMatch(Operator.EQUALS)
+                        .setEndRangeOutput(true)
+        );
+
+        String txt = "abcdabcdddabcabdcabcaabcbcabc";
+
+        // Reference: the whole text as a single document.
+        Document doc = m.createDocument(txt, 0);
+        for(int i = 0; i < txt.length(); i++) {
+            inputNeurons.get(txt.charAt(i)).addInput(doc, i, i + 1, i);
+        }
+        doc.process();
+
+        Set<String> expected = new TreeSet<>();
+        for(Activation act: pattern.getFinalActivations(doc)) {
+            expected.add(act.key.r.begin + "," + act.key.r.end);
+        }
+        doc.clearActivations();
+
+        // The same text streamed in chunks of 4 characters.
+        StreamingDocument sdoc = new StreamingDocument(m, 0, 3);
+        List<ActivationRecord> results = new ArrayList<>();
+        for(int pos = 0; pos < txt.length(); pos += 4) {
+            String chunk = txt.substring(pos, Math.min(txt.length(), pos + 4));
+            sdoc.append(chunk);
+            for(int i = pos; i < pos + chunk.length(); i++) {
+                sdoc.addInput(inputNeurons.get(txt.charAt(i)), i, i + 1, i);
+            }
+            results.addAll(sdoc.process());
+        }
+        results.addAll(sdoc.finish());
+
+        List<String> streamed = new ArrayList<>();
+        for(ActivationRecord ar: results) {
+            if(ar.n == pattern) {
+                streamed.add(ar.r.begin + "," + ar.r.end);
+            }
+        }
+
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected.size(), streamed.size());
+        Assert.assertEquals(expected, new TreeSet<>(streamed));
+
+        // Every input activation is emitted exactly once.
+        int inputCount = 0;
+        for(ActivationRecord ar: results) {
+            if(ar.n != pattern) inputCount++;
+        }
+        Assert.assertEquals(txt.length(), inputCount);
+    }
+
+
+    @Test
+    public void testInputCrossingWindowBoundary() {
+        Model m = new Model();
+
+        Neuron inChar = m.createNeuron("CHAR");
+        Neuron inWord = m.createNeuron("WORD");
+
+        String txt = "abcdabcdddab";
+
+        // The word begins before the start of the second window and ends within it.
+        StreamingDocument sdoc = new StreamingDocument(m, 0, 3);
+        List<ActivationRecord> results = new ArrayList<>();
+        for(int pos = 0; pos < txt.length(); pos += 4) {
+            sdoc.append(txt.substring(pos, pos + 4));
+            for(int i = pos; i < pos + 4; i++) {
+                sdoc.addInput(inChar, i, i + 1, i);
+            }
+            if(pos == 0) {
+                sdoc.addInput(inWord, 1, 9);
+            }
+            results.addAll(sdoc.process());
+        }
+        results.addAll(sdoc.finish());
+
+        List<String> words = new ArrayList<>();
+        int charCount = 0;
+        for(ActivationRecord ar: results) {
+            if(ar.n == inWord) {
+                words.add(ar.r.begin + "," + ar.r.end);
+            } else {
+                charCount++;
+            }
+        }
+
+        Assert.assertEquals(Collections.singletonList("1,9"), words);
+        Assert.assertEquals(txt.length(), charCount);
+    }
+}
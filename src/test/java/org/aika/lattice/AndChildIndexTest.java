@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.lattice;
+
+
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class AndChildIndexTest {
+
+
+    @Test
+    public void testHotInput() {
+        Model m = new Model();
+
+        Neuron inA = m.createNeuron("A");
+
+        List<Neuron> partners = new ArrayList<>();
+        List<Neuron> outputs = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Neuron inB = m.createNeuron("B-" + i);
+            partners.add(inB);
+            outputs.add(m.initNeuron(m.createNeuron("AB-" + i), 0.5, createInput(inA), createInput(inB)));
+        }
+
+        InputNode nodeA = inA.get().outputNodes.firstEntry().getValue().get();
+        Assert.assertEquals(30, nodeA.andChildrenByInput.size());
+
+        Document doc = m.createDocument("aaaa");
+        inA.addInput(doc, 0, 4);
+        partners.get(7).addInput(doc, 0, 4);
+        partners.get(21).addInput(doc, 0, 4);
+        doc.process();
+
+        // Only the activated partner input nodes are looked up in the and-children index.
+        Assert.assertTrue(doc.activatedNodes.size() < nodeA.andChildrenByInput.size());
+        for (int i = 0; i < outputs.size(); i++) {
+            Assert.assertEquals(i == 7 || i == 21, !outputs.get(i).getFinalActivations(doc).isEmpty());
+        }
+
+        doc.clearActivations();
+    }
+
+
+    private static Input createInput(Neuron in) {
+        return new Input()
+                .setNeuron(in)
+                .setWeight(1.0f)
+                .setBiasDelta(1.0)
+                .setRecurrent(false)
+                .setRangeMatch(EQUALS)
+                .setRangeOutput(true);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.lattice;
+
+
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Document;
+import org.aika.corpus.Range;
+import org.aika.neuron.Activation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class OrNodeIndexTest {
+
+
+    @Test
+    public void testDictionary() {
+        Model m = new Model();
+
+        List<Neuron> words = createWords(m, 100);
+        Neuron dict = initOrNeuron(m, "DICT", words);
+
+        OrNode dictNode = dict.get().node.get();
+        Assert.assertEquals(100, dictNode.parentIndex.size());
+
+        Neuron other = m.createNeuron("OTHER");
+
+        Document doc = m.createDocument("aaaaaa");
+        words.get(3).addInput(doc, 0, 1);
+        words.get(57).addInput(doc, 2, 3);
+        other.addInput(doc, 4, 5);
+        doc.process();
+
+        // Fewer activated nodes than parents, thus the activated nodes are looked up in the parent index.
+        Assert.assertTrue(doc.activatedNodes.size() < dictNode.parentIndex.size());
+        Assert.assertEquals(ranges(new Range(0, 1), new Range(2, 3)), ranges(dict.getFinalActivations(doc)));
+
+        doc.clearActivations();
+    }
+
+
+    @Test
+    public void testFewParents() {
+        Model m = new Model();
+
+        List<Neuron> words = createWords(m, 20);
+        Neuron dict = initOrNeuron(m, "DICT", words.subList(0, 2));
+
+        Document doc = m.createDocument("aaaaaaaaaaaaaaaaaaaa");
+        for(int i = 0; i < words.size(); i++) {
+            words.get(i).addInput(doc, i, i + 1);
+        }
+        doc.process();
+
+        // More activated nodes than parents, thus the parents are iterated.
+        Assert.assertTrue(doc.activatedNodes.size() > dict.get().node.get().parentIndex.size());
+        Assert.assertEquals(ranges(new Range(0, 1), new Range(1, 2)), ranges(dict.getFinalActivations(doc)));
+
+        doc.clearActivations();
+    }
+
+
+    @Test
+    public void testRemoveInput() {
+        Model m = new Model();
+
+        List<Neuron> words = createWords(m, 2);
+        Neuron dict = initOrNeuron(m, "DICT", words);
+
+        OrNode dictNode = dict.get().node.get();
+        Node in = dict.get().inputSynapses.firstKey().inputNode.get();
+
+        Assert.assertNotNull(dictNode.parentIndex.get(in.provider.id));
+        dictNode.removeInput(null, in, false);
+        Assert.assertNull(dictNode.parentIndex.get(in.provider.id));
+        Assert.assertEquals(1, dictNode.parentIndex.size());
+    }
+
+
+    private static List<Neuron> createWords(Model m, int n) {
+        List<Neuron> words = new ArrayList<>();
+        for(int i = 0; i < n; i++) {
+            words.add(m.createNeuron("W-" + i));
+        }
+        return words;
+    }
+
+
+    private static Neuron initOrNeuron(Model m, String label, List<Neuron> inputNeurons) {
+        List<Input> inputs = new ArrayList<>();
+        for(Neuron n: inputNeurons) {
+            inputs.add(
+                    new Input()
+                            .setNeuron(n)
+                            .setWeight(1.0f)
+                            .setRecurrent(false)
+                            .setBiasDelta(0.0)
+                            .setRangeMatch(EQUALS)
+                            .setRangeOutput(true)
+            );
+        }
+        return m.initNeuron(m.createNeuron(label), -0.001, inputs);
+    }
+
+
+    private static Set<String> ranges(Range... rs) {
+        Set<String> results = new TreeSet<>();
+        for(Range r: rs) {
+            results.add(r.toString());
+        }
+        return results;
+    }
+
+
+    private static Set<String> ranges(Iterable<Activation> acts) {
+        Set<String> results = new TreeSet<>();
+        for(Activation act: acts) {
+            results.add(act.key.r.toString());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.lattice;
+
+
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.Provider;
+import org.aika.corpus.Document;
+import org.aika.lattice.AndNode.Refinement;
+import org.aika.network.TestHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class PatternDiscoveryTest {
+
+    static int NUMBER_OF_DOCUMENTS = 40;
+
+
+    @Test
+    public void testParallelDiscovery() {
+        AndNode.minFrequency = 5;
+
+        Model seqModel = new Model(null, 1);
+        Neuron[] seqInputs = createInputs(seqModel);
+
+        for (int i = 0; i < NUMBER_OF_DOCUMENTS; i++) {
+            Document doc = seqModel.createDocument(text(i), 0);
+            addInputs(doc, seqInputs);
+            doc.process();
+            doc.train();
+            doc.clearActivations();
+        }
+
+        Model parModel = new Model(null, 4);
+        Neuron[] parInputs = createInputs(parModel);
+
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_DOCUMENTS; i++) {
+            texts.add(text(i));
+        }
+
+        PatternDiscovery pd = new PatternDiscovery(parModel);
+        pd.batchSize = 8;
+        List<AndNode> created = pd.process(texts, doc -> addInputs(doc, parInputs));
+
+        Assert.assertEquals(seqModel.numberOfPositions, parModel.numberOfPositions);
+        for (int i = 0; i < seqInputs.length; i++) {
+            Assert.assertEquals(inputNode(seqModel, seqInputs[i]).frequency, inputNode(parModel, parInputs[i]).frequency);
+        }
+
+        AndNode seqAB = andNode(seqModel, seqInputs[0], seqInputs[1]);
+        AndNode parAB = andNode(parModel, parInputs[0], parInputs[1]);
+        Assert.assertNotNull(seqAB);
+        Assert.assertNotNull(parAB);
+        Assert.assertTrue(created.contains(parAB));
+
+        // The pattern node now exists from the beginning, so a second pass has to count every occurrence.
+        int freq = parAB.frequency;
+        pd.process(texts, doc -> addInputs(doc, parInputs));
+        Assert.assertEquals(freq + countOccurrences(texts), parAB.frequency);
+    }
+
+
+    @Test
+    public void testFailingDocument() {
+        Model m = new Model(null, 4);
+        Neuron[] inputs = createInputs(m);
+
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            texts.add(text(i));
+        }
+
+        // The documents fail after their inputs have been added.
+        PatternDiscovery pd = new PatternDiscovery(m);
+        try {
+            pd.process(texts, doc -> {
+                addInputs(doc, inputs);
+                throw new IllegalStateException();
+            });
+            Assert.fail();
+        } catch (RuntimeException e) {
+        }
+
+        // Every thread slot has been released.
+        for (int i = 0; i < m.numberOfThreads; i++) {
+            Assert.assertNull(m.docs[i]);
+        }
+    }
+
+
+    private static String text(int i) {
+        return i % 4 == 3 ? "a" : "ab";
+    }
+
+
+    private static int countOccurrences(List<String> texts) {
+        int count = 0;
+        for (String txt : texts) {
+            if (txt.equals("ab")) count++;
+        }
+        return count;
+    }
+
+
+    private static Neuron[] createInputs(Model m) {
+        Neuron inA = m.createNeuron("A");
+        Neuron inB = m.createNeuron("B");
+
+        Document doc = m.createDocument(null, 0);
+        TestHelper.addOutputNode(doc, inA, 0, null);
+        TestHelper.addOutputNode(doc, inB, 0, null);
+        return new Neuron[]{inA, inB};
+    }
+
+
+    private static void addInputs(Document doc, Neuron[] inputs) {
+        // Each letter of the text is an input that covers the whole document.
+        for (int i = 0; i < doc.length(); i++) {
+            inputs[doc.getContent().charAt(i) - 'a'].addInput(doc, 0, doc.length(), 0);
+        }
+    }
+
+
+    private static InputNode inputNode(Model m, Neuron n) {
+        return TestHelper.addOutputNode(m.createDocument(null, 0), n, 0, null);
+    }
+
+
+    private static AndNode andNode(Model m, Neuron inA, Neuron inB) {
+        InputNode a = inputNode(m, inA);
+        if (a.andChildren == null) return null;
+        for (Map.Entry<Refinement, Provider<AndNode>> me : a.andChildren.entrySet()) {
+            if (me.getKey().input.get() == inputNode(m, inB)) {
+                return me.getValue().get();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.lattice;
+
+
+import org.aika.Converter;
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.Provider;
+import org.aika.lattice.AndNode.Refinement;
+import org.aika.neuron.Synapse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class ReplanTest {
+
+    Neuron inA;
+    Neuron inB;
+    Neuron inC;
+    Neuron inD;
+
+
+    @Test
+    public void testRemoveConvertedNode() {
+        Model m = createModel();
+        Neuron out = initOutputNeuron(m);
+
+        AndNode ab = getAndChild(out, inA, inB);
+        Assert.assertNotNull(ab);
+
+        replan(m, out);
+
+        Assert.assertTrue(ab.isRemoved);
+        Assert.assertNull(getAndChild(out, inA, inB));
+        Assert.assertNotNull(getAndChild(out, inC, inD));
+    }
+
+
+    @Test
+    public void testKeepDiscoveredNode() {
+        Model m = createModel();
+
+        // The or-neuron creates the same input nodes as the and-neuron, without creating any and-nodes.
+        Neuron or = m.initNeuron(m.createNeuron("OR"), 0.5, createInput(inA), createInput(inB));
+        InputNode iA = getInputNode(or, inA);
+        InputNode iB = getInputNode(or, inB);
+        Assert.assertNull(iA.andChildren);
+
+        AndNode ab = AndNode.createNextLevelNode(m, 0, iA, new Refinement(null, null, iB.provider), true);
+        Assert.assertNotNull(ab);
+
+        // The neuron reuses the discovered node as its required node.
+        Neuron out = initOutputNeuron(m);
+        Assert.assertSame(ab, getAndChild(out, inA, inB));
+
+        replan(m, out);
+
+        Assert.assertFalse(ab.isRemoved);
+        Assert.assertSame(ab, getAndChild(out, inA, inB));
+        Assert.assertNotNull(getAndChild(out, inC, inD));
+    }
+
+
+    private Model createModel() {
+        Model m = new Model();
+        inA = m.createNeuron("A");
+        inB = m.createNeuron("B");
+        inC = m.createNeuron("C");
+        inD = m.createNeuron("D");
+        return m;
+    }
+
+
+    /**
+     * Any two of the four inputs are sufficient, so among the equal weights the required node is A and B.
+     */
+    private Neuron initOutputNeuron(Model m) {
+        return m.initNeuron(m.createNeuron("OUT"), 0.5,
+                createInput(inA).setBiasDelta(0.6),
+                createInput(inB).setBiasDelta(0.6),
+                createInput(inC).setBiasDelta(0.6),
+                createInput(inD).setBiasDelta(0.6)
+        );
+    }
+
+
+    /**
+     * Lowers the weights of A and B and re-plans, so that the required node becomes C and D.
+     */
+    private void replan(Model m, Neuron out) {
+        for (Synapse s : out.get().inputSynapses.values()) {
+            if (s.input == inA || s.input == inB) {
+                s.w = 0.9f;
+            }
+        }
+        Converter.replan(m);
+    }
+
+
+    private static InputNode getInputNode(Neuron n, Neuron in) {
+        for (Synapse s : n.get().inputSynapses.values()) {
+            if (s.input == in) {
+                return s.inputNode.get();
+            }
+        }
+        return null;
+    }
+
+
+    private static AndNode getAndChild(Neuron n, Neuron inA, Neuron inB) {
+        InputNode iA = getInputNode(n, inA);
+        if (iA.andChildren == null) return null;
+        Provider<AndNode> p = iA.andChildren.get(new Refinement(null, null, getInputNode(n, inB).provider));
+        return p != null ? p.get() : null;
+    }
+
+
+    private static Input createInput(Neuron in) {
+        return new Input()
+                .setNeuron(in)
+                .setWeight(1.0f)
+                .setBiasDelta(0.0)
+                .setRecurrent(false)
+                .setRangeMatch(EQUALS)
+                .setRangeOutput(true);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.lattice;
+
+
+import org.aika.lattice.Significance.Method;
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class SignificanceTest {
+
+    static int[] N = new int[] {1, 2, 5, 20, 100, 1000, 10000, 100000, 1000000, 10000000};
+    static double[] P = new double[] {0.000001, 0.0001, 0.001, 0.01, 0.1, 0.3, 0.5, 0.9, 0.999};
+
+
+    @Test
+    public void testAccuracy() {
+        Set<Method> usedMethods = EnumSet.noneOf(Method.class);
+
+        for (int n : N) {
+            for (double p : P) {
+                Method method = Significance.selectMethod(n, p);
+                usedMethods.add(method);
+
+                double maxError = method == Method.EXACT ? 1e-6 : Significance.MAX_ERROR;
+
+                BinomialDistribution binDist = new BinomialDistribution(null, n, p);
+                for (int k : computeTestPoints(n, p)) {
+                    double expected = binDist.cumulativeProbability(k);
+                    double actual = Significance.cumulativeProbability(n, p, k);
+
+                    Assert.assertEquals("n:" + n + " p:" + p + " k:" + k + " method:" + method, expected, actual, maxError);
+                }
+            }
+        }
+
+        Assert.assertEquals(EnumSet.allOf(Method.class), usedMethods);
+    }
+
+
+    @Test
+    public void testLogFactorial() {
+        double lf = 0.0;
+        for (int i = 1; i < 5000; i++) {
+            lf += Math.log(i);
+            Assert.assertEquals(lf, Significance.logFactorial(i), 1e-8);
+        }
+    }
+
+
+    private static Set<Integer> computeTestPoints(int n, double p) {
+        double mean = n * p;
+        double sd = Math.sqrt(n * p * (1.0 - p));
+
+        Set<Integer> results = new TreeSet<>();
+        for (double x : new double[] {-5.0, -3.0, -2.0, -1.0, -0.5, 0.0, 0.5, 1.0, 2.0, 3.0, 5.0}) {
+            results.add((int) Math.round(mean + x * sd));
+        }
+        results.add(-1);
+        results.add(0);
+        results.add(1);
+        results.add(n - 1);
+        results.add(n);
+        return results;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.lattice;
+
+
+import org.aika.Model;
+import org.aika.corpus.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class WeightUpdateSchedulerTest {
+
+
+    @Test
+    public void testPollDue() {
+        Model m = new Model();
+        WeightUpdateScheduler s = m.weightUpdateScheduler;
+
+        AndNode n1 = createNode(m, 10);
+        AndNode n2 = createNode(m, 20);
+        AndNode n3 = createNode(m, 5);
+
+        m.numberOfPositions = 4;
+        Assert.assertTrue(s.pollDue().isEmpty());
+
+        // Rescheduling n3 leaves a stale entry for position 5 in the queue.
+        n3.numberOfPositionsNotify = 15;
+        s.schedule(n3);
+
+        m.numberOfPositions = 15;
+        List<AndNode> due = s.pollDue();
+        Assert.assertEquals(Arrays.asList(n1, n3), due);
+
+        m.numberOfPositions = 100;
+        Assert.assertEquals(Arrays.asList(n2), s.pollDue());
+        Assert.assertEquals(0, s.size());
+    }
+
+
+    @Test
+    public void testExecutor() {
+        Model m = new Model();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        m.weightUpdateScheduler.executor = executor;
+
+        AndNode n = createNode(m, 10);
+        n.frequency = 100;
+        n.sizeSum = 100;
+        n.instanceSum = 100;
+        n.nullHypFreq = 1.0;
+
+        m.numberOfPositions = 1000;
+        m.weightUpdateScheduler.processDue(1);
+        m.weightUpdateScheduler.flush();
+        executor.shutdown();
+
+        Assert.assertTrue(n.numberOfPositionsNotify > 1000);
+        Assert.assertEquals(1, m.weightUpdateScheduler.size());
+    }
+
+
+    @Test
+    public void testPostponeNotEvaluated() {
+        Model m = new Model();
+        AndNode n = createNode(m, 10);
+        n.frequency = 0;
+
+        m.numberOfPositions = 20;
+        m.weightUpdateScheduler.processDue(1);
+
+        // The frequency is too low for an evaluation, but the node stays in the schedule.
+        Assert.assertTrue(n.numberOfPositionsNotify > 20);
+        Assert.assertEquals(1, m.weightUpdateScheduler.size());
+
+        initStatistics(n);
+        m.numberOfPositions = n.numberOfPositionsNotify;
+        Assert.assertEquals(Arrays.asList(n), m.weightUpdateScheduler.pollDue());
+    }
+
+
+    @Test
+    public void testExecutorWithTraining() {
+        Model m = new Model();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        m.weightUpdateScheduler.executor = executor;
+
+        AndNode n = createNode(m, 10);
+        initStatistics(n);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append('a');
+        }
+        Document doc = m.createDocument(sb.toString(), 0);
+        doc.process();
+        doc.train();
+
+        // The update may still be pending after train, flush waits for it.
+        m.weightUpdateScheduler.flush();
+        doc.clearActivations();
+        executor.shutdown();
+
+        Assert.assertEquals(1000, m.numberOfPositions);
+        Assert.assertTrue(n.numberOfPositionsNotify > 1000);
+        Assert.assertEquals(1, m.weightUpdateScheduler.size());
+    }
+
+
+    private static void initStatistics(AndNode n) {
+        n.frequency = 100;
+        n.sizeSum = 100;
+        n.instanceSum = 100;
+        n.nullHypFreq = 1.0;
+    }
+
+
+    private static AndNode createNode(Model m, int notifyPos) {
+        AndNode n = new AndNode(m, 2, new TreeMap<>());
+        n.numberOfPositionsNotify = notifyPos;
+        m.weightUpdateScheduler.schedule(n);
+        return n;
+    }
+}
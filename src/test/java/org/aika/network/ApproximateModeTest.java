@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.AbstractNode;
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Document;
+import org.aika.neuron.INeuron;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class ApproximateModeTest {
+
+    Neuron inA;
+    Neuron inB;
+    Neuron weak;
+    Neuron strong;
+    Neuron weakOut;
+    Neuron strongOut;
+
+
+    @After
+    public void resetMode() {
+        INeuron.MIN_UPPER_BOUND = 0.0;
+    }
+
+
+    @Test
+    public void testExactMode() {
+        Model m = createModel();
+
+        Document doc = processDocument(m);
+
+        Assert.assertEquals(0, doc.prunedActivations);
+        Assert.assertFalse(weakOut.getFinalActivations(doc).isEmpty());
+        Assert.assertFalse(strongOut.getFinalActivations(doc).isEmpty());
+        doc.clearActivations();
+    }
+
+
+    @Test
+    public void testGlobalMinUpperBound() {
+        Model m = createModel();
+        INeuron.MIN_UPPER_BOUND = 0.3;
+
+        Document doc = processDocument(m);
+
+        // The activation of the weak neuron still exists, but is not propagated any further.
+        Assert.assertEquals(1, doc.prunedActivations);
+        Assert.assertEquals(1, weak.get().node.get().getActivations(doc).size());
+        Assert.assertTrue(weakOut.getFinalActivations(doc).isEmpty());
+        Assert.assertFalse(strongOut.getFinalActivations(doc).isEmpty());
+        doc.clearActivations();
+    }
+
+
+    @Test
+    public void testNeuronMinUpperBound() {
+        Model m = createModel();
+        INeuron.MIN_UPPER_BOUND = 0.3;
+        weak.get().minUpperBound = 0.0;
+
+        Document doc = processDocument(m);
+
+        Assert.assertEquals(0, doc.prunedActivations);
+        Assert.assertFalse(weakOut.getFinalActivations(doc).isEmpty());
+        doc.clearActivations();
+    }
+
+
+    @Test
+    public void testRemovePrunedActivation() {
+        Model m = createModel();
+        INeuron.MIN_UPPER_BOUND = 0.3;
+
+        Document doc = processDocument(m);
+        Assert.assertEquals(1, doc.prunedActivations);
+
+        inA.removeInput(doc, 0, 2);
+        doc.propagate();
+
+        Assert.assertTrue(weak.get().node.get().getActivations(doc).isEmpty());
+        Assert.assertEquals(0, doc.prunedActivations);
+        doc.clearActivations();
+    }
+
+
+    @Test
+    public void testMinUpperBoundSerialization() throws IOException {
+        Model m = createModel();
+        weak.get().minUpperBound = 0.3;
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        weak.get().write(new DataOutputStream(baos));
+
+        INeuron n = (INeuron) AbstractNode.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())), weak);
+        Assert.assertEquals(0.3, n.minUpperBound, 0.0);
+    }
+
+
+    @Test
+    public void testReadFormatVersion1() throws IOException {
+        Model m = new Model();
+        Neuron p = m.createNeuron();
+
+        // A neuron without output nodes, logic node and input synapses, written in the format before the minUpperBound.
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        out.writeBoolean(true);
+        out.writeUTF("OLD");
+        for (int i = 0; i < 5; i++) {
+            out.writeDouble(0.5);
+        }
+        out.writeInt(0);
+        out.writeBoolean(false);
+        out.writeBoolean(false);
+        out.writeBoolean(true);
+        out.writeDouble(2.0);
+        out.writeInt(3);
+        out.writeBoolean(false);
+
+        INeuron n = (INeuron) AbstractNode.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())), p);
+        Assert.assertEquals("OLD", n.label);
+        Assert.assertEquals(0.5, n.bias, 0.0);
+        Assert.assertTrue(n.noTraining);
+        Assert.assertNull(n.minUpperBound);
+        Assert.assertEquals(2.0, n.activationSum, 0.0);
+        Assert.assertEquals(3, n.numberOfActivations);
+    }
+
+
+    private Model createModel() {
+        Model m = new Model();
+
+        inA = m.createNeuron("A");
+        inB = m.createNeuron("B");
+
+        // The upper bound of the weak neuron is tanh(0.2 - 0.001) and thus well below 0.3.
+        weak = m.initNeuron(m.createNeuron("WEAK"), -0.001, createInput(inA, 0.2f));
+        strong = m.initNeuron(m.createNeuron("STRONG"), -0.001, createInput(inB, 1.0f));
+
+        weakOut = m.initNeuron(m.createNeuron("WEAK-OUT"), -0.001, createInput(weak, 10.0f));
+        strongOut = m.initNeuron(m.createNeuron("STRONG-OUT"), -0.001, createInput(strong, 10.0f));
+        return m;
+    }
+
+
+    private Document processDocument(Model m) {
+        Document doc = m.createDocument("aaaa");
+        inA.addInput(doc, 0, 2);
+        inB.addInput(doc, 2, 4);
+        doc.process();
+        return doc;
+    }
+
+
+    private static Input createInput(Neuron in, float w) {
+        return new Input()
+                .setNeuron(in)
+                .setWeight(w)
+                .setRecurrent(false)
+                .setBiasDelta(0.0)
+                .setRangeMatch(EQUALS)
+                .setRangeOutput(true);
+    }
+}
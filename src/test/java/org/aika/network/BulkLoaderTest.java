@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.*;
+import org.aika.corpus.Document;
+import org.aika.corpus.Range.Operator;
+import org.aika.lattice.AndNode;
+import org.aika.lattice.InputNode;
+import org.aika.neuron.Activation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class BulkLoaderTest {
+
+    static String[] WORDS = new String[] {
+            "ab", "aber", "am", "bad", "bald", "band", "dach", "das", "der", "end", "ende", "hand", "hat", "lese",
+            "nase", "rad", "rase", "sand", "see", "seen", "und"
+    };
+
+
+    @Test
+    public void testBulkLoading() {
+        Model seqModel = new Model(null, 1);
+        Map<Character, Neuron> seqLetters = createLetterNeurons(seqModel);
+        Map<String, Neuron> seqWords = createWordNeurons(seqModel, seqLetters, null);
+
+        Model bulkModel = new Model(null, 4);
+        Map<Character, Neuron> bulkLetters = createLetterNeurons(bulkModel);
+        BulkLoader bl = new BulkLoader(bulkModel);
+        Map<String, Neuron> bulkWords = createWordNeurons(bulkModel, bulkLetters, bl);
+        Assert.assertEquals(WORDS.length, bl.size());
+        for(Neuron n: bl.load()) {
+            Assert.assertNotNull(n);
+        }
+
+        Assert.assertEquals(countNodes(seqModel, InputNode.class), countNodes(bulkModel, InputNode.class));
+        Assert.assertEquals(countNodes(seqModel, AndNode.class), countNodes(bulkModel, AndNode.class));
+
+        String txt = "der abend am see hat sande und nasen";
+        Set<String> results = recognize(bulkModel, bulkLetters, bulkWords, txt);
+        Assert.assertEquals(recognize(seqModel, seqLetters, seqWords, txt), results);
+        Assert.assertTrue(results.contains("end"));
+        Assert.assertTrue(results.contains("sand"));
+        Assert.assertTrue(results.contains("see"));
+        Assert.assertFalse(results.contains("seen"));
+    }
+
+
+    private Map<Character, Neuron> createLetterNeurons(Model m) {
+        Map<Character, Neuron> results = new TreeMap<>();
+        for(char c = 'a'; c <= 'z'; c++) {
+            results.put(c, m.createNeuron("L-" + c));
+        }
+        return results;
+    }
+
+
+    private Map<String, Neuron> createWordNeurons(Model m, Map<Character, Neuron> letters, BulkLoader bl) {
+        Map<String, Neuron> results = new TreeMap<>();
+        for(String word: WORDS) {
+            List<Input> inputs = new ArrayList<>();
+            for(int i = 0; i < word.length(); i++) {
+                inputs.add(
+                        new Input()
+                                .setNeuron(letters.get(word.charAt(i)))
+                                .setWeight(1.0f)
+                                .setRecurrent(false)
+                                .setRelativeRid(i)
+                                .setBiasDelta(0.9)
+                                .setStartRangeMatch(i == 0 ? Operator.EQUALS : Operator.LESS_THAN)
+                                .setEndRangeMatch(i == word.length() - 1 ? Operator.EQUALS : Operator.GREATER_THAN)
+                                .setStartRangeOutput(i == 0)
+                                .setEndRangeOutput(i == word.length() - 1)
+                );
+            }
+
+            Neuron n = m.createNeuron("W-" + word);
+            if(bl != null) {
+                bl.add(n, 0.5, inputs);
+            } else {
+                m.initNeuron(n, 0.5, inputs);
+            }
+            results.put(word, n);
+        }
+        return results;
+    }
+
+
+    private Set<String> recognize(Model m, Map<Character, Neuron> letters, Map<String, Neuron> words, String txt) {
+        Document doc = m.createDocument(txt, 0);
+        for(int i = 0; i < txt.length(); i++) {
+            char c = txt.charAt(i);
+            if(c != ' ') {
+                letters.get(c).addInput(doc, i, i + 1, i);
+            }
+        }
+        doc.process();
+
+        Set<String> results = new TreeSet<>();
+        for(Map.Entry<String, Neuron> me: words.entrySet()) {
+            for(Activation act: me.getValue().getFinalActivations(doc)) {
+                if(txt.substring(act.key.r.begin, act.key.r.end).equals(me.getKey())) {
+                    results.add(me.getKey());
+                }
+            }
+        }
+        doc.clearActivations();
+        return results;
+    }
+
+
+    private int countNodes(Model m, Class<?> c) {
+        int count = 0;
+        synchronized (m.activeProviders) {
+            for(Provider<? extends AbstractNode> p: m.activeProviders.values()) {
+                if(c.isInstance(p.getIfNotSuspended())) count++;
+            }
+        }
+        return count;
+    }
+}
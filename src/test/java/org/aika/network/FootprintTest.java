@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.*;
+import org.aika.corpus.Document;
+import org.aika.network.SuspensionTest.DummySuspensionHook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class FootprintTest {
+
+
+    @Test
+    public void testDocumentFootprint() {
+        Model m = new Model();
+
+        Neuron inA = m.createNeuron("A");
+        Neuron outB = createOutputNeuron(m, "B", inA);
+
+        long modelBytes = m.metrics.getEstimatedBytes();
+        Assert.assertTrue(modelBytes >= 2 * Footprint.NEURON + Footprint.SYNAPSE);
+        Assert.assertEquals(modelBytes, m.getEstimatedBytes());
+
+        Document doc = m.createDocument("aaaaaaaaaa", 0);
+        Assert.assertEquals(0, doc.getEstimatedBytes());
+
+        inA.addInput(doc, 0, 5);
+        doc.process();
+
+        Assert.assertFalse(outB.getFinalActivations(doc).isEmpty());
+        Assert.assertTrue(doc.getEstimatedBytes() >= 2 * Footprint.ACTIVATION + Footprint.SYNAPSE_ACTIVATION + Footprint.INTERPR_NODE);
+
+        // The thread states of the activated logic nodes are accounted in the model.
+        Assert.assertTrue(m.metrics.getEstimatedBytes() > modelBytes);
+        Assert.assertEquals(m.metrics.getEstimatedBytes() + doc.getEstimatedBytes(), m.getEstimatedBytes());
+
+        long docBytes = doc.getEstimatedBytes();
+        doc.clearActivations();
+
+        Assert.assertEquals(m.metrics.getEstimatedBytes(), m.getEstimatedBytes());
+        Assert.assertEquals(docBytes, m.metrics.getMaxDocumentBytes());
+    }
+
+
+    @Test
+    public void testEvictionToBudget() {
+        Model m = new Model(new DummySuspensionHook(), 1);
+
+        List<Neuron> inputs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Neuron in = m.createNeuron("IN" + i);
+            createOutputNeuron(m, "OUT" + i, in);
+            inputs.add(in);
+        }
+
+        for (Neuron in: inputs) {
+            Document doc = m.createDocument("aaaaaaaaaa", 0);
+            in.addInput(doc, 0, 5);
+            doc.process();
+            doc.clearActivations();
+        }
+
+        long fullBytes = m.getEstimatedBytes();
+        long liveProviders = m.metrics.getLiveProviders();
+
+        m.suspensionManager.maxEstimatedBytes = fullBytes / 2;
+        m.suspensionManager.targetRatio = 0.8;
+
+        Document doc = m.createDocument("aaaaaaaaaa", 0);
+        inputs.get(inputs.size() - 1).addInput(doc, 0, 5);
+        doc.process();
+        doc.clearActivations();
+
+        Assert.assertTrue(m.getEstimatedBytes() <= fullBytes / 2);
+        Assert.assertTrue(m.metrics.getLiveProviders() < liveProviders);
+        Assert.assertTrue(m.metrics.getSuspensions() > 0);
+
+        // The most recently used neuron is still in memory.
+        Assert.assertFalse(inputs.get(inputs.size() - 1).isSuspended());
+        Assert.assertTrue(inputs.get(0).isSuspended());
+
+        // The reactivated nodes are accounted again.
+        long bytes = m.getEstimatedBytes();
+        inputs.get(0).get();
+        Assert.assertTrue(m.getEstimatedBytes() > bytes);
+    }
+
+
+    @Test
+    public void testEvictionBackoff() {
+        Assert.assertEquals(11, processOverBudget(1));
+        Assert.assertEquals(3, processOverBudget(5));
+    }
+
+
+    /**
+     * Processes 11 documents while a document of another thread slot keeps the model over its budget.
+     *
+     * @return The number of evictions.
+     */
+    private static int processOverBudget(int backoffDocuments) {
+        Model m = new Model(new DummySuspensionHook(), 2);
+
+        int[] evictions = new int[1];
+        m.suspensionManager = new SuspensionManager(m) {
+            @Override
+            public synchronized int evict(long targetBytes) {
+                evictions[0]++;
+                return super.evict(targetBytes);
+            }
+        };
+        m.suspensionManager.maxEstimatedBytes = 1;
+        m.suspensionManager.backoffDocuments = backoffDocuments;
+        m.suspensionManager.backoffRatio = 1000.0;
+
+        Neuron in = m.createNeuron("IN");
+        createOutputNeuron(m, "OUT", in);
+
+        // The nodes used by the following documents cannot be suspended as long as this document is not cleared.
+        Document pending = m.createDocument("aaaaaaaaaa", 1);
+
+        for (int i = 0; i < 11; i++) {
+            Document doc = m.createDocument("aaaaaaaaaa", 0);
+            in.addInput(doc, 0, 5);
+            doc.process();
+            doc.clearActivations();
+        }
+        int result = evictions[0];
+        pending.clearActivations();
+        return result;
+    }
+
+
+    private static Neuron createOutputNeuron(Model m, String label, Neuron in) {
+        return m.initNeuron(m.createNeuron(label), 5.0,
+                new Input()
+                        .setNeuron(in)
+                        .setWeight(10.0f)
+                        .setBiasDelta(0.9)
+                        .setRecurrent(false)
+                        .setRangeMatch(EQUALS)
+                        .setRangeOutput(true)
+        );
+    }
+}
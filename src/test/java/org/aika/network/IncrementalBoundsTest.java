@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Document;
+import org.aika.corpus.InterprNode;
+import org.aika.neuron.Activation;
+import org.aika.neuron.INeuron;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.aika.Input.RangeRelation.CONTAINED_IN;
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class IncrementalBoundsTest {
+
+
+    @After
+    public void resetMode() {
+        INeuron.INCREMENTAL_BOUNDS = false;
+    }
+
+
+    @Test
+    public void testSameFixedPoint() {
+        INeuron.INCREMENTAL_BOUNDS = false;
+        Map<String, double[]> expected = computeBounds();
+
+        INeuron.INCREMENTAL_BOUNDS = true;
+        Map<String, double[]> actual = computeBounds();
+
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, double[]> me : expected.entrySet()) {
+            double[] a = actual.get(me.getKey());
+            Assert.assertEquals(me.getKey(), me.getValue()[0], a[0], 0.000001);
+            Assert.assertEquals(me.getKey(), me.getValue()[1], a[1], 0.000001);
+        }
+    }
+
+
+    private Map<String, double[]> computeBounds() {
+        Model m = new Model();
+
+        List<Neuron> words = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            words.add(m.createNeuron("W-" + i));
+        }
+        Neuron inS = m.createNeuron("S");
+
+        List<Input> dictInputs = new ArrayList<>();
+        for (Neuron w : words) {
+            dictInputs.add(
+                    new Input()
+                            .setNeuron(w)
+                            .setWeight(1.0f)
+                            .setRecurrent(false)
+                            .setBiasDelta(0.0)
+                            .setRangeMatch(EQUALS)
+                            .setRangeOutput(true)
+            );
+        }
+        Neuron dict = m.initNeuron(m.createNeuron("DICT"), -0.001, dictInputs);
+
+        Neuron supprA = m.createNeuron("SUPPR-A");
+        Neuron supprB = m.createNeuron("SUPPR-B");
+
+        m.initNeuron(supprA, 0.5,
+                new Input()
+                        .setNeuron(dict)
+                        .setWeight(1.0f)
+                        .setRecurrent(false)
+                        .setBiasDelta(1.0)
+                        .setRangeMatch(EQUALS)
+                        .setRangeOutput(true),
+                new Input()
+                        .setNeuron(supprB)
+                        .setWeight(-2.0f)
+                        .setRecurrent(true)
+                        .setBiasDelta(0.0)
+                        .setRangeMatch(CONTAINED_IN)
+        );
+
+        m.initNeuron(supprB, 0.5,
+                new Input()
+                        .setNeuron(inS)
+                        .setWeight(1.0f)
+                        .setRecurrent(false)
+                        .setBiasDelta(1.0)
+                        .setRangeMatch(EQUALS)
+                        .setRangeOutput(true),
+                new Input()
+                        .setNeuron(supprA)
+                        .setWeight(-2.0f)
+                        .setRecurrent(true)
+                        .setBiasDelta(0.0)
+                        .setRangeMatch(CONTAINED_IN)
+        );
+
+        Document doc = m.createDocument("aaaaaaaaaaaaaaaaaaaa", 0);
+        for (int i = 0; i < words.size(); i += 3) {
+            InterprNode o = InterprNode.addPrimitive(doc);
+            words.get(i).addInput(doc, i, i + 2, o);
+            // Every other suppressor input shares the interpretation of the word, thus it is able to suppress it.
+            inS.addInput(doc, i, i + 2, i % 2 == 0 ? o : InterprNode.addPrimitive(doc));
+        }
+        doc.process();
+
+        Map<String, double[]> results = new TreeMap<>();
+        for (INeuron n : doc.activatedNeurons) {
+            for (Activation act : n.node.get().getActivations(doc)) {
+                results.put(act.key.n.neuron.get().label + act.key.r + act.key.o.id, new double[] {act.upperBound, act.lowerBound});
+            }
+        }
+        doc.clearActivations();
+        return results;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.neuron.IndexedSynapseMap;
+import org.aika.neuron.Synapse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class IndexedSynapseMapTest {
+
+
+    @Test
+    public void testPartnerIndex() {
+        Model m = new Model();
+        Neuron inA = m.createNeuron("A");
+        Neuron inB = m.createNeuron("B");
+        Neuron out = m.initNeuron(m.createNeuron("OUT"), 0.5, createInput(inA), createInput(inB));
+
+        IndexedSynapseMap syns = out.inMemoryInputSynapses;
+        Assert.assertEquals(2, syns.size());
+        Assert.assertEquals(2, syns.numberOfPartners());
+
+        Synapse[] ss = syns.getByPartner(inA.id);
+        Assert.assertEquals(1, ss.length);
+        Assert.assertSame(inA, ss[0].input);
+        Assert.assertSame(ss[0], inA.inMemoryOutputSynapses.getByPartner(out.id)[0]);
+
+        Assert.assertSame(ss[0], syns.remove(ss[0]));
+        Assert.assertNull(syns.getByPartner(inA.id));
+        Assert.assertEquals(1, syns.size());
+        Assert.assertEquals(1, syns.numberOfPartners());
+    }
+
+
+    @Test
+    public void testReadOnlyValues() {
+        Model m = new Model();
+        Neuron inA = m.createNeuron("A");
+        Neuron out = m.initNeuron(m.createNeuron("OUT"), 0.5, createInput(inA));
+
+        IndexedSynapseMap syns = out.inMemoryInputSynapses;
+        Iterator<Synapse> it = syns.values().iterator();
+        it.next();
+        try {
+            it.remove();
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+        }
+
+        // The index is still consistent with the synapses.
+        Assert.assertEquals(1, syns.size());
+        Assert.assertEquals(1, syns.getByPartner(inA.id).length);
+    }
+
+
+    private static Input createInput(Neuron in) {
+        return new Input()
+                .setNeuron(in)
+                .setWeight(1.0f)
+                .setBiasDelta(0.0)
+                .setRecurrent(false)
+                .setRangeMatch(EQUALS)
+                .setRangeOutput(true);
+    }
+}
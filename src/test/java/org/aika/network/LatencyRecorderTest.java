@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.*;
+import org.aika.LatencyRecorder.SlowDocument;
+import org.aika.LatencyRecorder.Stages;
+import org.aika.corpus.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class LatencyRecorderTest {
+
+
+    @Test
+    public void testStageHistograms() {
+        Model m = new Model();
+        LatencyRecorder lr = LatencyRecorder.install(m);
+
+        Neuron inA = m.createNeuron("A");
+        createOutputNeuron(m, inA);
+
+        processDocuments(m, inA, 3);
+
+        Stages s = lr.snapshotInterval();
+        Assert.assertEquals(3, s.process.getCount());
+        Assert.assertEquals(3, s.search.getCount());
+        Assert.assertEquals(3, s.train.getCount());
+        Assert.assertEquals(3, s.document.getCount());
+        Assert.assertTrue(s.propagate.getCount() >= 3);
+        Assert.assertTrue(s.endTime >= s.startTime);
+        Assert.assertEquals(0, s.sloViolations.sum());
+
+        processDocuments(m, inA, 2);
+
+        Stages interval = lr.snapshotInterval();
+        Assert.assertEquals(2, interval.document.getCount());
+
+        Stages total = lr.getTotal();
+        Assert.assertEquals(5, total.document.getCount());
+        Assert.assertTrue(total.document.getValueAtPercentile(99.9) >= total.document.getValueAtPercentile(50.0));
+    }
+
+
+    @Test
+    public void testLateSamples() {
+        LatencyRecorder lr = LatencyRecorder.install(new Model());
+        lr.onDocument(null, 100);
+
+        // A thread that read the interval before the snapshot records into it afterwards.
+        Stages s = lr.snapshotInterval();
+        s.document.record(200);
+        Assert.assertEquals(2, lr.getTotal().document.getCount());
+
+        lr.onDocument(null, 300);
+        lr.snapshotInterval();
+        lr.snapshotInterval();
+        Assert.assertEquals(3, lr.getTotal().document.getCount());
+    }
+
+
+    @Test
+    public void testSlowDocumentSampler() {
+        Model m = new Model();
+        LatencyRecorder lr = LatencyRecorder.install(m, 0, 2);
+
+        Neuron inA = m.createNeuron("A");
+        createOutputNeuron(m, inA);
+
+        processDocuments(m, inA, 3);
+
+        Assert.assertEquals(3, lr.getTotal().sloViolations.sum());
+
+        List<SlowDocument> slowDocs = lr.getSlowDocuments();
+        Assert.assertEquals(2, slowDocs.size());
+
+        SlowDocument sd = slowDocs.get(1);
+        Assert.assertEquals(10, sd.length);
+        Assert.assertEquals(1, sd.inputActivations);
+        Assert.assertTrue(sd.activations > 0);
+        Assert.assertTrue(sd.latency > 0);
+    }
+
+
+    @Test
+    public void testDelegate() {
+        Model m = new Model();
+
+        int[] documents = new int[1];
+        m.processingListener = new ProcessingListener() {
+            @Override
+            public void onDocument(Document doc, long nanos) {
+                documents[0]++;
+            }
+        };
+        LatencyRecorder lr = LatencyRecorder.install(m);
+
+        Neuron inA = m.createNeuron("A");
+        createOutputNeuron(m, inA);
+
+        processDocuments(m, inA, 3);
+
+        Assert.assertEquals(3, documents[0]);
+        Assert.assertEquals(3, lr.getTotal().document.getCount());
+    }
+
+
+    private static void processDocuments(Model m, Neuron in, int n) {
+        for (int i = 0; i < n; i++) {
+            Document doc = m.createDocument("aaaaaaaaaa", 0);
+            in.addInput(doc, 0, 5);
+            doc.process();
+            doc.train();
+            doc.clearActivations();
+        }
+    }
+
+
+    private static Neuron createOutputNeuron(Model m, Neuron in) {
+        return m.initNeuron(m.createNeuron("B"), 5.0,
+                new Input()
+                        .setNeuron(in)
+                        .setWeight(10.0f)
+                        .setBiasDelta(0.9)
+                        .setRecurrent(false)
+                        .setRangeMatch(EQUALS)
+                        .setRangeOutput(true)
+        );
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.*;
+import org.aika.corpus.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class MetricsTest {
+
+
+    @Test
+    public void testHistogram() {
+        Histogram h = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i);
+        }
+
+        Assert.assertEquals(1000, h.getCount());
+        Assert.assertEquals(1000, h.getMax());
+        Assert.assertEquals(500.5, h.getMean(), 0.001);
+
+        long p50 = h.getValueAtPercentile(50.0);
+        Assert.assertTrue(p50 >= 500 && p50 <= 500 * (1.0 + 1.0 / Histogram.SUB_BUCKETS));
+
+        long p99 = h.getValueAtPercentile(99.0);
+        Assert.assertTrue(p99 >= 990 && p99 <= 1000);
+
+        Histogram h2 = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            h2.record(1000000);
+        }
+        Histogram merged = h.copy();
+        merged.merge(h2);
+
+        Assert.assertEquals(2000, merged.getCount());
+        Assert.assertEquals(1000000, merged.getMax());
+        Assert.assertTrue(merged.getValueAtPercentile(75.0) > 1000);
+        Assert.assertEquals(1000, h.getCount());
+
+        h.reset();
+        Assert.assertEquals(0, h.getCount());
+        Assert.assertEquals(0, h.getValueAtPercentile(50.0));
+    }
+
+
+    @Test
+    public void testConcurrentStructureCounts() throws InterruptedException {
+        Model m = new Model();
+
+        int numberOfThreads = 4;
+        int neuronsPerThread = 200;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < neuronsPerThread; i++) {
+                    Neuron in = m.createNeuron("IN");
+                    m.initNeuron(m.createNeuron("OUT"), 0.001,
+                            new Input()
+                                    .setNeuron(in)
+                                    .setWeight(1.0f)
+                                    .setBiasDelta(1.0)
+                                    .setRecurrent(false)
+                                    .setRangeMatch(EQUALS)
+                                    .setRangeOutput(true)
+                    );
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Metrics.Snapshot s = m.metrics.snapshot();
+        Assert.assertEquals(numberOfThreads * neuronsPerThread, s.neurons);
+        Assert.assertEquals(numberOfThreads * neuronsPerThread, s.synapses);
+    }
+
+
+    @Test
+    public void testDocumentAndSuspensionMetrics() {
+        Model m = new Model(new SuspensionTest.DummySuspensionHook(), 1);
+
+        Neuron inA = m.createNeuron("A");
+        Neuron outB = m.initNeuron(m.createNeuron("B"), 5.0,
+                new Input()
+                        .setNeuron(inA)
+                        .setWeight(10.0f)
+                        .setBiasDelta(0.9)
+                        .setRecurrent(false)
+                        .setRangeMatch(EQUALS)
+                        .setRangeOutput(true)
+        );
+
+        Metrics.Snapshot before = m.metrics.snapshot();
+        Assert.assertEquals(1, before.neurons);
+        Assert.assertEquals(1, before.synapses);
+        Assert.assertTrue(before.liveProviders > 0);
+
+        m.suspendAll();
+
+        Metrics.Snapshot suspended = m.metrics.snapshot();
+        Assert.assertEquals(0, suspended.liveProviders);
+        Assert.assertEquals(before.liveProviders, suspended.suspensions);
+
+        Document doc = m.createDocument("aaaaaaaaaa", 0);
+        inA.addInput(doc, 0, 5);
+        doc.process();
+        Assert.assertFalse(outB.getFinalActivations(doc).isEmpty());
+        doc.clearActivations();
+
+        Metrics.Snapshot after = m.metrics.snapshot();
+        Assert.assertTrue(after.reactivations > 0);
+        Assert.assertEquals(1, after.documents);
+        Assert.assertEquals(doc.activationIdCounter, after.activationsPerDocument.getMax());
+        Assert.assertTrue(after.queueDepth.getMax() > 0);
+        Assert.assertEquals(1, after.documentLatency.getCount());
+        Assert.assertTrue(after.getReactivationsPerSecond(suspended) > 0.0);
+
+        // The rate of the interval closed by the last snapshot does not change when it is read again.
+        double rate = m.metrics.getReactivationsPerSecond();
+        Assert.assertTrue(rate > 0.0);
+        Assert.assertEquals(rate, m.metrics.getReactivationsPerSecond(), 0.0);
+
+        m.metrics.reset();
+        Assert.assertEquals(0, m.metrics.getDocuments());
+        Assert.assertEquals(1, m.metrics.getNeurons());
+    }
+
+
+    @Test
+    public void testMBean() throws Exception {
+        Model m = new Model();
+        m.createNeuron("A");
+        m.initNeuron(m.createNeuron("B"), 0.001,
+                new Input()
+                        .setNeuron(m.createNeuron("C"))
+                        .setWeight(1.0f)
+                        .setBiasDelta(1.0)
+                        .setRecurrent(false)
+                        .setRangeMatch(EQUALS)
+                        .setRangeOutput(true)
+        );
+
+        ObjectName on = m.metrics.registerMBean("MetricsTest");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Assert.assertEquals(1L, server.getAttribute(on, "Neurons"));
+            Assert.assertEquals(1L, server.getAttribute(on, "Synapses"));
+        } finally {
+            m.metrics.unregisterMBean();
+        }
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(on));
+    }
+}
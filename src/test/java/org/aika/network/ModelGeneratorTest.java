@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.benchmark.DocumentGenerator;
+import org.aika.benchmark.ModelGenerator;
+import org.aika.corpus.Document;
+import org.aika.neuron.Activation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class ModelGeneratorTest {
+
+
+    @Test
+    public void testDeterministic() {
+        List<String> resultsA = generateAndProcess(42);
+        List<String> resultsB = generateAndProcess(42);
+        List<String> resultsC = generateAndProcess(7);
+
+        Assert.assertEquals(resultsA, resultsB);
+        Assert.assertNotEquals(resultsA, resultsC);
+    }
+
+
+    @Test
+    public void testDeferredInitialization() {
+        List<String> results = generateAndProcess(42);
+
+        Assert.assertEquals(results, generateAndProcess(42, false));
+        Assert.assertEquals(results, generateAndProcess(42, true));
+    }
+
+
+    @Test
+    public void testActivatedStructures() {
+        Model m = new Model();
+        ModelGenerator mg = new ModelGenerator(42);
+        mg.numberOfWords = 100;
+        mg.numberOfPhrases = 50;
+        mg.numberOfSenses = 50;
+        mg.numberOfEntities = 25;
+        mg.generate(m);
+
+        Assert.assertEquals(100, mg.words.size());
+        Assert.assertEquals(25, mg.suppressingNeurons.size());
+
+        DocumentGenerator dg = new DocumentGenerator(mg, 43);
+
+        Set<Neuron> activePhrases = new HashSet<>();
+        Set<Neuron> activeEntities = new HashSet<>();
+        for (int[] tokenIds : dg.nextCorpus(20, 30)) {
+            Document doc = dg.createDocument(m, tokenIds, 0);
+            doc.process();
+
+            collectActive(doc, mg.phrases, activePhrases);
+            collectActive(doc, mg.entities, activeEntities);
+
+            // The senses of an ambiguity group share the same input and suppress each other.
+            for (int i = 0; i < mg.senses.size(); i += 2) {
+                Set<String> ranges = new HashSet<>();
+                for (Activation act : mg.senses.get(i).getFinalActivations(doc)) {
+                    ranges.add(act.key.r.toString());
+                }
+                for (Activation act : mg.senses.get(i + 1).getFinalActivations(doc)) {
+                    Assert.assertFalse(ranges.contains(act.key.r.toString()));
+                }
+            }
+            doc.clearActivations();
+        }
+
+        Assert.assertFalse(activePhrases.isEmpty());
+        Assert.assertFalse(activeEntities.isEmpty());
+    }
+
+
+    private static List<String> generateAndProcess(long seed) {
+        return generateAndProcess(seed, null);
+    }
+
+
+    private static List<String> generateAndProcess(long seed, Boolean bulkLoad) {
+        Model m = new Model(null, 2);
+        ModelGenerator mg = new ModelGenerator(seed);
+        mg.numberOfWords = 100;
+        mg.numberOfPhrases = 50;
+        mg.numberOfSenses = 50;
+        mg.numberOfEntities = 25;
+        mg.deferInitialization = bulkLoad != null;
+        mg.generate(m);
+
+        if (bulkLoad == Boolean.TRUE) {
+            mg.bulkLoad(m);
+        } else if (bulkLoad == Boolean.FALSE) {
+            mg.initNeurons(m);
+        }
+
+        DocumentGenerator dg = new DocumentGenerator(mg, seed + 1);
+
+        List<String> results = new ArrayList<>();
+        for (int[] tokenIds : dg.nextCorpus(5, 30)) {
+            Document doc = dg.createDocument(m, tokenIds, 0);
+            doc.process();
+
+            for (Neuron n : mg.getOutputNeurons()) {
+                for (Activation act : n.getFinalActivations(doc)) {
+                    results.add(n.get().label + act.key.r);
+                }
+            }
+            doc.clearActivations();
+        }
+        return results;
+    }
+
+
+    private static void collectActive(Document doc, List<Neuron> neurons, Set<Neuron> results) {
+        for (Neuron n : neurons) {
+            if (!n.getFinalActivations(doc).isEmpty()) {
+                results.add(n);
+            }
+        }
+    }
+}
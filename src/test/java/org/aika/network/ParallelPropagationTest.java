@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.Input;
+import org.aika.Input.RangeRelation;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Document;
+import org.aika.corpus.Range.Operator;
+import org.aika.lattice.NodeActivation;
+import org.aika.neuron.Activation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class ParallelPropagationTest {
+
+    static String[] PATTERNS = new String[] {"abc", "bcd", "cde", "abd", "ace", "bde", "eab", "dca"};
+
+
+    @Test
+    public void testParallelPropagation() {
+        String txt = "abcdeabdcabcedacebdeabcdcabdeaabcdbcaebdcedabcdeab";
+
+        String seqResult = process(txt, null);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        String parResult = process(txt, pool);
+        pool.shutdown();
+
+        Assert.assertFalse(seqResult.isEmpty());
+        Assert.assertEquals(seqResult, parResult);
+    }
+
+
+    private String process(String txt, ForkJoinPool pool) {
+        Model m = new Model();
+        m.propagationPool = pool;
+
+        Map<Character, Neuron> inputNeurons = new TreeMap<>();
+        for(char c: new char[] {'a', 'b', 'c', 'd', 'e'}) {
+            inputNeurons.put(c, m.createNeuron(c + ""));
+        }
+
+        List<Neuron> patternNeurons = new ArrayList<>();
+        for(String p: PATTERNS) {
+            patternNeurons.add(
+                    m.initNeuron(
+                            m.createNeuron(p),
+                            0.4,
+                            new Input()
+                                    .setNeuron(inputNeurons.get(p.charAt(0)))
+                                    .setWeight(1.0f)
+                                    .setRecurrent(false)
+                                    .setRelativeRid(0)
+                                    .setBiasDelta(0.9)
+                                    .setStartRangeMatch(Operator.EQUALS)
+                                    .setEndRangeMatch(Operator.GREATER_THAN)
+                                    .setStartRangeOutput(true),
+                            new Input()
+                                    .setNeuron(inputNeurons.get(p.charAt(1)))
+                                    .setWeight(1.0f)
+                                    .setRecurrent(false)
+                                    .setRelativeRid(1)
+                                    .setBiasDelta(0.9)
+                                    .setRangeMatch(RangeRelation.CONTAINS),
+                            new Input()
+                                    .setNeuron(inputNeurons.get(p.charAt(2)))
+                                    .setWeight(1.0f)
+                                    .setRecurrent(false)
+                                    .setRelativeRid(2)
+                                    .setBiasDelta(0.9)
+                                    .setStartRangeMatch(Operator.LESS_THAN)
+                                    .setEndRangeMatch(Operator.EQUALS)
+                                    .setEndRangeOutput(true)
+                    )
+            );
+        }
+
+        Document doc = m.createDocument(txt, 0);
+        for(int i = 0; i < doc.length(); i++) {
+            inputNeurons.get(doc.getContent().charAt(i)).addInput(doc, i, i + 1, i);
+        }
+
+        doc.process();
+
+        StringBuilder sb = new StringBuilder();
+        for(Neuron n: patternNeurons) {
+            sb.append(n.get().label);
+            sb.append(":");
+            for(NodeActivation act: n.get().node.get().getActivations(doc)) {
+                sb.append(" ");
+                sb.append(act.key.r);
+                sb.append(" ");
+                sb.append(act.key.rid);
+                sb.append(" ");
+                sb.append(Math.round(((Activation) act).finalState.value * 1000.0) / 1000.0);
+            }
+            sb.append("\n");
+        }
+
+        doc.clearActivations();
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.*;
+import org.aika.corpus.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class ProcessingListenerTest {
+
+
+    @Test
+    public void testProcessingCallbacks() {
+        Model m = new Model();
+        RecordingListener rl = new RecordingListener();
+        m.processingListener = rl;
+
+        Neuron inA = m.createNeuron("A");
+        Neuron inB = m.createNeuron("B");
+        Neuron outC = createAndNeuron(m, inA, inB);
+
+        Document doc = m.createDocument("aaaaaaaaaa", 0);
+
+        inA.addInput(doc, 0, 5);
+        inB.addInput(doc, 0, 5);
+
+        Assert.assertTrue(rl.propagateCalls >= 2);
+        Assert.assertTrue(rl.processedNodes > 0);
+        Assert.assertTrue(rl.upperBoundActs > 0);
+
+        doc.process();
+
+        Assert.assertFalse(outC.getFinalActivations(doc).isEmpty());
+        Assert.assertEquals(1, rl.searchCalls);
+        Assert.assertEquals(doc.searchSteps, rl.searchSteps);
+
+        doc.train();
+        Assert.assertEquals(1, rl.trainCalls);
+
+        Assert.assertTrue(rl.nanos > 0);
+        doc.clearActivations();
+    }
+
+
+    @Test
+    public void testSuspensionCallbacks() {
+        Model m = new Model(new SuspensionTest.DummySuspensionHook(), 1);
+        RecordingListener rl = new RecordingListener();
+        m.processingListener = rl;
+
+        Neuron inA = m.createNeuron("A");
+        Neuron inB = m.createNeuron("B");
+        Neuron outC = createAndNeuron(m, inA, inB);
+
+        m.suspendAll();
+
+        Assert.assertTrue(outC.isSuspended());
+        Assert.assertTrue(rl.suspendCalls > 0);
+        Assert.assertTrue(rl.suspendedBytes > 0);
+        Assert.assertEquals(0, rl.reactivateCalls);
+
+        Document doc = m.createDocument("aaaaaaaaaa", 0);
+
+        inA.addInput(doc, 0, 5);
+        inB.addInput(doc, 0, 5);
+
+        Assert.assertTrue(rl.reactivateCalls > 0);
+        Assert.assertTrue(rl.reactivatedBytes > 0);
+        doc.clearActivations();
+    }
+
+
+    @Test
+    public void testNoListener() {
+        Model m = new Model();
+        Assert.assertSame(ProcessingListener.NONE, m.processingListener);
+
+        Neuron inA = m.createNeuron("A");
+        Neuron inB = m.createNeuron("B");
+        Neuron outC = createAndNeuron(m, inA, inB);
+
+        Document doc = m.createDocument("aaaaaaaaaa", 0);
+
+        inA.addInput(doc, 0, 5);
+        inB.addInput(doc, 0, 5);
+        doc.process();
+
+        Assert.assertFalse(outC.getFinalActivations(doc).isEmpty());
+        doc.clearActivations();
+    }
+
+
+    private static Neuron createAndNeuron(Model m, Neuron inA, Neuron inB) {
+        return m.initNeuron(m.createNeuron("C"),
+                5.0,
+                new Input()
+                        .setNeuron(inA)
+                        .setWeight(10.0f)
+                        .setBiasDelta(0.9)
+                        .setRecurrent(false)
+                        .setRangeMatch(EQUALS)
+                        .setRangeOutput(true),
+                new Input()
+                        .setNeuron(inB)
+                        .setWeight(10.0f)
+                        .setBiasDelta(0.9)
+                        .setRecurrent(false)
+                        .setRangeMatch(EQUALS)
+                        .setRangeOutput(true)
+        );
+    }
+
+
+    public static class RecordingListener implements ProcessingListener {
+        int propagateCalls;
+        int processedNodes;
+        int upperBoundActs;
+        int searchCalls;
+        int searchSteps;
+        int trainCalls;
+        int suspendCalls;
+        long suspendedBytes;
+        int reactivateCalls;
+        long reactivatedBytes;
+        long nanos;
+
+
+        @Override
+        public void onPropagate(Document doc, long nanos) {
+            propagateCalls++;
+            this.nanos += nanos;
+        }
+
+        @Override
+        public void onProcessChanges(Document doc, int nodes, long nanos) {
+            processedNodes += nodes;
+        }
+
+        @Override
+        public void onUpperBoundQueue(Document doc, int activations, long nanos) {
+            upperBoundActs += activations;
+        }
+
+        @Override
+        public void onSearch(Document doc, int steps, int depth, int cacheHits, long nanos) {
+            searchCalls++;
+            searchSteps += steps;
+        }
+
+        @Override
+        public void onTrain(Document doc, long nanos) {
+            trainCalls++;
+        }
+
+        @Override
+        public void onSuspend(Provider<?> p, int bytes, long nanos) {
+            suspendCalls++;
+            suspendedBytes += bytes;
+        }
+
+        @Override
+        public void onReactivate(Provider<?> p, int bytes, long nanos) {
+            reactivateCalls++;
+            reactivatedBytes += bytes;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.Converter;
+import org.aika.Input;
+import org.aika.Model;
+import org.aika.Neuron;
+import org.aika.corpus.Document;
+import org.aika.lattice.AndNode;
+import org.aika.lattice.Node;
+import org.aika.neuron.Activation;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class SelectivityOrderingTest {
+
+
+    @After
+    public void resetOrder() {
+        Converter.REFINEMENT_ORDER = Converter.SYNAPSE_COMP;
+    }
+
+
+    @Test
+    public void testReplan() {
+        Model m = new Model();
+
+        // The frequent inputs are created first, so that the default order prefers them.
+        Neuron inA = m.createNeuron("A");
+        Neuron inB = m.createNeuron("B");
+        Neuron inC = m.createNeuron("C");
+        Neuron inD = m.createNeuron("D");
+
+        // Any two of the four inputs are sufficient.
+        Neuron out = m.initNeuron(m.createNeuron("OUT"), 0.5,
+                createInput(inA),
+                createInput(inB),
+                createInput(inC),
+                createInput(inD)
+        );
+
+        // Train the frequencies: A and B occur in every document, C and D only in every tenth.
+        for (int i = 0; i < 20; i++) {
+            Document doc = m.createDocument("a");
+            addInputs(doc, i % 10 == 0, inA, inB, inC, inD);
+            doc.process();
+            doc.count();
+            doc.clearActivations();
+        }
+
+        List<String> defaultResults = new ArrayList<>();
+        int defaultActs = processCorpus(m, out, defaultResults, inA, inB, inC, inD);
+
+        Converter.REFINEMENT_ORDER = Converter.SELECTIVITY_COMP;
+        Converter.replan(m);
+
+        List<String> selectiveResults = new ArrayList<>();
+        int selectiveActs = processCorpus(m, out, selectiveResults, inA, inB, inC, inD);
+
+        Assert.assertEquals(100, defaultResults.size());
+
+        // The order only changes the join order within the required node, not the recognized documents.
+        Assert.assertEquals(defaultResults, selectiveResults);
+        Assert.assertEquals(defaultActs, selectiveActs);
+    }
+
+
+    /**
+     * @return The number of and-node activations.
+     */
+    private static int processCorpus(Model m, Neuron out, List<String> results, Neuron inA, Neuron inB, Neuron inC, Neuron inD) {
+        int andActs = 0;
+        for (int i = 0; i < 100; i++) {
+            Document doc = m.createDocument("a");
+            addInputs(doc, i % 10 == 0, inA, inB, inC, inD);
+            doc.process();
+
+            for (Node n : doc.activatedNodes) {
+                if (n instanceof AndNode) {
+                    andActs += n.getActivations(doc).size();
+                }
+            }
+
+            for (Activation act : out.getFinalActivations(doc)) {
+                results.add(i + ":" + act.key.r);
+            }
+            doc.clearActivations();
+        }
+        return andActs;
+    }
+
+
+    private static void addInputs(Document doc, boolean rare, Neuron inA, Neuron inB, Neuron inC, Neuron inD) {
+        inA.addInput(doc, 0, 1);
+        inB.addInput(doc, 0, 1);
+        if (rare) {
+            inC.addInput(doc, 0, 1);
+            inD.addInput(doc, 0, 1);
+        }
+    }
+
+
+    private static Input createInput(Neuron in) {
+        return new Input()
+                .setNeuron(in)
+                .setWeight(1.0f)
+                .setBiasDelta(0.6)
+                .setRecurrent(false)
+                .setRangeMatch(EQUALS)
+                .setRangeOutput(true);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aika.network;
+
+
+import org.aika.*;
+import org.aika.TraceReplayer.Comparison;
+import org.aika.TraceReplayer.Result;
+import org.aika.corpus.Document;
+import org.aika.corpus.InterprNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.aika.Input.RangeRelation.EQUALS;
+
+/**
+ *
+ * @author Lukas Molzberger
+ */
+public class TraceRecorderTest {
+
+
+    @Test
+    public void testRecordAndReplay() throws IOException {
+        Model m = createModel();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        TraceRecorder tr = TraceRecorder.install(m, baos);
+
+        List<Integer> activations = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Document doc = m.createDocument("aaaaaaaaaa", 0);
+            m.lookupNeuron(1).addInput(doc, 0, 5, i);
+            m.lookupNeuron(1).addInput(doc, 5, 10, i + 1, InterprNode.addPrimitive(doc), 0.5);
+            doc.process();
+            doc.train();
+            activations.add(doc.activationIdCounter);
+            doc.clearActivations();
+        }
+        tr.close();
+
+        Assert.assertEquals(3, tr.recordedDocuments.sum());
+
+        byte[] trace = baos.toByteArray();
+
+        Result r1 = new TraceReplayer(createModel()).replay(new ByteArrayInputStream(trace));
+        Result r2 = new TraceReplayer(createModel()).replay(new ByteArrayInputStream(trace));
+
+        Assert.assertEquals(3, r1.documents.size());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals((int) activations.get(i), r1.documents.get(i).activations);
+            Assert.assertEquals(10, r1.documents.get(i).length);
+            Assert.assertTrue(r1.documents.get(i).nanos > 0);
+        }
+
+        ByteArrayOutputStream rbaos = new ByteArrayOutputStream();
+        r1.write(new DataOutputStream(rbaos));
+        Result r1Copy = Result.read(new DataInputStream(new ByteArrayInputStream(rbaos.toByteArray())));
+        Assert.assertEquals(r1.totalNanos, r1Copy.totalNanos);
+
+        Comparison c = TraceReplayer.compare(r1Copy, r2);
+        Assert.assertEquals(3, c.documents.size());
+        Assert.assertTrue(c.getDivergentDocuments().isEmpty());
+        Assert.assertTrue(c.timeRatio > 0.0);
+    }
+
+
+    @Test
+    public void testSlowDocumentFilter() throws IOException {
+        Model m = createModel();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        TraceRecorder tr = TraceRecorder.install(m, baos, Long.MAX_VALUE);
+
+        Document doc = m.createDocument("aaaaaaaaaa", 0);
+        m.lookupNeuron(1).addInput(doc, 0, 5);
+        doc.process();
+        doc.clearActivations();
+        tr.close();
+
+        Assert.assertEquals(0, tr.recordedDocuments.sum());
+        Assert.assertEquals(1, tr.skippedDocuments.sum());
+
+        Result r = new TraceReplayer(createModel()).replay(new ByteArrayInputStream(baos.toByteArray()));
+        Assert.assertTrue(r.documents.isEmpty());
+    }
+
+
+    @Test
+    public void testDelegateAndAbandonedDocuments() throws IOException {
+        Model m = createModel();
+
+        int[] processed = new int[1];
+        m.processingListener = new ProcessingListener() {
+            @Override
+            public void onProcess(Document doc, long nanos) {
+                processed[0]++;
+            }
+        };
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        TraceRecorder tr = TraceRecorder.install(m, baos);
+
+        // Documents without text are never cleared, so their events are discarded by the next document of the slot.
+        for (int i = 0; i < 5; i++) {
+            m.createDocument(null, 0);
+        }
+
+        Document doc = m.createDocument("aaaaaaaaaa", 0);
+        m.lookupNeuron(1).addInput(doc, 0, 5);
+        doc.process();
+        doc.clearActivations();
+        tr.close();
+
+        Assert.assertEquals(1, processed[0]);
+        Assert.assertEquals(1, tr.recordedDocuments.sum());
+
+        Result r = new TraceReplayer(createModel()).replay(new ByteArrayInputStream(baos.toByteArray()));
+        Assert.assertEquals(1, r.documents.size());
+        Assert.assertEquals(10, r.documents.get(0).length);
+    }
+
+
+    private static Model createModel() {
+        Model m = new Model();
+        Neuron inA = m.createNeuron("A");
+        Assert.assertEquals(1, (int) inA.id);
+
+        m.initNeuron(m.createNeuron("B"), 5.0,
+                new Input()
+                        .setNeuron(inA)
+                        .setWeight(10.0f)
+                        .setBiasDelta(0.9)
+                        .setRecurrent(false)
+                        .setRangeMatch(EQUALS)
+                        .setRangeOutput(true)
+        );
+        return m;
+    }
+}